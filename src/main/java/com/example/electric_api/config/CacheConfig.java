@@ -0,0 +1,51 @@
+package com.example.electric_api.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caffeine caches (size-bounded W-TinyLFU eviction plus TTL) behind the @Cacheable read paths.
+ * Cached methods use sync = true, which loads through Caffeine's per-key atomic compute: concurrent
+ * misses for one key wait for a single computation instead of all hitting the database, e.g.
+ * right after a deploy when every cache is cold.
+ */
+@Configuration
+public class CacheConfig {
+
+    public static final String CATEGORIES = "categories";
+    public static final String DEVICE_STATISTICS = "deviceStatistics";
+    public static final String GRID_MAP = "gridMap";
+    public static final String GRID_TILES = "gridTiles";
+
+    @Value("${app.cache.categories.spec:maximumSize=100,expireAfterWrite=60s,recordStats}")
+    private String categoriesSpec;
+
+    @Value("${app.cache.device-statistics.spec:maximumSize=10,expireAfterWrite=10s,recordStats}")
+    private String deviceStatisticsSpec;
+
+    @Value("${app.cache.grid-map.spec:maximumSize=100,expireAfterWrite=10m,recordStats}")
+    private String gridMapSpec;
+
+    @Value("${app.cache.grid-tiles.spec:maximumSize=20000,expireAfterAccess=30m,recordStats}")
+    private String gridTilesSpec;
+
+    @Value("${app.cache.default.spec:maximumSize=1000,expireAfterWrite=5m,recordStats}")
+    private String defaultSpec;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setAllowNullValues(false);
+        cacheManager.setCaffeineSpec(CaffeineSpec.parse(defaultSpec));
+        cacheManager.registerCustomCache(CATEGORIES, Caffeine.from(categoriesSpec).build());
+        cacheManager.registerCustomCache(DEVICE_STATISTICS, Caffeine.from(deviceStatisticsSpec).build());
+        cacheManager.registerCustomCache(GRID_MAP, Caffeine.from(gridMapSpec).build());
+        cacheManager.registerCustomCache(GRID_TILES, Caffeine.from(gridTilesSpec).build());
+        return cacheManager;
+    }
+}
@@ -29,6 +29,7 @@ public class DataSeeder implements CommandLineRunner {
     @Autowired private AlertLevelRepository alertLevelRepository;
     @Autowired private AlertStatusRepository alertStatusRepository;
     @Autowired private AlertRepository alertRepository;
+    @Autowired private AlertRuleRepository alertRuleRepository;
     @Autowired private SystemConfigRepository systemConfigRepository;
     @Autowired private PasswordEncoder passwordEncoder;
 
@@ -56,6 +57,7 @@ public class DataSeeder implements CommandLineRunner {
             seedDevices();
             seedAlertLevels();
             seedAlertStatuses();
+            seedAlertRules();
             seedAlerts();
             seedSystemConfigs();
 
@@ -344,6 +346,28 @@ public class DataSeeder implements CommandLineRunner {
         System.out.println("✅ Created " + alertStatusData.size() + " alert statuses");
     }
 
+    private void seedAlertRules() {
+        System.out.println("📏 Creating default alert rules...");
+
+        Long warning = alertLevelRepository.findByName("WARNING").map(AlertLevel::getId).orElse(null);
+        Long critical = alertLevelRepository.findByName("CRITICAL").map(AlertLevel::getId).orElse(null);
+        if (warning == null || critical == null) {
+            System.out.println("⚠️ Cannot create alert rules - missing alert levels");
+            return;
+        }
+
+        // Defaults for all device types; type-specific rules can be added via /api/alerts/rules
+        List<AlertRule> rules = Arrays.asList(
+            new AlertRule("Over voltage", null, Alert.AlertType.OVER_VOLTAGE, new BigDecimal("250"), warning),
+            new AlertRule("Under voltage", null, Alert.AlertType.UNDER_VOLTAGE, new BigDecimal("190"), warning),
+            new AlertRule("Over current", null, Alert.AlertType.OVER_CURRENT, new BigDecimal("100"), critical),
+            new AlertRule("Over temperature", null, Alert.AlertType.OVER_TEMPERATURE, new BigDecimal("85"), critical)
+        );
+        alertRuleRepository.saveAll(rules);
+
+        System.out.println("✅ Created " + rules.size() + " alert rules");
+    }
+
     private void seedAlerts() {
         System.out.println("🚨 Creating sample alerts...");
 
@@ -401,6 +425,7 @@ public class DataSeeder implements CommandLineRunner {
             new Object[]{"system.version", "1.0.0", "System version", SystemConfig.DataType.STRING},
             new Object[]{"monitoring.interval", "30", "Monitoring interval in seconds", SystemConfig.DataType.INTEGER},
             new Object[]{"alert.retention.days", "365", "Alert retention period in days", SystemConfig.DataType.INTEGER},
+            new Object[]{"telemetry.retention.days", "365", "Device telemetry retention period in days", SystemConfig.DataType.INTEGER},
             new Object[]{"maintenance.reminder.enabled", "true", "Enable maintenance reminders", SystemConfig.DataType.BOOLEAN},
             new Object[]{"email.notifications.enabled", "false", "Enable email notifications", SystemConfig.DataType.BOOLEAN},
             new Object[]{"data.backup.enabled", "true", "Enable automatic data backup", SystemConfig.DataType.BOOLEAN},
@@ -0,0 +1,36 @@
+package com.example.electric_api.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Lets a handler give its own async response (e.g. a StreamingResponseBody export that runs for
+ * minutes) a timeout other than spring.mvc.async.request-timeout, by setting
+ * {@link #ASYNC_TIMEOUT_ATTRIBUTE} to the timeout in milliseconds before it returns.
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    public static final String ASYNC_TIMEOUT_ATTRIBUTE = WebMvcConfig.class.getName() + ".asyncTimeout";
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                // Runs before the async request starts, which is when its timeout is applied
+                Object timeout = request.getAttribute(ASYNC_TIMEOUT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+                if (timeout instanceof Long millis && request instanceof AsyncWebRequest asyncRequest) {
+                    asyncRequest.setTimeout(millis);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.electric_api.config;
+
+import com.example.electric_api.controller.TelemetryWebSocketHandler;
+import com.example.electric_api.security.JwtHandshakeInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    @Autowired
+    private TelemetryWebSocketHandler telemetryWebSocketHandler;
+
+    @Autowired
+    private JwtHandshakeInterceptor jwtHandshakeInterceptor;
+
+    @Value("${websocket.allowed-origins:http://localhost:3000}")
+    private String[] allowedOrigins;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(telemetryWebSocketHandler, "/ws/telemetry")
+            .addInterceptors(jwtHandshakeInterceptor)
+            .setAllowedOriginPatterns(allowedOrigins);
+    }
+}
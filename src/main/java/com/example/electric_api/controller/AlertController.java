@@ -1,6 +1,15 @@
 package com.example.electric_api.controller;
 
+import com.example.electric_api.dto.AlertListItem;
+import com.example.electric_api.dto.KeysetPage;
+import com.example.electric_api.dto.OpenAlertEntry;
 import com.example.electric_api.entity.Alert;
+import com.example.electric_api.entity.AlertLevel;
+import com.example.electric_api.entity.AlertRule;
+import com.example.electric_api.repository.AlertIncidentRepository;
+import com.example.electric_api.service.AlertCoalescer;
+import com.example.electric_api.service.AlertRuleEngine;
+import com.example.electric_api.service.AlertService;
 import com.example.electric_api.service.FakeDataService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -11,12 +20,15 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.math.BigDecimal;
 
 @RestController
@@ -26,9 +38,23 @@ import java.math.BigDecimal;
 @SecurityRequirement(name = "Bearer Authentication")
 public class AlertController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
     @Autowired
     private FakeDataService fakeDataService;
 
+    @Autowired
+    private AlertRuleEngine alertRuleEngine;
+
+    @Autowired
+    private AlertService alertService;
+
+    @Autowired
+    private AlertCoalescer alertCoalescer;
+
+    @Autowired
+    private AlertIncidentRepository alertIncidentRepository;
+
     @GetMapping
     @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR') or hasRole('USER') or hasRole('VIEWER')")
     @Operation(summary = "Get all alerts with pagination and filtering")
@@ -39,9 +65,29 @@ public class AlertController {
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String type,
             @RequestParam(required = false) Long deviceId,
-            @RequestParam(required = false) Boolean resolved) {
+            @RequestParam(required = false) Boolean resolved,
+            @RequestParam(required = false) String cursor) {
         
         try {
+            // Keyset paging over the database; an empty cursor asks for the first page
+            if (cursor != null) {
+                if (size < 1 || size > MAX_PAGE_SIZE) {
+                    Map<String, String> error = new HashMap<>();
+                    error.put("message", "size must be between 1 and " + MAX_PAGE_SIZE);
+                    return ResponseEntity.badRequest().body(error);
+                }
+                KeysetPage<AlertListItem> result = alertService.listAlerts(level, status,
+                    type != null ? Alert.AlertType.valueOf(type.toUpperCase()) : null, deviceId, resolved, cursor, size);
+                Map<String, Object> response = new HashMap<>();
+                response.put("alerts", result.getItems());
+                response.put("size", result.getItems().size());
+                response.put("nextCursor", result.getNextCursor());
+                response.put("hasNext", result.hasNext());
+                response.put("paging", "KEYSET");
+                response.put("dataSource", "DATABASE");
+                return ResponseEntity.ok(response);
+            }
+
             // Use fake data for now with filtering support
             List<Alert> fakeAlerts = fakeDataService.filterFakeAlerts(level, status, type, deviceId, resolved);
             
@@ -100,15 +146,21 @@ public class AlertController {
     @Operation(summary = "Create a new alert")
     public ResponseEntity<?> createAlert(@Valid @RequestBody AlertCreateRequest request) {
         try {
+            OpenAlertEntry alert = alertService.createAlert(request);
             Map<String, Object> response = new HashMap<>();
-            response.put("message", "Alert creation simulated - using fake data mode");
-            response.put("alert", createFakeAlertFromRequest(request));
-            response.put("dataSource", "FAKE_DATA");
+            response.put("message", alert.getOccurrenceCount() > 1
+                ? "Alert folded into the open alert for this device and type" : "Alert created");
+            response.put("alert", alert);
+            response.put("dataSource", "DATABASE");
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Invalid alert: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("message", "Error creating alert: " + e.getMessage());
-            return ResponseEntity.badRequest().body(error);
+            return ResponseEntity.status(500).body(error);
         }
     }
 
@@ -133,14 +185,24 @@ public class AlertController {
     @Operation(summary = "Mark an alert as resolved by ID")
     public ResponseEntity<?> resolveAlert(@PathVariable Long id) {
         try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             Map<String, Object> response = new HashMap<>();
-            response.put("message", "Alert resolution simulated - using fake data mode");
-            response.put("dataSource", "FAKE_DATA");
+            response.put("alert", alertService.resolveAlert(id, auth != null ? auth.getName() : null));
+            response.put("message", "Alert resolved");
+            response.put("dataSource", "DATABASE");
             return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(409).body(error);
+        } catch (NoSuchElementException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(404).body(error);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("message", "Error resolving alert: " + e.getMessage());
-            return ResponseEntity.badRequest().body(error);
+            return ResponseEntity.status(500).body(error);
         }
     }
 
@@ -160,6 +222,90 @@ public class AlertController {
         }
     }
 
+    @GetMapping("/rules")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR')")
+    @Operation(summary = "List alert rules and the rule engine counters")
+    public ResponseEntity<?> getAlertRules() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("rules", alertRuleEngine.getRules());
+        response.put("engine", alertRuleEngine.getStats());
+        response.put("coalescer", alertCoalescer.getStats());
+        response.put("dataSource", "DATABASE");
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/rules")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Create an alert rule (THRESHOLD, DURATION, RATE_OF_CHANGE or N_OF_M; all devices when deviceTypeId is omitted)")
+    public ResponseEntity<?> createAlertRule(@RequestBody AlertRuleRequest request) {
+        try {
+            AlertRule rule = new AlertRule();
+            rule.setName(request.getName());
+            rule.setDeviceTypeId(request.getDeviceTypeId());
+            rule.setAlertType(request.getAlertType() != null ? Alert.AlertType.valueOf(request.getAlertType().toUpperCase()) : null);
+            rule.setThreshold(request.getThreshold());
+            rule.setAlertLevelId(request.getAlertLevelId());
+            if (request.getRuleKind() != null) {
+                rule.setRuleKind(AlertRule.Kind.valueOf(request.getRuleKind().toUpperCase()));
+            }
+            rule.setClearThreshold(request.getClearThreshold());
+            rule.setDurationSeconds(request.getDurationSeconds());
+            rule.setWindowSeconds(request.getWindowSeconds());
+            rule.setWindowSamples(request.getWindowSamples());
+            rule.setRequiredSamples(request.getRequiredSamples());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("rule", alertRuleEngine.createRule(rule));
+            response.put("engine", alertRuleEngine.getStats());
+            response.put("message", "Alert rule created and rules recompiled");
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", "Invalid alert rule: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @DeleteMapping("/rules/{ruleId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Deactivate an alert rule")
+    public ResponseEntity<?> deactivateAlertRule(@PathVariable Long ruleId) {
+        try {
+            alertRuleEngine.deactivateRule(ruleId);
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Alert rule deactivated");
+            response.put("engine", alertRuleEngine.getStats());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(404).body(error);
+        }
+    }
+
+    @PostMapping("/rules/reload")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Recompile alert rules from the database")
+    public ResponseEntity<?> reloadAlertRules() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("engine", alertRuleEngine.reload());
+        response.put("message", "Alert rules recompiled");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/incidents")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR') or hasRole('USER') or hasRole('VIEWER')")
+    @Operation(summary = "Get station incidents that group correlated alerts")
+    public ResponseEntity<?> getAlertIncidents(@RequestParam(defaultValue = "false") boolean open) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("incidents", open
+            ? alertIncidentRepository.findByClosedAtIsNullOrderByOpenedAtDesc()
+            : alertIncidentRepository.findTop50ByOrderByOpenedAtDesc());
+        response.put("coalescer", alertCoalescer.getStats());
+        response.put("dataSource", "DATABASE");
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/statistics")
     @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR') or hasRole('USER') or hasRole('VIEWER')")
     @Operation(summary = "Get alert statistics")
@@ -215,29 +361,33 @@ public class AlertController {
 
     @GetMapping("/unresolved")
     @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR') or hasRole('USER') or hasRole('VIEWER')")
-    @Operation(summary = "Get unresolved alerts with pagination")
+    @Operation(summary = "Get unresolved alerts, highest severity then oldest first, optionally by device, station or type")
     public ResponseEntity<?> getUnresolvedAlerts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) Long deviceId,
+            @RequestParam(required = false) Long stationId,
+            @RequestParam(required = false) String type) {
         try {
-            List<Alert> fakeAlerts = fakeDataService.getFakeAlerts();
-            List<Alert> unresolvedAlerts = fakeAlerts.stream()
-                .filter(alert -> alert.getResolvedAt() == null)
-                .collect(java.util.stream.Collectors.toList());
-            
-            // Simple pagination
-            int start = page * size;
-            int end = Math.min(start + size, unresolvedAlerts.size());
-            List<Alert> pagedAlerts = unresolvedAlerts.subList(start, end);
-            
+            if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+                Map<String, String> error = new HashMap<>();
+                error.put("message", "page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE);
+                return ResponseEntity.badRequest().body(error);
+            }
+            Alert.AlertType alertType = type != null ? Alert.AlertType.valueOf(type.toUpperCase()) : null;
+            List<OpenAlertEntry> alerts = alertService.getOpenAlerts(deviceId, stationId, alertType, null,
+                page * size, size);
+            int count = alertService.countOpenAlerts(deviceId, stationId, alertType, null);
+
             Map<String, Object> response = new HashMap<>();
-            response.put("alerts", pagedAlerts);
-            response.put("count", unresolvedAlerts.size());
+            response.put("alerts", alerts);
+            response.put("count", count);
             response.put("currentPage", page);
-            response.put("totalPages", (int) Math.ceil((double) unresolvedAlerts.size() / size));
-            response.put("dataSource", "FAKE_DATA");
-            response.put("message", "Using fake unresolved alerts");
-            
+            response.put("totalPages", (int) Math.ceil((double) count / size));
+            response.put("counts", alertService.getOpenAlertCounts());
+            response.put("dataSource", "MEMORY");
+            response.put("message", "Unresolved alerts from the in-memory open-alert index");
+
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
@@ -248,21 +398,18 @@ public class AlertController {
 
     @GetMapping("/critical")
     @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR') or hasRole('USER') or hasRole('VIEWER')")
-    @Operation(summary = "Get critical alerts")
-    public ResponseEntity<?> getCriticalAlerts() {
+    @Operation(summary = "Get unresolved alerts of CRITICAL severity, oldest first")
+    public ResponseEntity<?> getCriticalAlerts(@RequestParam(defaultValue = "100") int limit) {
         try {
-            List<Alert> fakeAlerts = fakeDataService.getFakeAlerts();
-            List<Alert> criticalAlerts = fakeAlerts.stream()
-                .filter(alert -> "CRITICAL".equals(alert.getAlertLevel().getName()) && alert.getResolvedAt() == null)
-                .collect(java.util.stream.Collectors.toList());
-            
+            int capped = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
             Map<String, Object> response = new HashMap<>();
-            response.put("criticalAlerts", criticalAlerts);
-            response.put("count", criticalAlerts.size());
+            response.put("criticalAlerts",
+                alertService.getOpenAlerts(null, null, null, AlertLevel.Severity.CRITICAL, 0, capped));
+            response.put("count", alertService.countOpenAlerts(null, null, null, AlertLevel.Severity.CRITICAL));
             response.put("lastUpdated", java.time.LocalDateTime.now());
-            response.put("dataSource", "FAKE_DATA");
-            response.put("message", "Using fake critical alerts");
-            
+            response.put("dataSource", "MEMORY");
+            response.put("message", "Critical alerts from the in-memory open-alert index");
+
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
@@ -271,28 +418,6 @@ public class AlertController {
         }
     }
 
-    // Helper method
-    private Alert createFakeAlertFromRequest(AlertCreateRequest request) {
-        Alert fakeAlert = new Alert();
-        fakeAlert.setId(System.currentTimeMillis());
-        fakeAlert.setTitle(request.getTitle());
-        fakeAlert.setDescription(request.getDescription());
-        if (request.getThresholdValue() != null) {
-            fakeAlert.setThresholdValue(new BigDecimal(request.getThresholdValue()));
-        }
-        if (request.getActualValue() != null) {
-            fakeAlert.setActualValue(new BigDecimal(request.getActualValue()));
-        }
-        fakeAlert.setCreatedAt(java.time.LocalDateTime.now());
-        
-        // Set fake relationships
-        if (request.getAlertType() != null) {
-            fakeAlert.setAlertType(Alert.AlertType.valueOf(request.getAlertType().toUpperCase()));
-        }
-        
-        return fakeAlert;
-    }
-
     // DTOs
     public static class AlertCreateRequest {
         private Long deviceId;
@@ -330,6 +455,53 @@ public class AlertController {
         public void setActualValue(String actualValue) { this.actualValue = actualValue; }
     }
 
+    public static class AlertRuleRequest {
+        private String name;
+        private Long deviceTypeId;
+        private String alertType;
+        private BigDecimal threshold;
+        private Long alertLevelId;
+        private String ruleKind;
+        private BigDecimal clearThreshold;
+        private Integer durationSeconds;
+        private Integer windowSeconds;
+        private Integer windowSamples;
+        private Integer requiredSamples;
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public Long getDeviceTypeId() { return deviceTypeId; }
+        public void setDeviceTypeId(Long deviceTypeId) { this.deviceTypeId = deviceTypeId; }
+
+        public String getAlertType() { return alertType; }
+        public void setAlertType(String alertType) { this.alertType = alertType; }
+
+        public BigDecimal getThreshold() { return threshold; }
+        public void setThreshold(BigDecimal threshold) { this.threshold = threshold; }
+
+        public Long getAlertLevelId() { return alertLevelId; }
+        public void setAlertLevelId(Long alertLevelId) { this.alertLevelId = alertLevelId; }
+
+        public String getRuleKind() { return ruleKind; }
+        public void setRuleKind(String ruleKind) { this.ruleKind = ruleKind; }
+
+        public BigDecimal getClearThreshold() { return clearThreshold; }
+        public void setClearThreshold(BigDecimal clearThreshold) { this.clearThreshold = clearThreshold; }
+
+        public Integer getDurationSeconds() { return durationSeconds; }
+        public void setDurationSeconds(Integer durationSeconds) { this.durationSeconds = durationSeconds; }
+
+        public Integer getWindowSeconds() { return windowSeconds; }
+        public void setWindowSeconds(Integer windowSeconds) { this.windowSeconds = windowSeconds; }
+
+        public Integer getWindowSamples() { return windowSamples; }
+        public void setWindowSamples(Integer windowSamples) { this.windowSamples = windowSamples; }
+
+        public Integer getRequiredSamples() { return requiredSamples; }
+        public void setRequiredSamples(Integer requiredSamples) { this.requiredSamples = requiredSamples; }
+    }
+
     public static class AlertUpdateRequest extends AlertCreateRequest {
         private String resolvedAt;
         private Long resolvedByUserId;
@@ -2,11 +2,14 @@ package com.example.electric_api.controller;
 
 import com.example.electric_api.entity.*;
 import com.example.electric_api.repository.*;
+import com.example.electric_api.service.CategoryService;
 import com.example.electric_api.service.FakeDataService;
+import com.example.electric_api.service.GridMapService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -41,17 +44,19 @@ public class CategoryController {
     @Autowired
     private FakeDataService fakeDataService;
 
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private GridMapService gridMapService;
+
     // ================== DEVICE TYPES ==================
     @GetMapping("/device-types")
     @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR') or hasRole('USER') or hasRole('VIEWER')")
     @Operation(summary = "Get all active device types")
     public ResponseEntity<?> getAllDeviceTypes() {
         try {
-            List<DeviceType> deviceTypes = deviceTypeRepository.findByIsActiveTrue();
-            Map<String, Object> response = new HashMap<>();
-            response.put("deviceTypes", deviceTypes);
-            response.put("dataSource", "DATABASE");
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(categoryService.getDeviceTypesJson());
         } catch (Exception e) {
             // Fallback to fake data
             System.out.println("⚠️ Database unavailable, using fake device types: " + e.getMessage());
@@ -83,6 +88,7 @@ public class CategoryController {
             deviceType.setIsActive(true);
 
             DeviceType saved = deviceTypeRepository.save(deviceType);
+            categoryService.evictAll();
             return ResponseEntity.ok(saved);
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
@@ -114,6 +120,7 @@ public class CategoryController {
             deviceType.setSpecifications(request.getSpecifications());
 
             DeviceType saved = deviceTypeRepository.save(deviceType);
+            categoryService.evictAll();
             return ResponseEntity.ok(saved);
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
@@ -133,6 +140,7 @@ public class CategoryController {
             
             deviceType.setIsActive(false);
             deviceTypeRepository.save(deviceType);
+            categoryService.evictAll();
             
             Map<String, String> response = new HashMap<>();
             response.put("message", "Device type deleted successfully");
@@ -151,11 +159,7 @@ public class CategoryController {
     @Operation(summary = "Get all active manufacturers")
     public ResponseEntity<?> getAllManufacturers() {
         try {
-            List<Manufacturer> manufacturers = manufacturerRepository.findByIsActiveTrue();
-            Map<String, Object> response = new HashMap<>();
-            response.put("manufacturers", manufacturers);
-            response.put("dataSource", "DATABASE");
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(categoryService.getManufacturersJson());
         } catch (Exception e) {
             System.out.println("⚠️ Database unavailable, using fake manufacturers: " + e.getMessage());
             List<Manufacturer> fakeManufacturers = fakeDataService.getFakeManufacturers();
@@ -187,6 +191,7 @@ public class CategoryController {
             manufacturer.setIsActive(true);
 
             Manufacturer saved = manufacturerRepository.save(manufacturer);
+            categoryService.evictAll();
             return ResponseEntity.ok(saved);
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
@@ -219,6 +224,7 @@ public class CategoryController {
             manufacturer.setContactInfo(request.getContactInfo());
 
             Manufacturer saved = manufacturerRepository.save(manufacturer);
+            categoryService.evictAll();
             return ResponseEntity.ok(saved);
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
@@ -238,6 +244,7 @@ public class CategoryController {
             
             manufacturer.setIsActive(false);
             manufacturerRepository.save(manufacturer);
+            categoryService.evictAll();
             
             Map<String, String> response = new HashMap<>();
             response.put("message", "Manufacturer deleted successfully");
@@ -256,11 +263,7 @@ public class CategoryController {
     @Operation(summary = "Get all active stations")
     public ResponseEntity<?> getAllStations() {
         try {
-            List<Station> stations = stationRepository.findByIsActiveTrue();
-            Map<String, Object> response = new HashMap<>();
-            response.put("stations", stations);
-            response.put("dataSource", "DATABASE");
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(categoryService.getStationsJson());
         } catch (Exception e) {
             System.out.println("⚠️ Database unavailable, using fake stations: " + e.getMessage());
             List<Station> fakeStations = fakeDataService.getFakeStations();
@@ -292,6 +295,8 @@ public class CategoryController {
             station.setIsActive(true);
 
             Station saved = stationRepository.save(station);
+            categoryService.evictAll();
+            gridMapService.invalidate();
             return ResponseEntity.ok(saved);
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
@@ -308,11 +313,7 @@ public class CategoryController {
     @Operation(summary = "Get all active alert levels")
     public ResponseEntity<?> getAllAlertLevels() {
         try {
-            List<AlertLevel> alertLevels = alertLevelRepository.findByIsActiveTrue();
-            Map<String, Object> response = new HashMap<>();
-            response.put("alertLevels", alertLevels);
-            response.put("dataSource", "DATABASE");
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(categoryService.getAlertLevelsJson());
         } catch (Exception e) {
             System.out.println("⚠️ Database unavailable, using fake alert levels: " + e.getMessage());
             List<AlertLevel> fakeAlertLevels = fakeDataService.getFakeAlertLevels();
@@ -344,6 +345,7 @@ public class CategoryController {
             alertLevel.setIsActive(true);
 
             AlertLevel saved = alertLevelRepository.save(alertLevel);
+            categoryService.evictAll();
             return ResponseEntity.ok(saved);
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
@@ -360,11 +362,7 @@ public class CategoryController {
     @Operation(summary = "Get all active alert statuses")
     public ResponseEntity<?> getAllAlertStatuses() {
         try {
-            List<AlertStatus> alertStatuses = alertStatusRepository.findByIsActiveTrue();
-            Map<String, Object> response = new HashMap<>();
-            response.put("alertStatuses", alertStatuses);
-            response.put("dataSource", "DATABASE");
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(categoryService.getAlertStatusesJson());
         } catch (Exception e) {
             System.out.println("⚠️ Database unavailable, using fake alert statuses: " + e.getMessage());
             List<AlertStatus> fakeAlertStatuses = fakeDataService.getFakeAlertStatuses();
@@ -395,6 +393,7 @@ public class CategoryController {
             alertStatus.setIsActive(true);
 
             AlertStatus saved = alertStatusRepository.save(alertStatus);
+            categoryService.evictAll();
             return ResponseEntity.ok(saved);
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
@@ -1,17 +1,20 @@
 package com.example.electric_api.controller;
 
-import com.example.electric_api.service.DashboardService;
-import com.example.electric_api.service.FakeDataService;
+import com.example.electric_api.service.DashboardSnapshotService;
+import com.example.electric_api.service.TelemetryPushHub;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -22,87 +25,87 @@ import java.util.Map;
 public class DashboardController {
 
     @Autowired
-    private DashboardService dashboardService;
+    private DashboardSnapshotService dashboardSnapshotService;
 
     @Autowired
-    private FakeDataService fakeDataService;
+    private TelemetryPushHub telemetryPushHub;
 
     @GetMapping("/overview")
     @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR') or hasRole('USER') or hasRole('VIEWER')")
     @Operation(summary = "Get dashboard overview with statistics and charts data")
-    public ResponseEntity<?> getOverview() {
-        try {
-            // Always use fake data for demo purposes
-            System.out.println("🎯 Generating comprehensive dashboard overview data");
-            
-            Map<String, Object> overview = fakeDataService.getDashboardOverview();
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("data", overview);
-            response.put("dataSource", "FAKE_DATA");
-            response.put("message", "Dashboard overview loaded successfully");
-            response.put("timestamp", java.time.LocalDateTime.now());
-            
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            System.out.println("❌ Error loading dashboard overview: " + e.getMessage());
-            
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "Failed to load dashboard overview");
-            errorResponse.put("message", e.getMessage());
-            errorResponse.put("dataSource", "ERROR");
-            
-            return ResponseEntity.status(500).body(errorResponse);
-        }
+    public ResponseEntity<?> getOverview(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return serveSnapshot(DashboardSnapshotService.OVERVIEW, ifNoneMatch, "dashboard overview");
     }
 
     @GetMapping("/statistics")
     @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR') or hasRole('USER') or hasRole('VIEWER')")
     @Operation(summary = "Get detailed device statistics")
-    public ResponseEntity<?> getStatistics() {
-        try {
-            Map<String, Object> statistics = fakeDataService.getFakeStatistics();
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("statistics", statistics);
-            response.put("dataSource", "FAKE_DATA");
-            response.put("message", "Statistics loaded successfully");
-            
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            System.out.println("❌ Error loading statistics: " + e.getMessage());
-            
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "Failed to load statistics");
-            errorResponse.put("message", e.getMessage());
-            errorResponse.put("dataSource", "ERROR");
-            
-            return ResponseEntity.status(500).body(errorResponse);
-        }
+    public ResponseEntity<?> getStatistics(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return serveSnapshot(DashboardSnapshotService.STATISTICS, ifNoneMatch, "statistics");
     }
 
     @GetMapping("/alerts/summary")
     @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR') or hasRole('USER') or hasRole('VIEWER')")
     @Operation(summary = "Get alerts summary for dashboard")
-    public ResponseEntity<?> getAlertsSummary() {
+    public ResponseEntity<?> getAlertsSummary(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return serveSnapshot(DashboardSnapshotService.ALERTS_SUMMARY, ifNoneMatch, "alerts summary");
+    }
+
+    @GetMapping("/live/stats")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR')")
+    @Operation(summary = "Get telemetry push channel and dashboard snapshot counters")
+    public ResponseEntity<?> getLiveStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("push", telemetryPushHub.getStats());
+        response.put("snapshot", dashboardSnapshotService.getStats());
+        response.put("dataSource", "MEMORY");
+        response.put("message", "Push channel statistics loaded successfully");
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Serves a precomputed section: 304 when the client already holds its current ETag, otherwise
+     * the serialized body. no-cache makes browsers revalidate instead of reusing a stale copy.
+     */
+    private ResponseEntity<?> serveSnapshot(String name, String ifNoneMatch, String what) {
         try {
-            Map<String, Object> alertsSummary = fakeDataService.getFakeAlertsSummary();
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("alerts", alertsSummary);
-            response.put("dataSource", "FAKE_DATA");
-            response.put("message", "Alerts summary loaded successfully");
-            
-            return ResponseEntity.ok(response);
+            DashboardSnapshotService.Section section = dashboardSnapshotService.getSection(name);
+            if (etagMatches(ifNoneMatch, section.getEtag())) {
+                dashboardSnapshotService.recordNotModified();
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(section.getEtag())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+            }
+            return ResponseEntity.ok()
+                .eTag(section.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(section.getBody());
         } catch (Exception e) {
-            System.out.println("❌ Error loading alerts summary: " + e.getMessage());
-            
+            System.out.println("❌ Error loading " + what + ": " + e.getMessage());
+
             Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "Failed to load alerts summary");
+            errorResponse.put("error", "Failed to load " + what);
             errorResponse.put("message", e.getMessage());
             errorResponse.put("dataSource", "ERROR");
-            
+
             return ResponseEntity.status(500).body(errorResponse);
         }
     }
-} 
\ No newline at end of file
+
+    /** If-None-Match check, also used for the grid map tiles. */
+    static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            // If-None-Match uses weak comparison, so W/"x" matches "x"
+            if (tag.equals("*") || tag.equals(etag) || (tag.startsWith("W/") && tag.substring(2).equals(etag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,20 +1,37 @@
 package com.example.electric_api.controller;
 
+import com.example.electric_api.config.WebMvcConfig;
+import com.example.electric_api.dto.DeviceListItem;
+import com.example.electric_api.dto.KeysetPage;
+import com.example.electric_api.dto.TelemetryReading;
 import com.example.electric_api.entity.Device;
+import com.example.electric_api.service.DeviceDataExportService;
 import com.example.electric_api.service.DeviceService;
 import com.example.electric_api.service.FakeDataService;
+import com.example.electric_api.service.TelemetryFrameCodec;
+import com.example.electric_api.service.TelemetryIngestService;
+import com.example.electric_api.service.TelemetryPartitionManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,12 +43,30 @@ import java.util.Map;
 @SecurityRequirement(name = "Bearer Authentication")
 public class DeviceController {
 
+    private static final int MAX_LATEST_IDS = 1000;
+    private static final int MAX_PAGE_SIZE = 500;
+
     @Autowired
     private DeviceService deviceService;
 
     @Autowired
     private FakeDataService fakeDataService;
 
+    @Autowired
+    private TelemetryIngestService telemetryIngestService;
+
+    @Autowired
+    private DeviceDataExportService deviceDataExportService;
+
+    @Autowired
+    private TelemetryPartitionManager telemetryPartitionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.telemetry.export.timeout-ms:1800000}")
+    private long exportTimeoutMs;
+
     @GetMapping
     @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR') or hasRole('USER') or hasRole('VIEWER')")
     @Operation(summary = "Get all devices with pagination and filtering")
@@ -41,9 +76,31 @@ public class DeviceController {
             @RequestParam(required = false) String search,
             @RequestParam(required = false) String status,
             @RequestParam(required = false) Long stationId,
-            @RequestParam(required = false) Long deviceTypeId) {
+            @RequestParam(required = false) Long deviceTypeId,
+            @RequestParam(required = false) String cursor) {
         
         try {
+            // Keyset paging over the database; an empty cursor asks for the first page
+            if (cursor != null) {
+                if (size < 1 || size > MAX_PAGE_SIZE) {
+                    Map<String, Object> errorResponse = new HashMap<>();
+                    errorResponse.put("error", "Invalid page size");
+                    errorResponse.put("message", "size must be between 1 and " + MAX_PAGE_SIZE);
+                    return ResponseEntity.badRequest().body(errorResponse);
+                }
+                KeysetPage<DeviceListItem> result = deviceService.listDevices(search,
+                    status != null ? Device.DeviceStatus.valueOf(status.toUpperCase()) : null, stationId, deviceTypeId,
+                    cursor, size);
+                Map<String, Object> response = new HashMap<>();
+                response.put("devices", result.getItems());
+                response.put("size", result.getItems().size());
+                response.put("nextCursor", result.getNextCursor());
+                response.put("hasNext", result.hasNext());
+                response.put("paging", "KEYSET");
+                response.put("dataSource", "DATABASE");
+                return ResponseEntity.ok(response);
+            }
+
             // Always use fake data for demo purposes
             System.out.println("🎯 Using comprehensive fake device data for demo");
             
@@ -92,6 +149,11 @@ public class DeviceController {
             response.put("message", "Comprehensive device data loaded successfully");
             
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Invalid request");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
         } catch (Exception e) {
             System.out.println("❌ Error loading device data: " + e.getMessage());
             
@@ -193,6 +255,29 @@ public class DeviceController {
         }
     }
 
+    @GetMapping("/latest")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR') or hasRole('USER') or hasRole('VIEWER')")
+    @Operation(summary = "Get the latest reading and status for a list of devices or a whole station in one call")
+    public ResponseEntity<?> getLatestValues(@RequestParam(required = false) List<Long> ids,
+                                             @RequestParam(required = false) Long stationId) {
+        if ((ids == null || ids.isEmpty()) == (stationId == null)) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Invalid latest-value request");
+            errorResponse.put("message", "Provide either ids or stationId");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        if (ids != null && ids.size() > MAX_LATEST_IDS) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Invalid latest-value request");
+            errorResponse.put("message", "At most " + MAX_LATEST_IDS + " ids per request");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+
+        Map<String, Object> latest = deviceService.getLatestValues(ids, stationId);
+        latest.put("dataSource", "DATABASE");
+        return ResponseEntity.ok(latest);
+    }
+
     @GetMapping("/{id}/data")
     @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR') or hasRole('USER') or hasRole('VIEWER')")
     @Operation(summary = "Get real-time data for a device by its ID")
@@ -227,13 +312,22 @@ public class DeviceController {
     public ResponseEntity<?> getDeviceDataHistory(@PathVariable Long id,
                                                  @RequestParam(required = false) String startDate,
                                                  @RequestParam(required = false) String endDate,
+                                                 @RequestParam(required = false) Integer points,
+                                                 @RequestParam(required = false) Integer maxPoints,
+                                                 @RequestParam(defaultValue = "power") String metric,
                                                  @RequestParam(defaultValue = "0") int page,
                                                  @RequestParam(defaultValue = "50") int size) {
         try {
             Pageable pageable = PageRequest.of(page, size);
-            Map<String, Object> history = deviceService.getDeviceDataHistory(id, startDate, endDate, pageable);
+            Map<String, Object> history = deviceService.getDeviceDataHistory(id, startDate, endDate, points,
+                maxPoints, metric, pageable);
             history.put("dataSource", "DATABASE");
             return ResponseEntity.ok(history);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Invalid history request");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
         } catch (Exception e) {
             // Use fake historical data
             Device fakeDevice = fakeDataService.getFakeDeviceById(id);
@@ -252,12 +346,149 @@ public class DeviceController {
         }
     }
 
+    @GetMapping(value = "/{id}/data/history", produces = {"application/x-ndjson", "text/csv"})
+    @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR') or hasRole('USER') or hasRole('VIEWER')")
+    @Operation(summary = "Export the full stored history of a device as NDJSON or CSV (streamed, no paging)")
+    public ResponseEntity<StreamingResponseBody> exportDeviceDataHistory(@PathVariable Long id,
+                                                                         @RequestParam(required = false) String startDate,
+                                                                         @RequestParam(required = false) String endDate,
+                                                                         @RequestHeader(HttpHeaders.ACCEPT) String accept,
+                                                                         HttpServletRequest request) {
+        try {
+            deviceService.getDeviceById(id);
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // Validated before streaming starts; the error body is JSON whatever format was asked for
+        LocalDateTime start;
+        LocalDateTime end;
+        try {
+            start = DeviceService.parseHistoryStart(startDate);
+            end = DeviceService.parseHistoryEnd(endDate);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Invalid history request");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                .body(out -> objectMapper.writeValue(out, errorResponse));
+        }
+        boolean csv = accept.contains("text/csv");
+        DeviceDataExportService.Format format = csv ? DeviceDataExportService.Format.CSV : DeviceDataExportService.Format.NDJSON;
+
+        // Rows are written to the response as they are read; nothing is collected in memory
+        StreamingResponseBody body = out -> {
+            long started = System.currentTimeMillis();
+            long rows = deviceDataExportService.export(id, start, end, format, out);
+            System.out.println("📤 Exported " + rows + " readings for device " + id + " as " + format +
+                " in " + (System.currentTimeMillis() - started) + "ms");
+        };
+
+        // The export can run for minutes; only this request gets the long async timeout
+        request.setAttribute(WebMvcConfig.ASYNC_TIMEOUT_ATTRIBUTE, exportTimeoutMs);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(csv ? MediaType.parseMediaType("text/csv") : MediaType.parseMediaType("application/x-ndjson"));
+        if (csv) {
+            response.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"device-" + id + "-history.csv\"");
+        }
+        return response.body(body);
+    }
+
+    @PostMapping("/data:batch")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR')")
+    @Operation(summary = "Ingest a batch of telemetry readings from field gateways")
+    public ResponseEntity<?> ingestDeviceData(@RequestBody List<TelemetryReading> readings) {
+        try {
+            Map<String, Object> result = telemetryIngestService.ingest(readings);
+            result.put("dataSource", "DATABASE");
+
+            if (Boolean.TRUE.equals(result.get("throttled"))) {
+                // Buffer is full: tell the gateway to back off instead of holding this Tomcat thread
+                result.put("message", "Telemetry buffer is full - retry later");
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(result.get("retryAfterSeconds")))
+                    .body(result);
+            }
+
+            result.put("message", "Telemetry batch queued for storage");
+            return ResponseEntity.accepted().body(result);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Invalid telemetry batch");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        } catch (Exception e) {
+            System.out.println("❌ Error ingesting telemetry batch: " + e.getMessage());
+
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to ingest telemetry batch");
+            errorResponse.put("message", e.getMessage());
+            errorResponse.put("dataSource", "ERROR");
+            return ResponseEntity.status(500).body(errorResponse);
+        }
+    }
+
+    @PostMapping(value = "/data:batch", consumes = TelemetryFrameCodec.MEDIA_TYPE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR')")
+    @Operation(summary = "Ingest a batch of telemetry readings encoded as a binary telemetry frame")
+    public ResponseEntity<?> ingestDeviceDataFrame(@RequestBody byte[] frame) {
+        List<TelemetryReading> readings;
+        try {
+            readings = TelemetryFrameCodec.decodeReadings(ByteBuffer.wrap(frame));
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Invalid telemetry frame");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        return ingestDeviceData(readings);
+    }
+
+    @GetMapping("/data/pipeline")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR')")
+    @Operation(summary = "Get telemetry write pipeline metrics (queue depth, drain latency, batch sizes)")
+    public ResponseEntity<?> getPipelineMetrics() {
+        try {
+            return ResponseEntity.ok(telemetryIngestService.getPipelineMetrics());
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to load pipeline metrics");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.status(500).body(errorResponse);
+        }
+    }
+
+    @GetMapping("/data/partitions")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get telemetry partition and retention status")
+    public ResponseEntity<?> getPartitionStatus() {
+        try {
+            return ResponseEntity.ok(telemetryPartitionManager.getStatus());
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to load partition status");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.status(500).body(errorResponse);
+        }
+    }
+
+    @PostMapping("/data/partitions/rotate")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Create upcoming telemetry partitions and drop expired ones now")
+    public ResponseEntity<?> rotatePartitions() {
+        Map<String, Object> result = telemetryPartitionManager.rotate();
+        if (result.containsKey("error")) {
+            return ResponseEntity.status(500).body(result);
+        }
+        return ResponseEntity.ok(result);
+    }
+
     @GetMapping("/statistics")
     @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR') or hasRole('USER') or hasRole('VIEWER')")
     @Operation(summary = "Get device statistics")
     public ResponseEntity<?> getDeviceStatistics() {
         try {
-            Map<String, Object> stats = deviceService.getDeviceStatistics();
+            Map<String, Object> stats = new HashMap<>(deviceService.getDeviceStatistics());
             stats.put("dataSource", "DATABASE");
             return ResponseEntity.ok(stats);
         } catch (Exception e) {
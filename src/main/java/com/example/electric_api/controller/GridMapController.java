@@ -2,17 +2,31 @@ package com.example.electric_api.controller;
 
 import com.example.electric_api.dto.PowerFacility;
 import com.example.electric_api.dto.PowerLine;
-import com.example.electric_api.service.FakeDataService;
+import com.example.electric_api.service.ContingencyAnalysisService;
+import com.example.electric_api.service.DeviceStatusCounters;
+import com.example.electric_api.service.GridMapService;
+import com.example.electric_api.service.GridTileService;
+import com.example.electric_api.service.GridTopologyService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/grid-map")
@@ -20,18 +34,42 @@ import java.util.Map;
 @Tag(name = "Grid Map", description = "APIs for power grid map visualization")
 public class GridMapController {
 
+    private static final Set<String> DEVICE_ROLES = Set.of("ROLE_ADMIN", "ROLE_OPERATOR", "ROLE_USER");
+
+    @Autowired
+    private GridMapService gridMapService;
+
+    @Autowired
+    private GridTileService gridTileService;
+
     @Autowired
-    private FakeDataService fakeDataService;
+    private GridTopologyService gridTopologyService;
+
+    @Autowired
+    private ContingencyAnalysisService contingencyAnalysisService;
+
+    @Autowired
+    private DeviceStatusCounters deviceStatusCounters;
+
+    @Value("${app.grid-map.tiles.max-age-seconds:60}")
+    private long tileMaxAgeSeconds;
 
     @GetMapping
     @PreAuthorize("permitAll()")
-    @Operation(summary = "Get all power grid data for map visualization")
-    public ResponseEntity<?> getGridMapData() {
+    @Operation(summary = "Get all power grid data for map visualization, or only the viewport given by bbox and zoom")
+    public ResponseEntity<?> getGridMapData(@RequestParam(required = false) String bbox,
+                                            @RequestParam(required = false) Integer zoom) {
+        if (bbox != null) {
+            return getViewport(bbox, zoom);
+        }
+        if (zoom != null && (zoom < 0 || zoom > GridMapService.MAX_ZOOM)) {
+            return invalidZoom();
+        }
         try {
             System.out.println("🗺️ Loading power grid map data...");
             
-            List<PowerFacility> facilities = fakeDataService.getFakePowerFacilities();
-            List<PowerLine> lines = fakeDataService.getFakePowerLines();
+            List<PowerFacility> facilities = gridMapService.getFacilities();
+            List<PowerLine> lines = zoom != null ? gridMapService.getLines(zoom) : gridMapService.getLines();
             
             Map<String, Object> response = new HashMap<>();
             response.put("facilities", facilities);
@@ -56,12 +94,196 @@ public class GridMapController {
         }
     }
 
+    private ResponseEntity<?> getViewport(String bbox, Integer zoom) {
+        double[] box;
+        try {
+            box = parseBbox(bbox);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+        int level = zoom != null ? zoom : GridMapService.MAX_ZOOM;
+        if (level < 0 || level > GridMapService.MAX_ZOOM) {
+            return invalidZoom();
+        }
+
+        try {
+            Map<String, Object> response = gridMapService.getViewport(box[0], box[1], box[2], box[3], level,
+                canSeeDevices());
+            response.put("dataSource", "MEMORY");
+            response.put("message", "Power grid viewport loaded successfully");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            System.out.println("❌ Error loading grid map viewport: " + e.getMessage());
+
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to load grid map viewport");
+            errorResponse.put("message", e.getMessage());
+            errorResponse.put("dataSource", "ERROR");
+
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    // Same roles as /api/devices/**; anonymous callers only get facilities and lines
+    private static boolean canSeeDevices() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated()) {
+            return false;
+        }
+        for (GrantedAuthority authority : auth.getAuthorities()) {
+            if (DEVICE_ROLES.contains(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ResponseEntity<?> invalidZoom() {
+        Map<String, Object> error = new HashMap<>();
+        error.put("message", "zoom must be between 0 and " + GridMapService.MAX_ZOOM);
+        return ResponseEntity.badRequest().body(error);
+    }
+
+    /** west,south,east,north in degrees; west may exceed east for a box across the antimeridian. */
+    private static double[] parseBbox(String bbox) {
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("bbox must be west,south,east,north");
+        }
+        double[] box = new double[4];
+        for (int i = 0; i < 4; i++) {
+            try {
+                box[i] = Double.parseDouble(parts[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("bbox must be west,south,east,north");
+            }
+        }
+        if (!(box[0] >= -180 && box[0] <= 180 && box[2] >= -180 && box[2] <= 180)) {
+            throw new IllegalArgumentException("bbox longitudes must be between -180 and 180");
+        }
+        if (!(box[1] >= -90 && box[3] <= 90 && box[1] <= box[3])) {
+            throw new IllegalArgumentException("bbox latitudes must be between -90 and 90 with south <= north");
+        }
+        return box;
+    }
+
+    @GetMapping("/tiles/{z}/{x}/{y}.mvt")
+    @PreAuthorize("permitAll()")
+    @Operation(summary = "Get a Mapbox Vector Tile with the facilities and power lines of tile z/x/y")
+    public ResponseEntity<?> getTile(@PathVariable int z, @PathVariable int x, @PathVariable int y,
+                                     @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        if (z < 0 || z > GridMapService.MAX_ZOOM || x < 0 || y < 0 || x >= (1 << z) || y >= (1 << z)) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("message", "Tile " + z + "/" + x + "/" + y + " does not exist");
+            return ResponseEntity.badRequest().body(error);
+        }
+        try {
+            GridTileService.Tile tile = gridTileService.getTile(z, x, y);
+            CacheControl cacheControl = CacheControl.maxAge(tileMaxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+            if (DashboardController.etagMatches(ifNoneMatch, tile.getEtag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tile.getEtag()).cacheControl(cacheControl).build();
+            }
+            return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(GridTileService.MEDIA_TYPE))
+                .eTag(tile.getEtag())
+                .cacheControl(cacheControl)
+                .body(tile.getBytes());
+        } catch (Exception e) {
+            System.out.println("❌ Error encoding grid map tile " + z + "/" + x + "/" + y + ": " + e.getMessage());
+
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to encode grid map tile");
+            errorResponse.put("message", e.getMessage());
+            errorResponse.put("dataSource", "ERROR");
+
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    @GetMapping("/topology")
+    @PreAuthorize("permitAll()")
+    @Operation(summary = "Get grid topology summary: components and de-energized facilities")
+    public ResponseEntity<?> getTopology() {
+        Map<String, Object> response = gridTopologyService.getSummary();
+        response.put("dataSource", "MEMORY");
+        response.put("message", "Grid topology loaded successfully");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/topology/facilities/{facilityId}/downstream")
+    @PreAuthorize("permitAll()")
+    @Operation(summary = "Get the facilities that lose supply if this facility goes out of service")
+    public ResponseEntity<?> getDownstream(@PathVariable String facilityId) {
+        Map<String, Object> response = gridTopologyService.getDownstream(facilityId);
+        if (response == null) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("message", "Facility not found with id: " + facilityId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+        response.put("dataSource", "MEMORY");
+        response.put("message", "Downstream facilities computed successfully");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/topology/lines/{lineId}/outage")
+    @PreAuthorize("permitAll()")
+    @Operation(summary = "Get the facilities islanded if this line goes out of service")
+    public ResponseEntity<?> getLineOutage(@PathVariable String lineId) {
+        Map<String, Object> response = gridTopologyService.getLineOutage(lineId);
+        if (response == null) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("message", "Power line not found with id: " + lineId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+        response.put("dataSource", "MEMORY");
+        response.put("message", "Line outage impact computed successfully");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/topology/contingency")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('OPERATOR')")
+    @SecurityRequirement(name = "Bearer Authentication")
+    @Operation(summary = "Get the latest N-1 contingency analysis (each line and facility out in turn), starting one when the topology changed")
+    public ResponseEntity<?> getContingencyAnalysis(@RequestParam(defaultValue = "50") int limit) {
+        if (limit < 1 || limit > contingencyAnalysisService.getMaxResults()) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("message", "limit must be between 1 and " + contingencyAnalysisService.getMaxResults());
+            return ResponseEntity.badRequest().body(error);
+        }
+        try {
+            Map<String, Object> response = contingencyAnalysisService.getAnalysis(limit);
+            if (response == null) {
+                Map<String, Object> accepted = new HashMap<>();
+                accepted.put("analysisRunning", true);
+                accepted.put("dataSource", "MEMORY");
+                accepted.put("message", "Contingency analysis started; retry shortly for the result");
+                return ResponseEntity.accepted().body(accepted);
+            }
+            response.put("dataSource", "MEMORY");
+            response.put("message", Boolean.TRUE.equals(response.get("stale"))
+                ? "Previous contingency analysis; a new one is running for the current topology"
+                : "Contingency analysis completed successfully");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            System.out.println("❌ Error running contingency analysis: " + e.getMessage());
+
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to run contingency analysis");
+            errorResponse.put("message", e.getMessage());
+            errorResponse.put("dataSource", "ERROR");
+
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
     @GetMapping("/facilities")
     @PreAuthorize("permitAll()")
     @Operation(summary = "Get all power facilities for map markers")
     public ResponseEntity<?> getPowerFacilities() {
         try {
-            List<PowerFacility> facilities = fakeDataService.getFakePowerFacilities();
+            List<PowerFacility> facilities = gridMapService.getFacilities();
             
             Map<String, Object> response = new HashMap<>();
             response.put("facilities", facilities);
@@ -82,10 +304,13 @@ public class GridMapController {
 
     @GetMapping("/lines")
     @PreAuthorize("permitAll()")
-    @Operation(summary = "Get all power transmission and distribution lines")
-    public ResponseEntity<?> getPowerLines() {
+    @Operation(summary = "Get all power transmission and distribution lines, simplified for zoom if given")
+    public ResponseEntity<?> getPowerLines(@RequestParam(required = false) Integer zoom) {
+        if (zoom != null && (zoom < 0 || zoom > GridMapService.MAX_ZOOM)) {
+            return invalidZoom();
+        }
         try {
-            List<PowerLine> lines = fakeDataService.getFakePowerLines();
+            List<PowerLine> lines = zoom != null ? gridMapService.getLines(zoom) : gridMapService.getLines();
             
             Map<String, Object> response = new HashMap<>();
             response.put("powerLines", lines);
@@ -109,8 +334,8 @@ public class GridMapController {
     @Operation(summary = "Get grid map statistics")
     public ResponseEntity<?> getGridMapStatistics() {
         try {
-            List<PowerFacility> facilities = fakeDataService.getFakePowerFacilities();
-            List<PowerLine> lines = fakeDataService.getFakePowerLines();
+            List<PowerFacility> facilities = gridMapService.getFacilities();
+            List<PowerLine> lines = gridMapService.getLines();
             
             // Calculate statistics
             long onlineFacilities = facilities.stream()
@@ -141,6 +366,10 @@ public class GridMapController {
             statistics.put("totalLines", lines.size());
             statistics.put("activeLines", activeLines);
             statistics.put("totalCapacity", totalCapacity);
+            if (deviceStatusCounters.isReady()) {
+                statistics.put("totalDevices", deviceStatusCounters.getTotal());
+                statistics.put("deviceStatusDistribution", deviceStatusCounters.getStatusCounts());
+            }
             statistics.put("dataSource", "FAKE_DATA");
             
             return ResponseEntity.ok(statistics);
@@ -0,0 +1,55 @@
+package com.example.electric_api.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+@RestController
+@RequestMapping("/api/system")
+@Tag(name = "System", description = "APIs for system diagnostics")
+@SecurityRequirement(name = "Bearer Authentication")
+public class SystemController {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @GetMapping("/caches")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get cache sizes, hit rates and load counts")
+    public ResponseEntity<?> getCacheStats() {
+        Map<String, Object> caches = new TreeMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (!(cache instanceof CaffeineCache caffeineCache)) {
+                continue;
+            }
+            CacheStats stats = caffeineCache.getNativeCache().stats();
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("size", caffeineCache.getNativeCache().estimatedSize());
+            entry.put("hits", stats.hitCount());
+            entry.put("misses", stats.missCount());
+            entry.put("hitRate", stats.hitRate());
+            entry.put("loads", stats.loadCount());
+            entry.put("evictions", stats.evictionCount());
+            caches.put(name, entry);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("caches", caches);
+        response.put("dataSource", "MEMORY");
+        response.put("message", "Cache statistics loaded successfully");
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.electric_api.controller;
+
+import com.example.electric_api.service.TelemetryPushHub;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Push channel at /ws/telemetry. Clients send
+ * {@code {"action":"subscribe"|"unsubscribe","deviceIds":[..],"stationIds":[..]}} and receive
+ * {@code {"type":"telemetry","devices":[..]}} messages with the latest value of each changed device,
+ * or binary TelemetryFrameCodec frames when connected with {@code ?format=binary}. Control
+ * replies are always JSON text.
+ */
+@Component
+public class TelemetryWebSocketHandler extends TextWebSocketHandler {
+
+    @Autowired
+    private TelemetryPushHub telemetryPushHub;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        String format = session.getUri() != null
+            ? UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst("format") : null;
+        if (!telemetryPushHub.register(session, "binary".equalsIgnoreCase(format))) {
+            session.close(CloseStatus.SERVICE_OVERLOAD.withReason("Too many telemetry subscribers"));
+        }
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        Map<String, Object> reply = new HashMap<>();
+        try {
+            JsonNode request = objectMapper.readTree(message.getPayload());
+            String action = request.path("action").asText();
+            List<Long> deviceIds = ids(request.path("deviceIds"));
+            List<Long> stationIds = ids(request.path("stationIds"));
+
+            Map<String, Object> subscriptions;
+            if ("subscribe".equals(action)) {
+                subscriptions = telemetryPushHub.subscribe(session, deviceIds, stationIds);
+            } else if ("unsubscribe".equals(action)) {
+                subscriptions = telemetryPushHub.unsubscribe(session, deviceIds, stationIds);
+            } else {
+                throw new IllegalArgumentException("action must be subscribe or unsubscribe");
+            }
+            reply.put("type", "subscribed");
+            reply.put("subscriptions", subscriptions);
+        } catch (Exception e) {
+            reply.put("type", "error");
+            reply.put("message", e.getMessage());
+        }
+        telemetryPushHub.sendControl(session, reply);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        telemetryPushHub.unregister(session);
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        telemetryPushHub.unregister(session);
+    }
+
+    private static List<Long> ids(JsonNode node) {
+        List<Long> ids = new ArrayList<>();
+        if (node.isArray()) {
+            for (JsonNode id : node) {
+                if (!id.canConvertToLong()) {
+                    throw new IllegalArgumentException("ids must be numbers");
+                }
+                ids.add(id.asLong());
+            }
+        }
+        return ids;
+    }
+}
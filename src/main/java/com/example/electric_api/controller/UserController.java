@@ -1,5 +1,6 @@
 package com.example.electric_api.controller;
 
+import com.example.electric_api.dto.KeysetPage;
 import com.example.electric_api.dto.RegisterRequest;
 import com.example.electric_api.entity.LoginHistory;
 import com.example.electric_api.entity.User;
@@ -32,6 +33,8 @@ import java.util.Map;
 @SecurityRequirement(name = "Bearer Authentication")
 public class UserController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
     @Autowired
     private UserService userService;
 
@@ -46,8 +49,32 @@ public class UserController {
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String search,
             @RequestParam(required = false) String role,
-            @RequestParam(required = false) Boolean active) {
+            @RequestParam(required = false) Boolean active,
+            @RequestParam(required = false) String cursor) {
         
+        // Keyset paging; an empty cursor asks for the first page
+        if (cursor != null) {
+            try {
+                if (size < 1 || size > MAX_PAGE_SIZE) {
+                    throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE);
+                }
+                KeysetPage<User> result = userService.listUsers(search,
+                    role != null ? User.Role.valueOf(role.toUpperCase()) : null, active, cursor, size);
+                Map<String, Object> response = new HashMap<>();
+                response.put("users", result.getItems());
+                response.put("size", result.getItems().size());
+                response.put("nextCursor", result.getNextCursor());
+                response.put("hasNext", result.hasNext());
+                response.put("paging", "KEYSET");
+                response.put("dataSource", "DATABASE");
+                return ResponseEntity.ok(response);
+            } catch (IllegalArgumentException e) {
+                Map<String, String> error = new HashMap<>();
+                error.put("message", e.getMessage());
+                return ResponseEntity.badRequest().body(error);
+            }
+        }
+
         try {
             // Try database first
             List<User> users;
@@ -0,0 +1,68 @@
+package com.example.electric_api.dto;
+
+import com.example.electric_api.entity.Alert;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/** Alert row for listings, read with a JPQL constructor expression instead of loading the entity graph. */
+public class AlertListItem {
+    private final Long id;
+    private final Long deviceId;
+    private final Long alertLevelId;
+    private final String alertLevel;
+    private final String alertStatus;
+    private final String title;
+    private final Alert.AlertType alertType;
+    private final BigDecimal thresholdValue;
+    private final BigDecimal actualValue;
+    private final Integer occurrenceCount;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime resolvedAt;
+    private final Long incidentId;
+
+    public AlertListItem(Long id, Long deviceId, Long alertLevelId, String alertLevel, String alertStatus, String title,
+                         Alert.AlertType alertType, BigDecimal thresholdValue, BigDecimal actualValue,
+                         Integer occurrenceCount, LocalDateTime createdAt, LocalDateTime resolvedAt, Long incidentId) {
+        this.id = id;
+        this.deviceId = deviceId;
+        this.alertLevelId = alertLevelId;
+        this.alertLevel = alertLevel;
+        this.alertStatus = alertStatus;
+        this.title = title;
+        this.alertType = alertType;
+        this.thresholdValue = thresholdValue;
+        this.actualValue = actualValue;
+        this.occurrenceCount = occurrenceCount;
+        this.createdAt = createdAt;
+        this.resolvedAt = resolvedAt;
+        this.incidentId = incidentId;
+    }
+
+    // Getters
+    public Long getId() { return id; }
+
+    public Long getDeviceId() { return deviceId; }
+
+    public Long getAlertLevelId() { return alertLevelId; }
+
+    public String getAlertLevel() { return alertLevel; }
+
+    public String getAlertStatus() { return alertStatus; }
+
+    public String getTitle() { return title; }
+
+    public Alert.AlertType getAlertType() { return alertType; }
+
+    public BigDecimal getThresholdValue() { return thresholdValue; }
+
+    public BigDecimal getActualValue() { return actualValue; }
+
+    public Integer getOccurrenceCount() { return occurrenceCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public LocalDateTime getResolvedAt() { return resolvedAt; }
+
+    public Long getIncidentId() { return incidentId; }
+}
@@ -0,0 +1,29 @@
+package com.example.electric_api.dto;
+
+import com.example.electric_api.entity.Device;
+
+/**
+ * One row of the grouped device count: active devices with the same status, station and type.
+ */
+public class DeviceCountRow {
+    private final Device.DeviceStatus status;
+    private final Long stationId;
+    private final Long deviceTypeId;
+    private final long count;
+
+    public DeviceCountRow(Device.DeviceStatus status, Long stationId, Long deviceTypeId, long count) {
+        this.status = status;
+        this.stationId = stationId;
+        this.deviceTypeId = deviceTypeId;
+        this.count = count;
+    }
+
+    // Getters
+    public Device.DeviceStatus getStatus() { return status; }
+
+    public Long getStationId() { return stationId; }
+
+    public Long getDeviceTypeId() { return deviceTypeId; }
+
+    public long getCount() { return count; }
+}
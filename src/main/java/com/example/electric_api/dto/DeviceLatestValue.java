@@ -0,0 +1,80 @@
+package com.example.electric_api.dto;
+
+import com.example.electric_api.entity.Device;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+
+/**
+ * Latest known reading and status of one device. Immutable so the cache can swap entries
+ * without locking; a device that never reported has a null timestamp and null values.
+ */
+public class DeviceLatestValue {
+    private final Long deviceId;
+    private final Long stationId;
+    private final Device.DeviceStatus status;
+    private final long timestampMillis;
+    private final double voltage;
+    private final double current;
+    private final double power;
+    private final double frequency;
+    private final double temperature;
+
+    public DeviceLatestValue(Long deviceId, Long stationId, Device.DeviceStatus status) {
+        this(deviceId, stationId, status, Long.MIN_VALUE, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    public DeviceLatestValue(Long deviceId, Long stationId, Device.DeviceStatus status, long timestampMillis,
+                             double voltage, double current, double power, double frequency, double temperature) {
+        this.deviceId = deviceId;
+        this.stationId = stationId;
+        this.status = status;
+        this.timestampMillis = timestampMillis;
+        this.voltage = voltage;
+        this.current = current;
+        this.power = power;
+        this.frequency = frequency;
+        this.temperature = temperature;
+    }
+
+    /** Same reading with different device metadata. */
+    public DeviceLatestValue withDevice(Long stationId, Device.DeviceStatus status) {
+        return new DeviceLatestValue(deviceId, stationId, status, timestampMillis, voltage, current, power, frequency,
+            temperature);
+    }
+
+    /** Same device metadata with a newer reading. */
+    public DeviceLatestValue withReading(long timestampMillis, double voltage, double current, double power,
+                                         double frequency, double temperature) {
+        return new DeviceLatestValue(deviceId, stationId, status, timestampMillis, voltage, current, power, frequency,
+            temperature);
+    }
+
+    public boolean hasReading() { return timestampMillis != Long.MIN_VALUE; }
+
+    @JsonIgnore
+    public long getTimestampMillis() { return timestampMillis; }
+
+    // Getters
+    public Long getDeviceId() { return deviceId; }
+
+    public Long getStationId() { return stationId; }
+
+    public Device.DeviceStatus getStatus() { return status; }
+
+    public LocalDateTime getTimestamp() { return hasReading() ? TelemetrySeries.toLocalDateTime(timestampMillis) : null; }
+
+    public Double getVoltage() { return value(voltage); }
+
+    public Double getCurrent() { return value(current); }
+
+    public Double getPower() { return value(power); }
+
+    public Double getFrequency() { return value(frequency); }
+
+    public Double getTemperature() { return value(temperature); }
+
+    private static Double value(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+}
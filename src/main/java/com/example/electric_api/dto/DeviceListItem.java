@@ -0,0 +1,64 @@
+package com.example.electric_api.dto;
+
+import com.example.electric_api.entity.Device;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/** Device row for listings, read with a JPQL constructor expression instead of loading the entity graph. */
+public class DeviceListItem {
+    private final Long id;
+    private final String name;
+    private final String model;
+    private final String serialNumber;
+    private final Device.DeviceStatus status;
+    private final Long stationId;
+    private final Long deviceTypeId;
+    private final Long manufacturerId;
+    private final BigDecimal latitude;
+    private final BigDecimal longitude;
+    private final LocalDate installationDate;
+    private final LocalDate lastMaintenance;
+
+    public DeviceListItem(Long id, String name, String model, String serialNumber, Device.DeviceStatus status,
+                          Long stationId, Long deviceTypeId, Long manufacturerId, BigDecimal latitude,
+                          BigDecimal longitude, LocalDate installationDate, LocalDate lastMaintenance) {
+        this.id = id;
+        this.name = name;
+        this.model = model;
+        this.serialNumber = serialNumber;
+        this.status = status;
+        this.stationId = stationId;
+        this.deviceTypeId = deviceTypeId;
+        this.manufacturerId = manufacturerId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.installationDate = installationDate;
+        this.lastMaintenance = lastMaintenance;
+    }
+
+    // Getters
+    public Long getId() { return id; }
+
+    public String getName() { return name; }
+
+    public String getModel() { return model; }
+
+    public String getSerialNumber() { return serialNumber; }
+
+    public Device.DeviceStatus getStatus() { return status; }
+
+    public Long getStationId() { return stationId; }
+
+    public Long getDeviceTypeId() { return deviceTypeId; }
+
+    public Long getManufacturerId() { return manufacturerId; }
+
+    public BigDecimal getLatitude() { return latitude; }
+
+    public BigDecimal getLongitude() { return longitude; }
+
+    public LocalDate getInstallationDate() { return installationDate; }
+
+    public LocalDate getLastMaintenance() { return lastMaintenance; }
+}
@@ -0,0 +1,26 @@
+package com.example.electric_api.dto;
+
+/**
+ * Device count for one station or device type in the statistics response.
+ */
+public class DistributionEntry {
+    private final Long id;
+    private final String name;
+    private long deviceCount;
+
+    public DistributionEntry(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public void add(long count) {
+        deviceCount += count;
+    }
+
+    // Getters
+    public Long getId() { return id; }
+
+    public String getName() { return name; }
+
+    public long getDeviceCount() { return deviceCount; }
+}
@@ -0,0 +1,94 @@
+package com.example.electric_api.dto;
+
+import com.example.electric_api.entity.Alert;
+import com.example.electric_api.entity.AlertLevel;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Unresolved alert as kept by the open-alert index. Immutable: repeats and incident grouping
+ * replace the entry, so readers iterating the index never see a half-updated alert.
+ */
+public class OpenAlertEntry {
+    private final Long id;
+    private final Long deviceId;
+    private final Long stationId;
+    private final Alert.AlertType alertType;
+    private final Long alertLevelId;
+    private final String alertLevel;
+    private final AlertLevel.Severity severity;
+    private final String title;
+    private final String description;
+    private final BigDecimal thresholdValue;
+    private final BigDecimal actualValue;
+    private final int occurrenceCount;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime lastOccurrenceAt;
+    private final Long incidentId;
+
+    public OpenAlertEntry(Long id, Long deviceId, Long stationId, Alert.AlertType alertType, Long alertLevelId,
+                          String alertLevel, AlertLevel.Severity severity, String title, String description,
+                          BigDecimal thresholdValue, BigDecimal actualValue, int occurrenceCount,
+                          LocalDateTime createdAt, LocalDateTime lastOccurrenceAt, Long incidentId) {
+        this.id = id;
+        this.deviceId = deviceId;
+        this.stationId = stationId;
+        this.alertType = alertType;
+        this.alertLevelId = alertLevelId;
+        this.alertLevel = alertLevel;
+        this.severity = severity;
+        this.title = title;
+        this.description = description;
+        this.thresholdValue = thresholdValue;
+        this.actualValue = actualValue;
+        this.occurrenceCount = occurrenceCount;
+        this.createdAt = createdAt;
+        this.lastOccurrenceAt = lastOccurrenceAt;
+        this.incidentId = incidentId;
+    }
+
+    /** Same alert after more occurrences were folded into it. */
+    public OpenAlertEntry withRepeat(BigDecimal actualValue, int moreOccurrences, LocalDateTime lastOccurrenceAt) {
+        return new OpenAlertEntry(id, deviceId, stationId, alertType, alertLevelId, alertLevel, severity, title,
+            description, thresholdValue, actualValue, occurrenceCount + moreOccurrences, createdAt, lastOccurrenceAt,
+            incidentId);
+    }
+
+    /** Same alert grouped under an incident. */
+    public OpenAlertEntry withIncident(Long incidentId) {
+        return new OpenAlertEntry(id, deviceId, stationId, alertType, alertLevelId, alertLevel, severity, title,
+            description, thresholdValue, actualValue, occurrenceCount, createdAt, lastOccurrenceAt, incidentId);
+    }
+
+    // Getters
+    public Long getId() { return id; }
+
+    public Long getDeviceId() { return deviceId; }
+
+    public Long getStationId() { return stationId; }
+
+    public Alert.AlertType getAlertType() { return alertType; }
+
+    public Long getAlertLevelId() { return alertLevelId; }
+
+    public String getAlertLevel() { return alertLevel; }
+
+    public AlertLevel.Severity getSeverity() { return severity; }
+
+    public String getTitle() { return title; }
+
+    public String getDescription() { return description; }
+
+    public BigDecimal getThresholdValue() { return thresholdValue; }
+
+    public BigDecimal getActualValue() { return actualValue; }
+
+    public int getOccurrenceCount() { return occurrenceCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public LocalDateTime getLastOccurrenceAt() { return lastOccurrenceAt; }
+
+    public Long getIncidentId() { return incidentId; }
+}
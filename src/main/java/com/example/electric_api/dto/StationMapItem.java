@@ -0,0 +1,31 @@
+package com.example.electric_api.dto;
+
+import java.math.BigDecimal;
+
+/** Station marker for the grid map, read with a JPQL constructor expression. */
+public class StationMapItem {
+    private final Long id;
+    private final String name;
+    private final String location;
+    private final BigDecimal latitude;
+    private final BigDecimal longitude;
+
+    public StationMapItem(Long id, String name, String location, BigDecimal latitude, BigDecimal longitude) {
+        this.id = id;
+        this.name = name;
+        this.location = location;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    // Getters
+    public Long getId() { return id; }
+
+    public String getName() { return name; }
+
+    public String getLocation() { return location; }
+
+    public BigDecimal getLatitude() { return latitude; }
+
+    public BigDecimal getLongitude() { return longitude; }
+}
@@ -0,0 +1,49 @@
+package com.example.electric_api.dto;
+
+import java.time.LocalDateTime;
+
+public class TelemetryReading {
+    private Long deviceId;
+    private LocalDateTime timestamp;
+    private Double voltage;
+    private Double current;
+    private Double power;
+    private Double frequency;
+    private Double temperature;
+
+    // Constructors
+    public TelemetryReading() {}
+
+    public TelemetryReading(Long deviceId, LocalDateTime timestamp, Double voltage, Double current,
+                            Double power, Double frequency, Double temperature) {
+        this.deviceId = deviceId;
+        this.timestamp = timestamp;
+        this.voltage = voltage;
+        this.current = current;
+        this.power = power;
+        this.frequency = frequency;
+        this.temperature = temperature;
+    }
+
+    // Getters and Setters
+    public Long getDeviceId() { return deviceId; }
+    public void setDeviceId(Long deviceId) { this.deviceId = deviceId; }
+
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+
+    public Double getVoltage() { return voltage; }
+    public void setVoltage(Double voltage) { this.voltage = voltage; }
+
+    public Double getCurrent() { return current; }
+    public void setCurrent(Double current) { this.current = current; }
+
+    public Double getPower() { return power; }
+    public void setPower(Double power) { this.power = power; }
+
+    public Double getFrequency() { return frequency; }
+    public void setFrequency(Double frequency) { this.frequency = frequency; }
+
+    public Double getTemperature() { return temperature; }
+    public void setTemperature(Double temperature) { this.temperature = temperature; }
+}
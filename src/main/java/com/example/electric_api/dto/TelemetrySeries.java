@@ -0,0 +1,179 @@
+package com.example.electric_api.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Column-oriented block of device readings: one primitive array per metric instead of one
+ * object per reading. Timestamps are LocalDateTime values encoded as epoch millis at UTC
+ * (see {@link #toEpochMillis}); missing metric values are stored as NaN.
+ *
+ * Serialized as the same list of reading objects the API has always returned, so clients
+ * do not see the difference.
+ */
+@JsonSerialize(using = TelemetrySeries.RowSerializer.class)
+public class TelemetrySeries {
+    public static final List<String> METRICS = List.of("voltage", "current", "power", "frequency", "temperature");
+
+    private long[] timestamps;
+    private double[] voltage;
+    private double[] current;
+    private double[] power;
+    private double[] frequency;
+    private double[] temperature;
+    private int size;
+
+    // Constructors
+    public TelemetrySeries() {
+        this(16);
+    }
+
+    public TelemetrySeries(int capacity) {
+        int initial = Math.max(1, capacity);
+        this.timestamps = new long[initial];
+        this.voltage = new double[initial];
+        this.current = new double[initial];
+        this.power = new double[initial];
+        this.frequency = new double[initial];
+        this.temperature = new double[initial];
+    }
+
+    public void add(long timestamp, double voltage, double current, double power, double frequency, double temperature) {
+        if (size == timestamps.length) {
+            grow();
+        }
+        this.timestamps[size] = timestamp;
+        this.voltage[size] = voltage;
+        this.current[size] = current;
+        this.power[size] = power;
+        this.frequency[size] = frequency;
+        this.temperature[size] = temperature;
+        size++;
+    }
+
+    public void add(TelemetrySeries other, int index) {
+        add(other.timestamps[index], other.voltage[index], other.current[index], other.power[index],
+            other.frequency[index], other.temperature[index]);
+    }
+
+    /** Copies readings [from, to) into a new series. */
+    public TelemetrySeries slice(int from, int to) {
+        TelemetrySeries slice = new TelemetrySeries(Math.max(1, to - from));
+        for (int i = from; i < to; i++) {
+            slice.add(this, i);
+        }
+        return slice;
+    }
+
+    /** Copies the readings at the given ascending indices into a new series. */
+    public TelemetrySeries select(int[] indices) {
+        TelemetrySeries selected = new TelemetrySeries(Math.max(1, indices.length));
+        for (int index : indices) {
+            selected.add(this, index);
+        }
+        return selected;
+    }
+
+    /** Accessor for one metric column by its JSON name (voltage, current, power, frequency, temperature). */
+    public IntToDoubleFunction column(String metric) {
+        switch (metric) {
+            case "voltage": return i -> voltage[i];
+            case "current": return i -> current[i];
+            case "power": return i -> power[i];
+            case "frequency": return i -> frequency[i];
+            case "temperature": return i -> temperature[i];
+            default: throw new IllegalArgumentException("Unknown metric: " + metric);
+        }
+    }
+
+    /** Merges two ascending series into a new ascending series. */
+    public static TelemetrySeries merge(TelemetrySeries left, TelemetrySeries right) {
+        if (left.isEmpty()) return right;
+        if (right.isEmpty()) return left;
+        TelemetrySeries merged = new TelemetrySeries(left.size + right.size);
+        int i = 0, j = 0;
+        while (i < left.size || j < right.size) {
+            if (j >= right.size || (i < left.size && left.timestamps[i] <= right.timestamps[j])) {
+                merged.add(left, i++);
+            } else {
+                merged.add(right, j++);
+            }
+        }
+        return merged;
+    }
+
+    private void grow() {
+        int capacity = timestamps.length * 2;
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        voltage = Arrays.copyOf(voltage, capacity);
+        current = Arrays.copyOf(current, capacity);
+        power = Arrays.copyOf(power, capacity);
+        frequency = Arrays.copyOf(frequency, capacity);
+        temperature = Arrays.copyOf(temperature, capacity);
+    }
+
+    public static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000L),
+            (int) Math.floorMod(epochMillis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    public static double toDouble(Number value) {
+        return value != null ? value.doubleValue() : Double.NaN;
+    }
+
+    // Getters
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    public long getTimestamp(int index) { return timestamps[index]; }
+    public double getVoltage(int index) { return voltage[index]; }
+    public double getCurrent(int index) { return current[index]; }
+    public double getPower(int index) { return power[index]; }
+    public double getFrequency(int index) { return frequency[index]; }
+    public double getTemperature(int index) { return temperature[index]; }
+
+    public static class RowSerializer extends StdSerializer<TelemetrySeries> {
+
+        public RowSerializer() {
+            super(TelemetrySeries.class);
+        }
+
+        @Override
+        public void serialize(TelemetrySeries series, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartArray(series, series.size);
+            for (int i = 0; i < series.size; i++) {
+                gen.writeStartObject();
+                gen.writeStringField("timestamp",
+                    DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(toLocalDateTime(series.timestamps[i])));
+                writeValue(gen, "voltage", series.voltage[i]);
+                writeValue(gen, "current", series.current[i]);
+                writeValue(gen, "power", series.power[i]);
+                writeValue(gen, "frequency", series.frequency[i]);
+                writeValue(gen, "temperature", series.temperature[i]);
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+
+        private static void writeValue(JsonGenerator gen, String field, double value) throws IOException {
+            if (Double.isNaN(value)) {
+                gen.writeNullField(field);
+            } else {
+                gen.writeNumberField(field, value);
+            }
+        }
+    }
+}
@@ -11,7 +11,10 @@ import java.time.LocalDateTime;
 @Table(name = "alerts", indexes = {
     @Index(name = "idx_device_created", columnList = "device_id, created_at"),
     @Index(name = "idx_alert_level", columnList = "alert_level_id"),
-    @Index(name = "idx_alert_status", columnList = "alert_status_id")
+    @Index(name = "idx_alert_status", columnList = "alert_status_id"),
+    @Index(name = "idx_alert_incident", columnList = "incident_id"),
+    @Index(name = "idx_alert_resolved", columnList = "resolved_at"),
+    @Index(name = "idx_alert_created", columnList = "created_at, id")
 })
 public class Alert {
     @Id
@@ -47,6 +50,14 @@ public class Alert {
     @Column(precision = 10, scale = 2)
     private BigDecimal actualValue;
 
+    // Repeats of an open alert bump these instead of inserting new rows
+    private Integer occurrenceCount = 1;
+
+    private LocalDateTime lastOccurrenceAt;
+
+    @Column(name = "incident_id")
+    private Long incidentId;
+
     @CreationTimestamp
     @Column(updatable = false)
     private LocalDateTime createdAt;
@@ -103,6 +114,15 @@ public class Alert {
     public BigDecimal getActualValue() { return actualValue; }
     public void setActualValue(BigDecimal actualValue) { this.actualValue = actualValue; }
 
+    public Integer getOccurrenceCount() { return occurrenceCount; }
+    public void setOccurrenceCount(Integer occurrenceCount) { this.occurrenceCount = occurrenceCount; }
+
+    public LocalDateTime getLastOccurrenceAt() { return lastOccurrenceAt; }
+    public void setLastOccurrenceAt(LocalDateTime lastOccurrenceAt) { this.lastOccurrenceAt = lastOccurrenceAt; }
+
+    public Long getIncidentId() { return incidentId; }
+    public void setIncidentId(Long incidentId) { this.incidentId = incidentId; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
@@ -0,0 +1,67 @@
+package com.example.electric_api.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Parent of correlated alerts raised by several devices of one station within a short window,
+ * e.g. a substation trip taking every device offline at once. Member alerts point at it through
+ * alerts.incident_id. The incident closes once its station has been quiet for the window.
+ */
+@Entity
+@Table(name = "alert_incidents", indexes = {
+    @Index(name = "idx_incident_station", columnList = "station_id, closed_at")
+})
+public class AlertIncident {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "station_id", nullable = false)
+    private Long stationId;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(nullable = false)
+    private Integer alertCount = 0;
+
+    @Column(nullable = false)
+    private Integer deviceCount = 0;
+
+    @Column(nullable = false)
+    private LocalDateTime openedAt;
+
+    private LocalDateTime lastAlertAt;
+
+    private LocalDateTime closedAt;
+
+    // Constructors
+    public AlertIncident() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getStationId() { return stationId; }
+    public void setStationId(Long stationId) { this.stationId = stationId; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public Integer getAlertCount() { return alertCount; }
+    public void setAlertCount(Integer alertCount) { this.alertCount = alertCount; }
+
+    public Integer getDeviceCount() { return deviceCount; }
+    public void setDeviceCount(Integer deviceCount) { this.deviceCount = deviceCount; }
+
+    public LocalDateTime getOpenedAt() { return openedAt; }
+    public void setOpenedAt(LocalDateTime openedAt) { this.openedAt = openedAt; }
+
+    public LocalDateTime getLastAlertAt() { return lastAlertAt; }
+    public void setLastAlertAt(LocalDateTime lastAlertAt) { this.lastAlertAt = lastAlertAt; }
+
+    public LocalDateTime getClosedAt() { return closedAt; }
+    public void setClosedAt(LocalDateTime closedAt) { this.closedAt = closedAt; }
+}
@@ -0,0 +1,139 @@
+package com.example.electric_api.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Rule evaluated against every ingested reading. The alert type decides the metric and
+ * direction (OVER_VOLTAGE: voltage above the threshold, UNDER_VOLTAGE: below, ...).
+ * A rule without a device type applies to all devices.
+ *
+ * The kind decides when the condition counts as met:
+ * THRESHOLD - a single sample beyond the threshold;
+ * DURATION - beyond the threshold continuously for durationSeconds;
+ * RATE_OF_CHANGE - the metric moves faster than threshold units per minute over windowSeconds;
+ * N_OF_M - at least requiredSamples of the last windowSamples samples beyond the threshold.
+ * An optional clearThreshold adds hysteresis: a firing rule only re-arms once the value
+ * (or rate) is back beyond it.
+ */
+@Entity
+@Table(name = "alert_rules", indexes = {
+    @Index(name = "idx_alert_rule_device_type", columnList = "device_type_id")
+})
+public class AlertRule {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotBlank
+    @Column(nullable = false)
+    private String name;
+
+    @Column(name = "device_type_id")
+    private Long deviceTypeId;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Alert.AlertType alertType;
+
+    @NotNull
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal threshold;
+
+    @NotNull
+    @Column(name = "alert_level_id", nullable = false)
+    private Long alertLevelId;
+
+    // Null is treated as THRESHOLD so rows created before rule kinds existed keep working
+    @Enumerated(EnumType.STRING)
+    private Kind ruleKind = Kind.THRESHOLD;
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal clearThreshold;
+
+    private Integer durationSeconds;
+
+    private Integer windowSeconds;
+
+    private Integer windowSamples;
+
+    private Integer requiredSamples;
+
+    @Column(nullable = false)
+    private Boolean isActive = true;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
+    public enum Kind {
+        THRESHOLD, DURATION, RATE_OF_CHANGE, N_OF_M
+    }
+
+    // Constructors
+    public AlertRule() {}
+
+    public AlertRule(String name, Long deviceTypeId, Alert.AlertType alertType, BigDecimal threshold, Long alertLevelId) {
+        this.name = name;
+        this.deviceTypeId = deviceTypeId;
+        this.alertType = alertType;
+        this.threshold = threshold;
+        this.alertLevelId = alertLevelId;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public Long getDeviceTypeId() { return deviceTypeId; }
+    public void setDeviceTypeId(Long deviceTypeId) { this.deviceTypeId = deviceTypeId; }
+
+    public Alert.AlertType getAlertType() { return alertType; }
+    public void setAlertType(Alert.AlertType alertType) { this.alertType = alertType; }
+
+    public BigDecimal getThreshold() { return threshold; }
+    public void setThreshold(BigDecimal threshold) { this.threshold = threshold; }
+
+    public Long getAlertLevelId() { return alertLevelId; }
+    public void setAlertLevelId(Long alertLevelId) { this.alertLevelId = alertLevelId; }
+
+    public Kind getRuleKind() { return ruleKind; }
+    public void setRuleKind(Kind ruleKind) { this.ruleKind = ruleKind; }
+
+    public BigDecimal getClearThreshold() { return clearThreshold; }
+    public void setClearThreshold(BigDecimal clearThreshold) { this.clearThreshold = clearThreshold; }
+
+    public Integer getDurationSeconds() { return durationSeconds; }
+    public void setDurationSeconds(Integer durationSeconds) { this.durationSeconds = durationSeconds; }
+
+    public Integer getWindowSeconds() { return windowSeconds; }
+    public void setWindowSeconds(Integer windowSeconds) { this.windowSeconds = windowSeconds; }
+
+    public Integer getWindowSamples() { return windowSamples; }
+    public void setWindowSamples(Integer windowSamples) { this.windowSamples = windowSamples; }
+
+    public Integer getRequiredSamples() { return requiredSamples; }
+    public void setRequiredSamples(Integer requiredSamples) { this.requiredSamples = requiredSamples; }
+
+    public Boolean getIsActive() { return isActive; }
+    public void setIsActive(Boolean isActive) { this.isActive = isActive; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -1,6 +1,7 @@
 package com.example.electric_api.entity;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
@@ -78,8 +79,9 @@ public class Device {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Readings are served by /api/devices/{id}/data; never serialize the whole table with the device
     @OneToMany(mappedBy = "device", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-    @JsonManagedReference
+    @JsonIgnore
     private List<DeviceData> deviceData;
 
     @OneToMany(mappedBy = "device", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
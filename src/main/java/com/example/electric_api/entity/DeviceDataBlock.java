@@ -0,0 +1,83 @@
+package com.example.electric_api.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * One hour of readings for one device, compressed with TelemetryBlockCodec.
+ * Replaces the device_data rows of that hour once the hour is closed.
+ */
+@Entity
+@Table(name = "device_data_blocks", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_device_block_start", columnNames = {"device_id", "block_start"})
+}, indexes = {
+    @Index(name = "idx_block_start", columnList = "block_start")
+})
+public class DeviceDataBlock {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "device_id", nullable = false)
+    private Long deviceId;
+
+    // Inclusive start / exclusive end of the hour covered by this block
+    @Column(name = "block_start", nullable = false)
+    private LocalDateTime blockStart;
+
+    @Column(name = "block_end", nullable = false)
+    private LocalDateTime blockEnd;
+
+    @Column(nullable = false)
+    private Integer pointCount;
+
+    @Lob
+    @Column(nullable = false, length = 16777215)
+    private byte[] payload;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public DeviceDataBlock() {}
+
+    public DeviceDataBlock(Long deviceId, LocalDateTime blockStart, LocalDateTime blockEnd, Integer pointCount, byte[] payload) {
+        this.deviceId = deviceId;
+        this.blockStart = blockStart;
+        this.blockEnd = blockEnd;
+        this.pointCount = pointCount;
+        this.payload = payload;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getDeviceId() { return deviceId; }
+    public void setDeviceId(Long deviceId) { this.deviceId = deviceId; }
+
+    public LocalDateTime getBlockStart() { return blockStart; }
+    public void setBlockStart(LocalDateTime blockStart) { this.blockStart = blockStart; }
+
+    public LocalDateTime getBlockEnd() { return blockEnd; }
+    public void setBlockEnd(LocalDateTime blockEnd) { this.blockEnd = blockEnd; }
+
+    public Integer getPointCount() { return pointCount; }
+    public void setPointCount(Integer pointCount) { this.pointCount = pointCount; }
+
+    public byte[] getPayload() { return payload; }
+    public void setPayload(byte[] payload) { this.payload = payload; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
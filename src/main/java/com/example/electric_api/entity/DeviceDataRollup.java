@@ -0,0 +1,163 @@
+package com.example.electric_api.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated device readings for one device, resolution and time bucket.
+ * Each metric keeps min / max / avg / last over the readings in the bucket.
+ */
+@Entity
+@Table(name = "device_data_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_rollup_bucket", columnNames = {"device_id", "resolution", "bucket_start"})
+})
+public class DeviceDataRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "device_id", nullable = false)
+    private Long deviceId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "resolution", nullable = false, length = 16)
+    private Resolution resolution;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false)
+    private Integer sampleCount;
+
+    // Timestamp of the reading behind the *Last values
+    private LocalDateTime lastTimestamp;
+
+    private Double voltageMin;
+    private Double voltageMax;
+    private Double voltageAvg;
+    private Double voltageLast;
+
+    private Double currentMin;
+    private Double currentMax;
+    private Double currentAvg;
+    private Double currentLast;
+
+    private Double powerMin;
+    private Double powerMax;
+    private Double powerAvg;
+    private Double powerLast;
+
+    private Double frequencyMin;
+    private Double frequencyMax;
+    private Double frequencyAvg;
+    private Double frequencyLast;
+
+    private Double temperatureMin;
+    private Double temperatureMax;
+    private Double temperatureAvg;
+    private Double temperatureLast;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
+    // Enum for rollup resolutions, finest first
+    public enum Resolution {
+        MINUTE_1("1m", 60), MINUTE_5("5m", 300), HOUR_1("1h", 3600), DAY_1("1d", 86400);
+
+        private final String label;
+        private final long seconds;
+
+        Resolution(String label, long seconds) {
+            this.label = label;
+            this.seconds = seconds;
+        }
+
+        public String getLabel() { return label; }
+        public long getSeconds() { return seconds; }
+        public long getMillis() { return seconds * 1000L; }
+    }
+
+    // Constructors
+    public DeviceDataRollup() {}
+
+    /** Bucket average of a metric by its JSON name (voltage, current, power, frequency, temperature). */
+    public Double getAvg(String metric) {
+        switch (metric) {
+            case "voltage": return voltageAvg;
+            case "current": return currentAvg;
+            case "power": return powerAvg;
+            case "frequency": return frequencyAvg;
+            case "temperature": return temperatureAvg;
+            default: throw new IllegalArgumentException("Unknown metric: " + metric);
+        }
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getDeviceId() { return deviceId; }
+    public void setDeviceId(Long deviceId) { this.deviceId = deviceId; }
+
+    public Resolution getResolution() { return resolution; }
+    public void setResolution(Resolution resolution) { this.resolution = resolution; }
+
+    public LocalDateTime getBucketStart() { return bucketStart; }
+    public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+
+    public Integer getSampleCount() { return sampleCount; }
+    public void setSampleCount(Integer sampleCount) { this.sampleCount = sampleCount; }
+
+    public LocalDateTime getLastTimestamp() { return lastTimestamp; }
+    public void setLastTimestamp(LocalDateTime lastTimestamp) { this.lastTimestamp = lastTimestamp; }
+
+    public Double getVoltageMin() { return voltageMin; }
+    public void setVoltageMin(Double voltageMin) { this.voltageMin = voltageMin; }
+    public Double getVoltageMax() { return voltageMax; }
+    public void setVoltageMax(Double voltageMax) { this.voltageMax = voltageMax; }
+    public Double getVoltageAvg() { return voltageAvg; }
+    public void setVoltageAvg(Double voltageAvg) { this.voltageAvg = voltageAvg; }
+    public Double getVoltageLast() { return voltageLast; }
+    public void setVoltageLast(Double voltageLast) { this.voltageLast = voltageLast; }
+
+    public Double getCurrentMin() { return currentMin; }
+    public void setCurrentMin(Double currentMin) { this.currentMin = currentMin; }
+    public Double getCurrentMax() { return currentMax; }
+    public void setCurrentMax(Double currentMax) { this.currentMax = currentMax; }
+    public Double getCurrentAvg() { return currentAvg; }
+    public void setCurrentAvg(Double currentAvg) { this.currentAvg = currentAvg; }
+    public Double getCurrentLast() { return currentLast; }
+    public void setCurrentLast(Double currentLast) { this.currentLast = currentLast; }
+
+    public Double getPowerMin() { return powerMin; }
+    public void setPowerMin(Double powerMin) { this.powerMin = powerMin; }
+    public Double getPowerMax() { return powerMax; }
+    public void setPowerMax(Double powerMax) { this.powerMax = powerMax; }
+    public Double getPowerAvg() { return powerAvg; }
+    public void setPowerAvg(Double powerAvg) { this.powerAvg = powerAvg; }
+    public Double getPowerLast() { return powerLast; }
+    public void setPowerLast(Double powerLast) { this.powerLast = powerLast; }
+
+    public Double getFrequencyMin() { return frequencyMin; }
+    public void setFrequencyMin(Double frequencyMin) { this.frequencyMin = frequencyMin; }
+    public Double getFrequencyMax() { return frequencyMax; }
+    public void setFrequencyMax(Double frequencyMax) { this.frequencyMax = frequencyMax; }
+    public Double getFrequencyAvg() { return frequencyAvg; }
+    public void setFrequencyAvg(Double frequencyAvg) { this.frequencyAvg = frequencyAvg; }
+    public Double getFrequencyLast() { return frequencyLast; }
+    public void setFrequencyLast(Double frequencyLast) { this.frequencyLast = frequencyLast; }
+
+    public Double getTemperatureMin() { return temperatureMin; }
+    public void setTemperatureMin(Double temperatureMin) { this.temperatureMin = temperatureMin; }
+    public Double getTemperatureMax() { return temperatureMax; }
+    public void setTemperatureMax(Double temperatureMax) { this.temperatureMax = temperatureMax; }
+    public Double getTemperatureAvg() { return temperatureAvg; }
+    public void setTemperatureAvg(Double temperatureAvg) { this.temperatureAvg = temperatureAvg; }
+    public Double getTemperatureLast() { return temperatureLast; }
+    public void setTemperatureLast(Double temperatureLast) { this.temperatureLast = temperatureLast; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
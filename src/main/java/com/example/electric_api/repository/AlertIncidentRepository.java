@@ -0,0 +1,15 @@
+package com.example.electric_api.repository;
+
+import com.example.electric_api.entity.AlertIncident;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AlertIncidentRepository extends JpaRepository<AlertIncident, Long> {
+
+    List<AlertIncident> findByClosedAtIsNullOrderByOpenedAtDesc();
+
+    List<AlertIncident> findTop50ByOrderByOpenedAtDesc();
+}
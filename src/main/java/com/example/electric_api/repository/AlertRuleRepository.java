@@ -0,0 +1,13 @@
+package com.example.electric_api.repository;
+
+import com.example.electric_api.entity.AlertRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AlertRuleRepository extends JpaRepository<AlertRule, Long> {
+
+    List<AlertRule> findByIsActiveTrueOrderById();
+}
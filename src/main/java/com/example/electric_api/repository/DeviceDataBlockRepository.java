@@ -0,0 +1,55 @@
+package com.example.electric_api.repository;
+
+import com.example.electric_api.entity.DeviceDataBlock;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+public interface DeviceDataBlockRepository extends JpaRepository<DeviceDataBlock, Long> {
+
+    Optional<DeviceDataBlock> findByDeviceIdAndBlockStart(Long deviceId, LocalDateTime blockStart);
+
+    // Blocks span one hour, so the block_start lower bound lets partitioned tables prune on both sides
+    @Query("SELECT b FROM DeviceDataBlock b WHERE b.deviceId = :deviceId " +
+           "AND b.blockStart > :earliestStart AND b.blockEnd > :start AND b.blockStart < :end ORDER BY b.blockStart")
+    List<DeviceDataBlock> findOverlapping(@Param("deviceId") Long deviceId,
+                                          @Param("earliestStart") LocalDateTime earliestStart,
+                                          @Param("start") LocalDateTime start,
+                                          @Param("end") LocalDateTime end);
+
+    // Block metadata without payloads, so a long range can be planned before anything is decoded
+    @Query("SELECT b.blockStart, b.pointCount FROM DeviceDataBlock b WHERE b.deviceId = :deviceId " +
+           "AND b.blockStart > :earliestStart AND b.blockEnd > :start AND b.blockStart < :end ORDER BY b.blockStart")
+    List<Object[]> findOverlappingCounts(@Param("deviceId") Long deviceId,
+                                         @Param("earliestStart") LocalDateTime earliestStart,
+                                         @Param("start") LocalDateTime start,
+                                         @Param("end") LocalDateTime end);
+
+    // Scalar read, so decoded hours do not pile up as managed entities in a long read
+    @Query("SELECT b.payload FROM DeviceDataBlock b WHERE b.deviceId = :deviceId AND b.blockStart = :blockStart")
+    Optional<byte[]> findPayload(@Param("deviceId") Long deviceId, @Param("blockStart") LocalDateTime blockStart);
+
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "16"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT b FROM DeviceDataBlock b WHERE b.deviceId = :deviceId " +
+           "AND b.blockStart > :earliestStart AND b.blockEnd > :start AND b.blockStart < :end ORDER BY b.blockStart")
+    Stream<DeviceDataBlock> streamOverlapping(@Param("deviceId") Long deviceId,
+                                              @Param("earliestStart") LocalDateTime earliestStart,
+                                              @Param("start") LocalDateTime start,
+                                              @Param("end") LocalDateTime end);
+
+    @Query("SELECT COUNT(b), COALESCE(SUM(b.pointCount), 0) FROM DeviceDataBlock b")
+    List<Object[]> summarize();
+}
@@ -0,0 +1,29 @@
+package com.example.electric_api.repository;
+
+import com.example.electric_api.entity.DeviceData;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+@Repository
+public interface DeviceDataRepository extends JpaRepository<DeviceData, Long> {
+
+    // Forward-only cursor for exports; on MySQL add useCursorFetch=true to the URL so the fetch size is honoured
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT d FROM DeviceData d WHERE d.device.id = :deviceId " +
+           "AND d.timestamp >= :start AND d.timestamp < :end ORDER BY d.timestamp")
+    Stream<DeviceData> streamByDeviceIdAndTimestampRange(@Param("deviceId") Long deviceId,
+                                                        @Param("start") LocalDateTime start,
+                                                        @Param("end") LocalDateTime end);
+}
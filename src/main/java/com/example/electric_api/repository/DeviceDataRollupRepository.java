@@ -0,0 +1,21 @@
+package com.example.electric_api.repository;
+
+import com.example.electric_api.entity.DeviceDataRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DeviceDataRollupRepository extends JpaRepository<DeviceDataRollup, Long> {
+
+    List<DeviceDataRollup> findByDeviceIdAndResolutionAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStart(
+        Long deviceId, DeviceDataRollup.Resolution resolution, LocalDateTime start, LocalDateTime end);
+
+    List<DeviceDataRollup> findByResolutionAndBucketStartAndDeviceIdIn(
+        DeviceDataRollup.Resolution resolution, LocalDateTime bucketStart, Collection<Long> deviceIds);
+
+    long countByResolution(DeviceDataRollup.Resolution resolution);
+}
@@ -1,5 +1,7 @@
 package com.example.electric_api.repository;
 
+import com.example.electric_api.dto.DeviceCountRow;
+import com.example.electric_api.dto.DeviceListItem;
 import com.example.electric_api.entity.Device;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -8,6 +10,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -56,4 +59,22 @@ public interface DeviceRepository extends JpaRepository<Device, Long> {
     
     @Query("SELECT d FROM Device d JOIN d.station s WHERE s.name = :stationName AND d.isActive = true")
     List<Device> findByStationName(@Param("stationName") String stationName);
-} 
\ No newline at end of file
+
+    @Query("SELECT d.id FROM Device d WHERE d.id IN :ids AND d.isActive = true")
+    List<Long> findActiveIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.example.electric_api.dto.DeviceCountRow(d.status, d.station.id, d.deviceType.id, COUNT(d)) " +
+           "FROM Device d WHERE d.isActive = true GROUP BY d.status, d.station.id, d.deviceType.id")
+    List<DeviceCountRow> countActiveGroupedByStatusStationAndType();
+
+    @Query("SELECT d.id, d.station.id, d.status FROM Device d WHERE d.isActive = true")
+    List<Object[]> findActiveDeviceKeys();
+
+    @Query("SELECT d.id, d.deviceType.id FROM Device d WHERE d.isActive = true")
+    List<Object[]> findActiveDeviceTypeIds();
+
+    @Query("SELECT new com.example.electric_api.dto.DeviceListItem(d.id, d.name, d.model, d.serialNumber, d.status, " +
+           "d.station.id, d.deviceType.id, d.manufacturer.id, d.latitude, d.longitude, d.installationDate, " +
+           "d.lastMaintenance) FROM Device d WHERE d.isActive = true AND d.latitude IS NOT NULL AND d.longitude IS NOT NULL")
+    List<DeviceListItem> findActiveLocatedListItems();
+}
@@ -1,5 +1,6 @@
 package com.example.electric_api.repository;
 
+import com.example.electric_api.dto.DistributionEntry;
 import com.example.electric_api.entity.DeviceType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -22,6 +23,9 @@ public interface DeviceTypeRepository extends JpaRepository<DeviceType, Long> {
            "(dt.name LIKE %:search% OR dt.description LIKE %:search%)")
     List<DeviceType> searchActiveDeviceTypes(@Param("search") String search);
     
+    @Query("SELECT new com.example.electric_api.dto.DistributionEntry(dt.id, dt.name) FROM DeviceType dt ORDER BY dt.id")
+    List<DistributionEntry> findAllAsDistributionEntries();
+    
     @Query("SELECT COUNT(dt) FROM DeviceType dt WHERE dt.isActive = true")
     long countByIsActiveTrue();
 } 
\ No newline at end of file
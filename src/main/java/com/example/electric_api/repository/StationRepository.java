@@ -1,5 +1,7 @@
 package com.example.electric_api.repository;
 
+import com.example.electric_api.dto.DistributionEntry;
+import com.example.electric_api.dto.StationMapItem;
 import com.example.electric_api.entity.Station;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -24,6 +26,13 @@ public interface StationRepository extends JpaRepository<Station, Long> {
            "(s.name LIKE %:search% OR s.location LIKE %:search% OR s.address LIKE %:search%)")
     List<Station> searchActiveStations(@Param("search") String search);
     
+    @Query("SELECT new com.example.electric_api.dto.DistributionEntry(s.id, s.name) FROM Station s ORDER BY s.id")
+    List<DistributionEntry> findAllAsDistributionEntries();
+    
+    @Query("SELECT new com.example.electric_api.dto.StationMapItem(s.id, s.name, s.location, s.latitude, s.longitude) " +
+           "FROM Station s WHERE s.isActive = true AND s.latitude IS NOT NULL AND s.longitude IS NOT NULL")
+    List<StationMapItem> findActiveMapItems();
+    
     @Query("SELECT COUNT(s) FROM Station s WHERE s.isActive = true")
     long countByIsActiveTrue();
     
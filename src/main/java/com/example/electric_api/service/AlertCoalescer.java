@@ -0,0 +1,696 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.OpenAlertEntry;
+import com.example.electric_api.entity.Alert;
+import com.example.electric_api.entity.AlertLevel;
+import com.example.electric_api.entity.AlertStatus;
+import com.example.electric_api.entity.Device;
+import com.example.electric_api.repository.AlertLevelRepository;
+import com.example.electric_api.repository.AlertStatusRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single write path for generated alerts. Open alerts are keyed by (device, alert type): a repeat
+ * of an open alert updates its actual value, occurrence count and last occurrence time instead
+ * of inserting another row, so an alert storm costs one UPDATE per device rather than one row
+ * per reading.
+ *
+ * New alerts are also rolled up per station: once alerts from incident-min-devices different
+ * devices of one station open within incident-window-seconds, they are grouped under an
+ * AlertIncident, and further alerts of that station join it until the station has been quiet
+ * for the window.
+ */
+@Component
+public class AlertCoalescer {
+
+    static final String INSERT_ALERT_SQL =
+        "INSERT INTO alerts (device_id, alert_level_id, alert_status_id, title, description, alert_type, " +
+        "threshold_value, actual_value, occurrence_count, last_occurrence_at, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    static final String REPEAT_ALERT_SQL =
+        "UPDATE alerts SET actual_value = ?, occurrence_count = occurrence_count + ?, last_occurrence_at = ? " +
+        "WHERE id = ? AND resolved_at IS NULL";
+
+    static final String OPEN_ALERTS_SQL =
+        "SELECT a.id, a.device_id, a.alert_type, a.incident_id, d.station_id FROM alerts a " +
+        "JOIN devices d ON d.id = a.device_id WHERE a.resolved_at IS NULL ORDER BY a.id";
+
+    static final String OPEN_INCIDENTS_SQL =
+        "SELECT id, station_id, alert_count, last_alert_at FROM alert_incidents WHERE closed_at IS NULL";
+
+    static final String INSERT_INCIDENT_SQL =
+        "INSERT INTO alert_incidents (station_id, title, alert_count, device_count, opened_at, last_alert_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?)";
+
+    static final String UPDATE_INCIDENT_SQL =
+        "UPDATE alert_incidents SET alert_count = ?, device_count = ?, last_alert_at = ? WHERE id = ?";
+
+    static final String ATTACH_ALERT_SQL = "UPDATE alerts SET incident_id = ? WHERE id = ?";
+
+    static final String CLOSE_INCIDENT_SQL = "UPDATE alert_incidents SET closed_at = ? WHERE id = ?";
+
+    private static final Alert.AlertType[] TYPES = Alert.AlertType.values();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AlertStatusRepository alertStatusRepository;
+
+    @Autowired
+    private AlertLevelRepository alertLevelRepository;
+
+    @Autowired
+    private DeviceLatestValueCache deviceLatestValueCache;
+
+    @Autowired
+    private OpenAlertIndex openAlertIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.alerts.rules.new-status:NEW}")
+    private String newStatusName;
+
+    @Value("${app.alerts.coalesce.incident-window-seconds:300}")
+    private long incidentWindowSeconds;
+
+    @Value("${app.alerts.coalesce.incident-min-devices:3}")
+    private int incidentMinDevices;
+
+    @Value("${app.alerts.device-offline.level:CRITICAL}")
+    private String deviceOfflineLevel;
+
+    // Guarded by this, and only changed once the writes behind a change have committed
+    private final Map<Long, OpenAlert> openAlerts = new HashMap<>();
+    private final Map<Long, StationWindow> stations = new HashMap<>();
+
+    // Held across a batch's writes and commit so the next batch plans against committed state;
+    // the monitor above is never held during database I/O
+    private final Object writeLock = new Object();
+    private volatile Long newStatusId;
+
+    private final LongAdder inserted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder incidentsOpened = new LongAdder();
+
+    /** One alert to raise; stationId may be null and is then taken from the latest-value cache. */
+    public static final class Candidate {
+        final long deviceId;
+        final Long stationId;
+        final long levelId;
+        final Alert.AlertType alertType;
+        final String title;
+        final String description;
+        final BigDecimal thresholdValue;
+        final BigDecimal actualValue;
+        final LocalDateTime timestamp;
+
+        public Candidate(long deviceId, Long stationId, long levelId, Alert.AlertType alertType, String title,
+                         String description, BigDecimal thresholdValue, BigDecimal actualValue,
+                         LocalDateTime timestamp) {
+            this.deviceId = deviceId;
+            this.stationId = stationId;
+            this.levelId = levelId;
+            this.alertType = alertType;
+            this.title = title;
+            this.description = description;
+            this.thresholdValue = thresholdValue;
+            this.actualValue = actualValue;
+            this.timestamp = timestamp;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        synchronized (writeLock) {
+            try {
+                newStatusId = resolveNewStatusId();
+
+                long now = System.currentTimeMillis();
+                Map<Long, StationWindow> loadedStations = new HashMap<>();
+                Map<Long, OpenAlert> loadedAlerts = new HashMap<>();
+                jdbcTemplate.query(OPEN_INCIDENTS_SQL, rs -> {
+                    Incident incident = new Incident(rs.getLong(1), rs.getInt(3));
+                    Timestamp last = rs.getTimestamp(4);
+                    incident.lastAlertMillis = last != null ? last.getTime() : now;
+                    loadedStations.computeIfAbsent(rs.getLong(2), id -> new StationWindow()).incident = incident;
+                });
+                // Rows from before coalescing may repeat a key; the newest one stays open for repeats
+                jdbcTemplate.query(OPEN_ALERTS_SQL, rs -> {
+                    OpenAlert alert = new OpenAlert(rs.getLong(1), rs.getLong(2), (Long) rs.getObject(5));
+                    alert.incidentId = (Long) rs.getObject(4);
+                    loadedAlerts.put(key(alert.deviceId, Alert.AlertType.valueOf(rs.getString(3))), alert);
+                    Incident incident = alert.stationId != null
+                        ? incidentOf(alert, loadedStations.get(alert.stationId)) : null;
+                    if (incident != null) {
+                        incident.devices.add(alert.deviceId);
+                    }
+                });
+                synchronized (this) {
+                    openAlerts.clear();
+                    openAlerts.putAll(loadedAlerts);
+                    stations.clear();
+                    stations.putAll(loadedStations);
+                }
+                sweep();
+                System.out.println("🧲 Alert coalescer tracking " + loadedAlerts.size() + " open alerts and " +
+                    getOpenIncidentCount() + " open incidents");
+            } catch (Exception e) {
+                System.out.println("⚠️ Could not load open alerts for coalescing: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Raises DEVICE_OFFLINE when a committed change takes a device offline. */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        DeviceChangedEvent.State after = event.getAfter();
+        if (after == null || after.getStatus() != Device.DeviceStatus.OFFLINE
+                || (event.getBefore() != null && event.getBefore().getStatus() == Device.DeviceStatus.OFFLINE)) {
+            return;
+        }
+        Optional<AlertLevel> level = alertLevelRepository.findByName(deviceOfflineLevel);
+        if (level.isEmpty()) {
+            System.out.println("⚠️ No '" + deviceOfflineLevel + "' alert level; DEVICE_OFFLINE not raised");
+            return;
+        }
+        // The device transaction has already committed; submit writes in its own
+        submit(List.of(new Candidate(event.getDeviceId(), after.getStationId(),
+            level.get().getId(), Alert.AlertType.DEVICE_OFFLINE, "Device offline", "Device reported OFFLINE",
+            null, null, LocalDateTime.now())));
+    }
+
+    /**
+     * Inserts new alerts, folds repeats of open ones into them and rolls new alerts up into incidents.
+     * The rows are written in a transaction of their own, and the open alerts and incidents tracked in
+     * memory only change once it commits.
+     */
+    public void submit(List<Candidate> candidates) {
+        if (candidates.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            if (newStatusId == null) {
+                newStatusId = resolveNewStatusId();
+                if (newStatusId == null) {
+                    dropped.add(candidates.size());
+                    System.out.println("⚠️ No '" + newStatusName + "' alert status; dropped " + candidates.size() + " alerts");
+                    return;
+                }
+            }
+            newTransaction().executeWithoutResult(status -> write(candidates));
+        }
+    }
+
+    // Runs under writeLock inside the submit transaction
+    private void write(List<Candidate> candidates) {
+        long nowMillis = System.currentTimeMillis();
+        Timestamp now = new Timestamp(nowMillis);
+
+        // Collapse the batch per key first: one insert or one update per (device, type)
+        Map<OpenAlert, Repeat> repeats = new LinkedHashMap<>();
+        Map<Long, Repeat> fresh = new LinkedHashMap<>();
+        synchronized (this) {
+            for (Candidate candidate : candidates) {
+                long key = key(candidate.deviceId, candidate.alertType);
+                OpenAlert open = openAlerts.get(key);
+                Repeat repeat = open != null ? repeats.get(open) : fresh.get(key);
+                if (repeat == null) {
+                    repeat = new Repeat(candidate);
+                    if (open != null) {
+                        repeats.put(open, repeat);
+                    } else {
+                        fresh.put(key, repeat);
+                    }
+                } else {
+                    repeat.add(candidate);
+                }
+            }
+        }
+
+        // An alert resolved since the plan was made matches no row; its occurrences open a new alert
+        Map<Long, OpenAlert> resolved = new HashMap<>();
+        if (!repeats.isEmpty()) {
+            List<OpenAlert> targets = new ArrayList<>(repeats.keySet());
+            List<Object[]> updates = new ArrayList<>(targets.size());
+            for (OpenAlert target : targets) {
+                Repeat repeat = repeats.get(target);
+                updates.add(new Object[]{repeat.latest.actualValue, repeat.count,
+                    Timestamp.valueOf(repeat.latest.timestamp), target.id});
+            }
+            int[] counts = jdbcTemplate.batchUpdate(REPEAT_ALERT_SQL, updates);
+            for (int i = 0; i < targets.size(); i++) {
+                if (counts[i] == 0) {
+                    Repeat repeat = repeats.remove(targets.get(i));
+                    long key = key(repeat.first.deviceId, repeat.first.alertType);
+                    resolved.put(key, targets.get(i));
+                    fresh.put(key, repeat);
+                }
+            }
+        }
+
+        Changes changes = new Changes(repeats, resolved, candidates.size() - fresh.size());
+        Set<Incident> touched = new LinkedHashSet<>();
+        for (Map.Entry<OpenAlert, Repeat> entry : repeats.entrySet()) {
+            Incident incident = entry.getKey().stationId != null
+                ? incidentOf(entry.getKey(), changes.window(entry.getKey().stationId)) : null;
+            if (incident != null) {
+                incident.lastAlertMillis = nowMillis;
+                touched.add(incident);
+            }
+        }
+
+        if (!fresh.isEmpty()) {
+            List<Repeat> rows = new ArrayList<>(fresh.values());
+            long[] ids = insertAlerts(rows);
+            changes.inserted = rows.size();
+            for (int i = 0; ids != null && i < rows.size(); i++) {
+                Repeat row = rows.get(i);
+                Candidate candidate = row.latest;
+                Long stationId = candidate.stationId != null ? candidate.stationId
+                    : deviceLatestValueCache.getStationId(candidate.deviceId);
+                OpenAlert alert = new OpenAlert(ids[i], candidate.deviceId, stationId);
+                changes.opened.put(key(candidate.deviceId, candidate.alertType), alert);
+                changes.entries.add(openAlertIndex.newEntry(ids[i], candidate.deviceId, stationId,
+                    candidate.alertType, candidate.levelId, candidate.title, candidate.description,
+                    candidate.thresholdValue, candidate.actualValue, row.count, row.first.timestamp,
+                    candidate.timestamp, null));
+                if (stationId != null) {
+                    rollUp(alert, nowMillis, now, changes, touched);
+                }
+            }
+            if (!changes.attached.isEmpty()) {
+                List<Object[]> attachments = new ArrayList<>(changes.attached.size());
+                changes.attached.forEach((alert, incidentId) -> attachments.add(new Object[]{incidentId, alert.id}));
+                jdbcTemplate.batchUpdate(ATTACH_ALERT_SQL, attachments);
+            }
+        }
+
+        if (!touched.isEmpty()) {
+            List<Object[]> incidentUpdates = new ArrayList<>(touched.size());
+            for (Incident incident : touched) {
+                incidentUpdates.add(new Object[]{incident.alertCount, incident.devices.size(),
+                    new Timestamp(incident.lastAlertMillis), incident.id});
+            }
+            jdbcTemplate.batchUpdate(UPDATE_INCIDENT_SQL, incidentUpdates);
+        }
+
+        afterCommit(() -> apply(changes));
+    }
+
+    private synchronized void apply(Changes changes) {
+        for (Map.Entry<OpenAlert, Repeat> entry : changes.repeats.entrySet()) {
+            Repeat repeat = entry.getValue();
+            openAlertIndex.recordRepeat(entry.getKey().id, repeat.latest.actualValue, repeat.count,
+                repeat.latest.timestamp);
+        }
+        changes.resolved.forEach(openAlerts::remove);
+        openAlerts.putAll(changes.opened);
+        for (OpenAlertEntry entry : changes.entries) {
+            openAlertIndex.put(entry);
+        }
+        changes.attached.forEach((alert, incidentId) -> {
+            alert.incidentId = incidentId;
+            openAlertIndex.setIncident(alert.id, incidentId);
+        });
+        stations.putAll(changes.windows);
+        for (Incident incident : changes.incidents) {
+            System.out.println("🧲 Opened alert incident " + incident.id + " for station " + incident.stationId +
+                " (" + incident.devices.size() + " devices)");
+        }
+        inserted.add(changes.inserted);
+        coalesced.add(changes.coalesced);
+        incidentsOpened.add(changes.incidents.size());
+    }
+
+    /** Raises one alert; returns the id of the open alert it was inserted as or folded into. */
+    public Long raise(Candidate candidate) {
+        submit(List.of(candidate));
+        synchronized (this) {
+            OpenAlert open = openAlerts.get(key(candidate.deviceId, candidate.alertType));
+            return open != null ? open.id : null;
+        }
+    }
+
+    /** Forgets a resolved alert so the next occurrence of its (device, type) opens a new one. */
+    public synchronized void onResolved(Long alertId, Long deviceId, Alert.AlertType alertType) {
+        long key = key(deviceId, alertType);
+        OpenAlert open = openAlerts.get(key);
+        if (open != null && open.id == alertId) {
+            openAlerts.remove(key);
+        }
+    }
+
+    /** Closes incidents whose station has been quiet for the window and drops expired candidates. */
+    @Scheduled(fixedDelayString = "${app.alerts.coalesce.sweep-interval-ms:60000}")
+    public void sweep() {
+        synchronized (writeLock) {
+            long nowMillis = System.currentTimeMillis();
+            long cutoffMillis = nowMillis - incidentWindowSeconds * 1000;
+            Set<Long> quiet = new HashSet<>();
+            synchronized (this) {
+                for (StationWindow window : stations.values()) {
+                    if (window.incident != null && window.incident.lastAlertMillis < cutoffMillis) {
+                        quiet.add(window.incident.id);
+                    }
+                }
+            }
+            if (!quiet.isEmpty()) {
+                List<Object[]> closes = new ArrayList<>(quiet.size());
+                for (Long id : quiet) {
+                    closes.add(new Object[]{new Timestamp(nowMillis), id});
+                }
+                newTransaction().executeWithoutResult(status -> {
+                    jdbcTemplate.batchUpdate(CLOSE_INCIDENT_SQL, closes);
+                    afterCommit(() -> System.out.println("🧲 Closed " + closes.size() + " quiet alert incidents"));
+                });
+            }
+            prune(quiet, cutoffMillis);
+        }
+    }
+
+    // Drops the closed incidents and expired candidates, then windows with neither left
+    private synchronized void prune(Set<Long> closedIncidents, long cutoffMillis) {
+        Iterator<StationWindow> iterator = stations.values().iterator();
+        while (iterator.hasNext()) {
+            StationWindow window = iterator.next();
+            if (window.incident != null && closedIncidents.contains(window.incident.id)) {
+                window.incident = null;
+            }
+            window.prune(cutoffMillis);
+            if (window.incident == null && window.recent.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("openAlerts", openAlerts.size());
+        stats.put("openIncidents", getOpenIncidentCount());
+        stats.put("alertsInserted", inserted.sum());
+        stats.put("occurrencesCoalesced", coalesced.sum());
+        stats.put("alertsDropped", dropped.sum());
+        stats.put("incidentsOpened", incidentsOpened.sum());
+        stats.put("incidentWindowSeconds", incidentWindowSeconds);
+        stats.put("incidentMinDevices", incidentMinDevices);
+        return stats;
+    }
+
+    private void rollUp(OpenAlert alert, long nowMillis, Timestamp now, Changes changes, Set<Incident> touched) {
+        long windowMillis = incidentWindowSeconds * 1000;
+        StationWindow window = changes.window(alert.stationId);
+        if (window.incident != null && nowMillis - window.incident.lastAlertMillis > windowMillis) {
+            jdbcTemplate.update(CLOSE_INCIDENT_SQL, now, window.incident.id);
+            touched.remove(window.incident);
+            window.incident = null;
+        }
+        if (window.incident != null) {
+            attach(window.incident, alert, nowMillis, changes);
+            touched.add(window.incident);
+            return;
+        }
+
+        window.prune(nowMillis - windowMillis);
+        window.recent.add(new Pending(alert, nowMillis));
+        Set<Long> devices = new HashSet<>();
+        for (Pending pending : window.recent) {
+            devices.add(pending.alert.deviceId);
+        }
+        if (devices.size() < Math.max(2, incidentMinDevices)) {
+            return;
+        }
+
+        Incident incident = openIncident(alert.stationId, window.recent.size(), devices.size(), now);
+        if (incident == null) {
+            return;
+        }
+        for (Pending pending : window.recent) {
+            attach(incident, pending.alert, nowMillis, changes);
+        }
+        window.recent.clear();
+        window.incident = incident;
+        changes.incidents.add(incident);
+    }
+
+    private Incident openIncident(Long stationId, int alertCount, int deviceCount, Timestamp now) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_INCIDENT_SQL, Statement.RETURN_GENERATED_KEYS);
+            ps.setLong(1, stationId);
+            ps.setString(2, "Correlated alerts at station #" + stationId);
+            ps.setInt(3, alertCount);
+            ps.setInt(4, deviceCount);
+            ps.setTimestamp(5, now);
+            ps.setTimestamp(6, now);
+            return ps;
+        }, keys);
+        if (keys.getKey() == null) {
+            return null;
+        }
+        // attach() counts the member alerts again
+        Incident incident = new Incident(keys.getKey().longValue(), 0);
+        incident.stationId = stationId;
+        return incident;
+    }
+
+    private void attach(Incident incident, OpenAlert alert, long nowMillis, Changes changes) {
+        changes.attached.put(alert, incident.id);
+        incident.alertCount++;
+        incident.devices.add(alert.deviceId);
+        incident.lastAlertMillis = nowMillis;
+    }
+
+    private static Incident incidentOf(OpenAlert alert, StationWindow window) {
+        if (alert.incidentId == null) {
+            return null;
+        }
+        return window != null && window.incident != null && window.incident.id == alert.incidentId
+            ? window.incident : null;
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return transaction;
+    }
+
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // Returns the generated ids in row order, or null when the driver does not report them
+    private long[] insertAlerts(List<Repeat> rows) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_ALERT_SQL, new String[]{"id"}),
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    Repeat row = rows.get(i);
+                    Candidate candidate = row.latest;
+                    Timestamp timestamp = Timestamp.valueOf(candidate.timestamp);
+                    ps.setLong(1, candidate.deviceId);
+                    ps.setLong(2, candidate.levelId);
+                    ps.setLong(3, newStatusId);
+                    ps.setString(4, candidate.title);
+                    ps.setString(5, candidate.description);
+                    ps.setString(6, candidate.alertType.name());
+                    ps.setBigDecimal(7, candidate.thresholdValue);
+                    ps.setBigDecimal(8, candidate.actualValue);
+                    ps.setInt(9, row.count);
+                    ps.setTimestamp(10, timestamp);
+                    ps.setTimestamp(11, Timestamp.valueOf(row.first.timestamp));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return rows.size();
+                }
+            }, keys);
+
+        List<Map<String, Object>> generated = keys.getKeyList();
+        if (generated.size() != rows.size()) {
+            System.out.println("⚠️ Driver returned " + generated.size() + " keys for " + rows.size() +
+                " alerts; they will not be coalesced");
+            return null;
+        }
+        long[] ids = new long[rows.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = ((Number) generated.get(i).values().iterator().next()).longValue();
+        }
+        return ids;
+    }
+
+    private Long resolveNewStatusId() {
+        Optional<AlertStatus> status = alertStatusRepository.findByName(newStatusName);
+        if (status.isPresent()) {
+            return status.get().getId();
+        }
+        List<AlertStatus> byPriority = alertStatusRepository.findAllByPriorityOrder();
+        return byPriority.isEmpty() ? null : byPriority.get(0).getId();
+    }
+
+    private synchronized int getOpenIncidentCount() {
+        int count = 0;
+        for (StationWindow window : stations.values()) {
+            if (window.incident != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long key(long deviceId, Alert.AlertType type) {
+        return deviceId * TYPES.length + type.ordinal();
+    }
+
+    private static final class OpenAlert {
+        final long id;
+        final long deviceId;
+        final Long stationId;
+        Long incidentId;
+
+        OpenAlert(long id, long deviceId, Long stationId) {
+            this.id = id;
+            this.deviceId = deviceId;
+            this.stationId = stationId;
+        }
+    }
+
+    /** Occurrences of one key within a submitted batch. */
+    private static final class Repeat {
+        final Candidate first;
+        Candidate latest;
+        int count = 1;
+
+        Repeat(Candidate candidate) {
+            this.first = candidate;
+            this.latest = candidate;
+        }
+
+        void add(Candidate candidate) {
+            if (!candidate.timestamp.isBefore(latest.timestamp)) {
+                latest = candidate;
+            }
+            count++;
+        }
+    }
+
+    private static final class Incident {
+        final long id;
+        final Set<Long> devices = new HashSet<>();
+        Long stationId;
+        int alertCount;
+        long lastAlertMillis;
+
+        Incident(long id, int alertCount) {
+            this.id = id;
+            this.alertCount = alertCount;
+        }
+
+        Incident copy() {
+            Incident copy = new Incident(id, alertCount);
+            copy.devices.addAll(devices);
+            copy.stationId = stationId;
+            copy.lastAlertMillis = lastAlertMillis;
+            return copy;
+        }
+    }
+
+    private static final class Pending {
+        final OpenAlert alert;
+        final long openedMillis;
+
+        Pending(OpenAlert alert, long openedMillis) {
+            this.alert = alert;
+            this.openedMillis = openedMillis;
+        }
+    }
+
+    /** Alerts opened at one station that have not formed an incident yet, or the station's open incident. */
+    private static final class StationWindow {
+        final ArrayDeque<Pending> recent = new ArrayDeque<>();
+        Incident incident;
+
+        void prune(long cutoffMillis) {
+            while (!recent.isEmpty() && recent.peekFirst().openedMillis < cutoffMillis) {
+                recent.pollFirst();
+            }
+        }
+
+        StationWindow copy() {
+            StationWindow copy = new StationWindow();
+            copy.recent.addAll(recent);
+            copy.incident = incident != null ? incident.copy() : null;
+            return copy;
+        }
+    }
+
+    /**
+     * What one submitted batch changes in memory. Station windows are worked on as copies and
+     * replace the live ones after commit, so a rolled-back batch leaves nothing behind.
+     */
+    private final class Changes {
+        final Map<OpenAlert, Repeat> repeats;
+        final Map<Long, OpenAlert> resolved;
+        final Map<Long, OpenAlert> opened = new LinkedHashMap<>();
+        final List<OpenAlertEntry> entries = new ArrayList<>();
+        final Map<OpenAlert, Long> attached = new LinkedHashMap<>();
+        final Map<Long, StationWindow> windows = new HashMap<>();
+        final List<Incident> incidents = new ArrayList<>();
+        final int coalesced;
+        int inserted;
+
+        Changes(Map<OpenAlert, Repeat> repeats, Map<Long, OpenAlert> resolved, int coalesced) {
+            this.repeats = repeats;
+            this.resolved = resolved;
+            this.coalesced = coalesced;
+        }
+
+        StationWindow window(Long stationId) {
+            StationWindow window = windows.get(stationId);
+            if (window == null) {
+                StationWindow live;
+                synchronized (AlertCoalescer.this) {
+                    live = stations.get(stationId);
+                }
+                window = live != null ? live.copy() : new StationWindow();
+                windows.put(stationId, window);
+            }
+            return window;
+        }
+    }
+}
@@ -0,0 +1,657 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.TelemetryReading;
+import com.example.electric_api.dto.TelemetrySeries;
+import com.example.electric_api.entity.Alert;
+import com.example.electric_api.entity.AlertRule;
+import com.example.electric_api.repository.AlertLevelRepository;
+import com.example.electric_api.repository.AlertRuleRepository;
+import com.example.electric_api.repository.DeviceRepository;
+import com.example.electric_api.repository.DeviceTypeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evaluates every committed reading against the active AlertRules and hands the resulting
+ * alerts of each ingest batch to the AlertCoalescer in one call.
+ *
+ * Rules are compiled into flat arrays: each device id maps to a slot (its device type), and
+ * each slot owns a contiguous range of rule indices holding the kind, metric index, limits and
+ * window parameters. Evaluating a reading is an array lookup plus a loop over that range,
+ * with no map lookups or reflection. A rule raises one alert when its condition starts to
+ * hold and re-arms once the value is back beyond its clear limit (hysteresis).
+ *
+ * Windowed rules keep per-device, per-rule state: a start time for DURATION, a bit mask of
+ * the last M outcomes for N_OF_M and a fixed-size ring of (timestamp, value) for
+ * RATE_OF_CHANGE. State is keyed by rule id and carried over when rules are recompiled.
+ * Device changes only mark the rules stale; a background tick recompiles once per burst of
+ * changes instead of on every commit.
+ */
+@Component
+public class AlertRuleEngine implements TelemetryListener {
+
+    private static final int VOLTAGE = TelemetrySeries.METRICS.indexOf("voltage");
+    private static final int CURRENT = TelemetrySeries.METRICS.indexOf("current");
+    private static final int TEMPERATURE = TelemetrySeries.METRICS.indexOf("temperature");
+
+    private static final AlertRule.Kind[] KINDS = AlertRule.Kind.values();
+    private static final int KIND_DURATION = AlertRule.Kind.DURATION.ordinal();
+    private static final int KIND_RATE_OF_CHANGE = AlertRule.Kind.RATE_OF_CHANGE.ordinal();
+    private static final int KIND_N_OF_M = AlertRule.Kind.N_OF_M.ordinal();
+
+    private static final int MAX_WINDOW_SAMPLES = 64;
+    private static final BigDecimal MAX_STORED_VALUE = new BigDecimal("99999999.99");
+
+    @Autowired
+    private AlertRuleRepository alertRuleRepository;
+
+    @Autowired
+    private AlertLevelRepository alertLevelRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private DeviceTypeRepository deviceTypeRepository;
+
+    @Autowired
+    private AlertCoalescer alertCoalescer;
+
+    @Value("${app.alerts.rules.rate-window-capacity:32}")
+    private int rateWindowCapacity;
+
+    private volatile CompiledRules compiled = CompiledRules.EMPTY;
+    private volatile LocalDateTime lastReloadAt;
+    private final AtomicBoolean devicesChanged = new AtomicBoolean();
+
+    private final LongAdder evaluated = new LongAdder();
+    private final LongAdder fired = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        reload();
+    }
+
+    // A device moving to another type (or being added/removed) changes its slot
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        Long typeBefore = event.getBefore() != null ? event.getBefore().getDeviceTypeId() : null;
+        Long typeAfter = event.getAfter() != null ? event.getAfter().getDeviceTypeId() : null;
+        if ((event.getBefore() == null) != (event.getAfter() == null) || !Objects.equals(typeBefore, typeAfter)) {
+            devicesChanged.set(true);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.alerts.rules.device-reload-interval-ms:2000}")
+    public void reloadIfDevicesChanged() {
+        if (devicesChanged.compareAndSet(true, false)) {
+            reload();
+        }
+    }
+
+    /** Recompiles the active rules and device types, keeping window state; returns the compiled summary. */
+    public synchronized Map<String, Object> reload() {
+        // Covers any device change still waiting for the tick
+        devicesChanged.set(false);
+        try {
+            List<AlertRule> rules = new ArrayList<>();
+            for (AlertRule rule : alertRuleRepository.findByIsActiveTrueOrderById()) {
+                try {
+                    validate(rule);
+                    rules.add(rule);
+                } catch (IllegalArgumentException e) {
+                    System.out.println("⚠️ Skipping alert rule " + rule.getId() + ": " + e.getMessage());
+                }
+            }
+            compiled = compile(rules, deviceRepository.findActiveDeviceTypeIds(), compiled);
+            lastReloadAt = LocalDateTime.now();
+            System.out.println("📏 Compiled " + rules.size() + " alert rules into " + compiled.ruleCount() +
+                " slot entries for " + compiled.deviceCount + " devices");
+        } catch (Exception e) {
+            System.out.println("❌ Alert rule reload failed: " + e.getMessage());
+        }
+        return getStats();
+    }
+
+    @Override
+    public void onReadings(List<TelemetryReading> readings) {
+        CompiledRules rules = compiled;
+        if (rules.ruleCount() == 0) {
+            return;
+        }
+
+        List<AlertCoalescer.Candidate> alerts = null;
+        List<RuleState> firedRules = null;
+        List<DeviceState> firedDevices = null;
+        double[] values = new double[TelemetrySeries.METRICS.size()];
+        for (TelemetryReading reading : readings) {
+            long deviceId = reading.getDeviceId();
+            if (deviceId < 0 || deviceId >= rules.slotByDevice.length) {
+                continue;
+            }
+            int slot = rules.slotByDevice[(int) deviceId];
+            if (slot < 0) {
+                continue;
+            }
+            values[0] = TelemetrySeries.toDouble(reading.getVoltage());
+            values[1] = TelemetrySeries.toDouble(reading.getCurrent());
+            values[2] = TelemetrySeries.toDouble(reading.getPower());
+            values[3] = TelemetrySeries.toDouble(reading.getFrequency());
+            values[4] = TelemetrySeries.toDouble(reading.getTemperature());
+            LocalDateTime timestamp = reading.getTimestamp() != null ? reading.getTimestamp() : LocalDateTime.now();
+            long millis = TelemetrySeries.toEpochMillis(timestamp);
+
+            int start = rules.slotStart[slot];
+            int end = rules.slotStart[slot + 1];
+            DeviceState state = rules.states[(int) deviceId];
+            // Writer threads may hold batches of the same device
+            synchronized (state) {
+                for (int r = start; r < end; r++) {
+                    double value = values[rules.metric[r]];
+                    if (Double.isNaN(value)) {
+                        continue;
+                    }
+                    RuleState ruleState = state.get(rules.ruleId[r], r - start);
+                    double measured = evaluate(rules, r, ruleState, millis, value);
+                    if (Double.isNaN(measured)) {
+                        continue;
+                    }
+                    if (ruleState.justFired) {
+                        ruleState.justFired = false;
+                        if (alerts == null) {
+                            alerts = new ArrayList<>();
+                            firedRules = new ArrayList<>();
+                            firedDevices = new ArrayList<>();
+                        }
+                        alerts.add(candidate(rules, r, deviceId, value, measured, timestamp));
+                        firedRules.add(ruleState);
+                        firedDevices.add(state);
+                    }
+                }
+            }
+        }
+        evaluated.add(readings.size());
+
+        if (alerts != null) {
+            fired.add(alerts.size());
+            try {
+                alertCoalescer.submit(alerts);
+            } catch (Exception e) {
+                // Nothing was stored: re-arm the rules so they fire again on their next breaching
+                // sample instead of staying silent until the condition clears
+                failed.add(alerts.size());
+                for (int i = 0; i < firedRules.size(); i++) {
+                    synchronized (firedDevices.get(i)) {
+                        firedRules.get(i).firing = false;
+                    }
+                }
+                System.out.println("❌ Could not store " + alerts.size() + " alerts; their rules were re-armed: " + e.getMessage());
+            }
+        }
+    }
+
+    public List<AlertRule> getRules() {
+        return alertRuleRepository.findAll();
+    }
+
+    public AlertRule createRule(AlertRule rule) {
+        if (rule.getName() == null || rule.getName().isBlank()) {
+            throw new IllegalArgumentException("name is required");
+        }
+        validate(rule);
+        if (rule.getAlertLevelId() == null || !alertLevelRepository.existsById(rule.getAlertLevelId())) {
+            throw new IllegalArgumentException("alertLevelId must reference an existing alert level");
+        }
+        if (rule.getDeviceTypeId() != null && !deviceTypeRepository.existsById(rule.getDeviceTypeId())) {
+            throw new IllegalArgumentException("deviceTypeId must reference an existing device type");
+        }
+        rule.setId(null);
+        rule.setIsActive(true);
+        AlertRule saved = alertRuleRepository.save(rule);
+        reload();
+        return saved;
+    }
+
+    public void deactivateRule(Long ruleId) {
+        AlertRule rule = alertRuleRepository.findById(ruleId)
+            .orElseThrow(() -> new RuntimeException("Alert rule not found with id: " + ruleId));
+        rule.setIsActive(false);
+        alertRuleRepository.save(rule);
+        reload();
+    }
+
+    public Map<String, Object> getStats() {
+        CompiledRules rules = compiled;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("compiledRules", rules.ruleCount());
+        stats.put("devices", rules.deviceCount);
+        stats.put("readingsEvaluated", evaluated.sum());
+        stats.put("alertsRaised", fired.sum());
+        stats.put("alertsFailed", failed.sum());
+        stats.put("lastReloadAt", lastReloadAt);
+        return stats;
+    }
+
+    /**
+     * Updates the rule's window state with one sample and returns the measured value compared
+     * against the limits (sign-adjusted value, or sign-adjusted rate per minute), or NaN when
+     * there is not enough history yet. Sets justFired when the rule starts firing.
+     */
+    private static double evaluate(CompiledRules rules, int r, RuleState state, long millis, double value) {
+        int kind = rules.kind[r];
+        double measured;
+        if (kind == KIND_RATE_OF_CHANGE) {
+            double rate = state.pushAndRate(millis, value, rules.windowMillis[r]);
+            if (Double.isNaN(rate)) {
+                return Double.NaN;
+            }
+            measured = rules.sign[r] * rate;
+        } else {
+            measured = rules.sign[r] * value;
+        }
+
+        boolean breached = measured > rules.limit[r];
+        boolean triggered;
+        if (kind == KIND_DURATION) {
+            if (breached) {
+                if (state.breachSince == Long.MIN_VALUE) {
+                    state.breachSince = millis;
+                }
+                triggered = millis - state.breachSince >= rules.windowMillis[r];
+            } else {
+                state.breachSince = Long.MIN_VALUE;
+                triggered = false;
+            }
+        } else if (kind == KIND_N_OF_M) {
+            state.bits = ((state.bits << 1) | (breached ? 1L : 0L)) & rules.sampleMask[r];
+            triggered = Long.bitCount(state.bits) >= rules.requiredSamples[r];
+        } else {
+            triggered = breached;
+        }
+
+        if (!state.firing && triggered) {
+            state.firing = true;
+            state.justFired = true;
+        } else if (state.firing && !triggered && measured <= rules.clearLimit[r]) {
+            state.firing = false;
+        }
+        return measured;
+    }
+
+    private static AlertCoalescer.Candidate candidate(CompiledRules rules, int r, long deviceId, double value, double measured,
+                                     LocalDateTime timestamp) {
+        String metric = TelemetrySeries.METRICS.get(rules.metric[r]);
+        String direction = rules.sign[r] > 0 ? "above" : "below";
+        String threshold = rules.thresholdValue[r].toPlainString();
+        BigDecimal actual;
+        String description;
+        switch (KINDS[rules.kind[r]]) {
+            case RATE_OF_CHANGE:
+                actual = stored(rules.sign[r] * measured);
+                description = metric + " " + (rules.sign[r] > 0 ? "rising" : "falling") + " " +
+                    actual.abs().toPlainString() + "/min, limit " + threshold + "/min over " +
+                    rules.windowMillis[r] / 1000 + "s";
+                break;
+            case DURATION:
+                actual = stored(value);
+                description = metric + " " + actual.toPlainString() + " " + direction + " " + threshold +
+                    " for " + rules.windowMillis[r] / 1000 + "s";
+                break;
+            case N_OF_M:
+                actual = stored(value);
+                description = metric + " " + actual.toPlainString() + " " + direction + " " + threshold + " in " +
+                    rules.requiredSamples[r] + " of the last " + Long.bitCount(rules.sampleMask[r]) + " samples";
+                break;
+            default:
+                actual = stored(value);
+                description = metric + " " + actual.toPlainString() + " " + direction + " " + threshold;
+        }
+        return new AlertCoalescer.Candidate(deviceId, null, rules.levelId[r], rules.alertType[r], rules.name[r],
+            description + " (rule #" + rules.ruleId[r] + ")", rules.thresholdValue[r], actual, timestamp);
+    }
+
+    // alerts.actual_value is DECIMAL(10,2)
+    private static BigDecimal stored(double value) {
+        BigDecimal decimal = BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+        return decimal.abs().compareTo(MAX_STORED_VALUE) > 0
+            ? (decimal.signum() < 0 ? MAX_STORED_VALUE.negate() : MAX_STORED_VALUE)
+            : decimal;
+    }
+
+    /** Metric index a threshold alert type watches, or -1 when the type is not metric based. */
+    static int metricOf(Alert.AlertType type) {
+        if (type == null) {
+            return -1;
+        }
+        switch (type) {
+            case OVER_VOLTAGE:
+            case UNDER_VOLTAGE:
+                return VOLTAGE;
+            case OVER_CURRENT:
+            case UNDER_CURRENT:
+                return CURRENT;
+            case OVER_TEMPERATURE:
+                return TEMPERATURE;
+            default:
+                return -1;
+        }
+    }
+
+    private static AlertRule.Kind kindOf(AlertRule rule) {
+        return rule.getRuleKind() != null ? rule.getRuleKind() : AlertRule.Kind.THRESHOLD;
+    }
+
+    private static void validate(AlertRule rule) {
+        if (metricOf(rule.getAlertType()) < 0) {
+            throw new IllegalArgumentException("alertType must be one of OVER_VOLTAGE, UNDER_VOLTAGE, OVER_CURRENT, " +
+                "UNDER_CURRENT, OVER_TEMPERATURE");
+        }
+        if (rule.getThreshold() == null) {
+            throw new IllegalArgumentException("threshold is required");
+        }
+        int sign = rule.getAlertType().name().startsWith("UNDER") ? -1 : 1;
+        switch (kindOf(rule)) {
+            case DURATION:
+                if (rule.getDurationSeconds() == null || rule.getDurationSeconds() <= 0) {
+                    throw new IllegalArgumentException("DURATION rules need durationSeconds > 0");
+                }
+                break;
+            case RATE_OF_CHANGE:
+                if (rule.getThreshold().signum() <= 0) {
+                    throw new IllegalArgumentException("RATE_OF_CHANGE threshold is a rate per minute and must be > 0");
+                }
+                if (rule.getWindowSeconds() != null && rule.getWindowSeconds() <= 0) {
+                    throw new IllegalArgumentException("windowSeconds must be > 0");
+                }
+                break;
+            case N_OF_M:
+                Integer n = rule.getRequiredSamples();
+                Integer m = rule.getWindowSamples();
+                if (n == null || m == null || n < 1 || n > m || m > MAX_WINDOW_SAMPLES) {
+                    throw new IllegalArgumentException("N_OF_M rules need 1 <= requiredSamples <= windowSamples <= " +
+                        MAX_WINDOW_SAMPLES);
+                }
+                break;
+            default:
+                break;
+        }
+        if (rule.getClearThreshold() != null) {
+            boolean rate = kindOf(rule) == AlertRule.Kind.RATE_OF_CHANGE;
+            double limit = rate ? rule.getThreshold().doubleValue() : sign * rule.getThreshold().doubleValue();
+            double clear = rate ? rule.getClearThreshold().doubleValue() : sign * rule.getClearThreshold().doubleValue();
+            if (clear > limit) {
+                throw new IllegalArgumentException("clearThreshold must be on the normal side of threshold");
+            }
+        }
+    }
+
+    private CompiledRules compile(List<AlertRule> rules, List<Object[]> devices, CompiledRules previous) {
+        List<AlertRule> global = new ArrayList<>();
+        Map<Long, List<AlertRule>> byType = new HashMap<>();
+        for (AlertRule rule : rules) {
+            if (rule.getDeviceTypeId() == null) {
+                global.add(rule);
+            } else {
+                byType.computeIfAbsent(rule.getDeviceTypeId(), id -> new ArrayList<>()).add(rule);
+            }
+        }
+
+        long maxId = -1;
+        for (Object[] device : devices) {
+            maxId = Math.max(maxId, (Long) device[0]);
+        }
+        if (maxId >= Integer.MAX_VALUE) {
+            throw new IllegalStateException("Device ids above " + Integer.MAX_VALUE + " are not supported");
+        }
+
+        // One slot per device type with its own rules, plus one shared slot for the global-only case
+        Map<Long, Integer> slotByType = new HashMap<>();
+        List<List<AlertRule>> slotRules = new ArrayList<>();
+        int[] slotByDevice = new int[(int) maxId + 1];
+        Arrays.fill(slotByDevice, -1);
+        int deviceCount = 0;
+        for (Object[] device : devices) {
+            Long typeId = byType.containsKey((Long) device[1]) ? (Long) device[1] : null;
+            if (typeId == null && global.isEmpty()) {
+                continue;
+            }
+            Integer slot = slotByType.get(typeId);
+            if (slot == null) {
+                slot = slotRules.size();
+                slotByType.put(typeId, slot);
+                List<AlertRule> combined = new ArrayList<>(global);
+                if (typeId != null) {
+                    combined.addAll(byType.get(typeId));
+                }
+                slotRules.add(combined);
+            }
+            slotByDevice[((Long) device[0]).intValue()] = slot;
+            deviceCount++;
+        }
+
+        int total = 0;
+        for (List<AlertRule> entries : slotRules) {
+            total += entries.size();
+        }
+        CompiledRules compiled = new CompiledRules(slotByDevice, slotRules.size(), total, deviceCount);
+        int r = 0;
+        for (int slot = 0; slot < slotRules.size(); slot++) {
+            compiled.slotStart[slot] = r;
+            for (AlertRule rule : slotRules.get(slot)) {
+                AlertRule.Kind kind = kindOf(rule);
+                double sign = rule.getAlertType().name().startsWith("UNDER") ? -1 : 1;
+                double threshold = rule.getThreshold().doubleValue();
+                double clear = rule.getClearThreshold() != null ? rule.getClearThreshold().doubleValue() : threshold;
+
+                compiled.kind[r] = kind.ordinal();
+                compiled.metric[r] = metricOf(rule.getAlertType());
+                compiled.sign[r] = sign;
+                // Rates are compared as magnitudes in the rule's direction; levels are sign-adjusted
+                compiled.limit[r] = kind == AlertRule.Kind.RATE_OF_CHANGE ? threshold : sign * threshold;
+                compiled.clearLimit[r] = kind == AlertRule.Kind.RATE_OF_CHANGE ? clear : sign * clear;
+                if (kind == AlertRule.Kind.DURATION) {
+                    compiled.windowMillis[r] = rule.getDurationSeconds() * 1000L;
+                } else if (kind == AlertRule.Kind.RATE_OF_CHANGE) {
+                    compiled.windowMillis[r] = (rule.getWindowSeconds() != null ? rule.getWindowSeconds() : 60) * 1000L;
+                }
+                if (kind == AlertRule.Kind.N_OF_M) {
+                    int m = rule.getWindowSamples();
+                    compiled.sampleMask[r] = m == 64 ? -1L : (1L << m) - 1;
+                    compiled.requiredSamples[r] = rule.getRequiredSamples();
+                }
+                compiled.thresholdValue[r] = rule.getThreshold();
+                compiled.ruleId[r] = rule.getId();
+                compiled.levelId[r] = rule.getAlertLevelId();
+                compiled.alertType[r] = rule.getAlertType();
+                compiled.name[r] = rule.getName();
+                r++;
+            }
+        }
+        compiled.slotStart[slotRules.size()] = r;
+
+        // Reuse each device's state object so windows and firing flags survive the reload
+        for (int id = 0; id < slotByDevice.length; id++) {
+            int slot = slotByDevice[id];
+            if (slot < 0) {
+                continue;
+            }
+            DeviceState state = id < previous.states.length && previous.states[id] != null
+                ? previous.states[id]
+                : new DeviceState(rateWindowCapacity);
+            long[] ruleIds = Arrays.copyOfRange(compiled.ruleId, compiled.slotStart[slot], compiled.slotStart[slot + 1]);
+            synchronized (state) {
+                state.align(ruleIds);
+            }
+            compiled.states[id] = state;
+        }
+        return compiled;
+    }
+
+    /** Immutable after compile; mutable state lives in the per-device DeviceState objects. */
+    private static class CompiledRules {
+        static final CompiledRules EMPTY = new CompiledRules(new int[0], 0, 0, 0);
+
+        final int[] slotByDevice;
+        final int[] slotStart;
+        final int[] kind;
+        final int[] metric;
+        final double[] sign;
+        final double[] limit;
+        final double[] clearLimit;
+        final long[] windowMillis;
+        final long[] sampleMask;
+        final int[] requiredSamples;
+        final BigDecimal[] thresholdValue;
+        final long[] ruleId;
+        final long[] levelId;
+        final Alert.AlertType[] alertType;
+        final String[] name;
+        final DeviceState[] states;
+        final int deviceCount;
+
+        CompiledRules(int[] slotByDevice, int slots, int rules, int deviceCount) {
+            this.slotByDevice = slotByDevice;
+            this.slotStart = new int[slots + 1];
+            this.kind = new int[rules];
+            this.metric = new int[rules];
+            this.sign = new double[rules];
+            this.limit = new double[rules];
+            this.clearLimit = new double[rules];
+            this.windowMillis = new long[rules];
+            this.sampleMask = new long[rules];
+            this.requiredSamples = new int[rules];
+            this.thresholdValue = new BigDecimal[rules];
+            this.ruleId = new long[rules];
+            this.levelId = new long[rules];
+            this.alertType = new Alert.AlertType[rules];
+            this.name = new String[rules];
+            this.states = new DeviceState[slotByDevice.length];
+            this.deviceCount = deviceCount;
+        }
+
+        int ruleCount() {
+            return metric.length;
+        }
+    }
+
+    /**
+     * Rule states of one device, in the order of its slot's rules. Lookups go by position and
+     * fall back to the rule id, so an evaluator still holding the previous compile finds the
+     * right state while a reload is re-aligning it. Guarded by synchronizing on the instance.
+     */
+    private static final class DeviceState {
+        final int rateCapacity;
+        long[] ruleIds = new long[0];
+        RuleState[] rules = new RuleState[0];
+
+        DeviceState(int rateCapacity) {
+            this.rateCapacity = Math.max(2, rateCapacity);
+        }
+
+        RuleState get(long ruleId, int position) {
+            if (position < ruleIds.length && ruleIds[position] == ruleId) {
+                return rules[position];
+            }
+            for (int i = 0; i < ruleIds.length; i++) {
+                if (ruleIds[i] == ruleId) {
+                    return rules[i];
+                }
+            }
+            // Rule added by a compile this state has not been aligned to yet
+            ruleIds = Arrays.copyOf(ruleIds, ruleIds.length + 1);
+            rules = Arrays.copyOf(rules, rules.length + 1);
+            ruleIds[ruleIds.length - 1] = ruleId;
+            rules[rules.length - 1] = new RuleState(rateCapacity);
+            return rules[rules.length - 1];
+        }
+
+        void align(long[] newRuleIds) {
+            RuleState[] aligned = new RuleState[newRuleIds.length];
+            for (int i = 0; i < newRuleIds.length; i++) {
+                RuleState existing = null;
+                for (int j = 0; j < ruleIds.length; j++) {
+                    if (ruleIds[j] == newRuleIds[i]) {
+                        existing = rules[j];
+                        break;
+                    }
+                }
+                aligned[i] = existing != null ? existing : new RuleState(rateCapacity);
+            }
+            ruleIds = newRuleIds;
+            rules = aligned;
+        }
+    }
+
+    /** Window state of one rule for one device; the rate ring is only allocated for RATE_OF_CHANGE. */
+    private static final class RuleState {
+        final int rateCapacity;
+        boolean firing;
+        boolean justFired;
+        long breachSince = Long.MIN_VALUE;
+        long bits;
+        long[] times;
+        double[] values;
+        int head;
+        int count;
+
+        RuleState(int rateCapacity) {
+            this.rateCapacity = rateCapacity;
+        }
+
+        /**
+         * Adds a sample and returns the change per minute against the oldest sample inside the window,
+         * or NaN until there is history from before the window. The window is split into rateCapacity
+         * time buckets and only the first sample of each bucket is kept (plus two buckets of margin),
+         * so however fast readings arrive the ring reaches past the window and the rate is measured
+         * over at least windowMillis - 2 * windowMillis / rateCapacity.
+         */
+        double pushAndRate(long millis, double value, long windowMillis) {
+            if (times == null) {
+                times = new long[rateCapacity + 2];
+                values = new double[rateCapacity + 2];
+            }
+            long bucketMillis = Math.max(1, (windowMillis + rateCapacity - 1) / rateCapacity);
+            double rate = Double.NaN;
+            for (int i = 0; i < count; i++) {
+                int slot = (head + i) % times.length;
+                long age = millis - times[slot];
+                if (age <= windowMillis) {
+                    if (i > 0 && age > 0) {
+                        rate = (value - values[slot]) * 60000.0 / age;
+                    }
+                    break;
+                }
+            }
+            // Later samples of the newest bucket, and late ones, only contribute to the rate
+            if (count > 0 && Math.floorDiv(millis, bucketMillis)
+                    <= Math.floorDiv(times[(head + count - 1) % times.length], bucketMillis)) {
+                return rate;
+            }
+            int slot;
+            if (count == times.length) {
+                slot = head;
+                head = (head + 1) % times.length;
+            } else {
+                slot = (head + count) % times.length;
+                count++;
+            }
+            times[slot] = millis;
+            values[slot] = value;
+            return rate;
+        }
+    }
+}
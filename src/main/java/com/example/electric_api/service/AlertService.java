@@ -0,0 +1,198 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.controller.AlertController;
+import com.example.electric_api.dto.AlertListItem;
+import com.example.electric_api.dto.KeysetPage;
+import com.example.electric_api.dto.OpenAlertEntry;
+import com.example.electric_api.entity.Alert;
+import com.example.electric_api.entity.AlertLevel;
+import com.example.electric_api.entity.AlertStatus;
+import com.example.electric_api.entity.User;
+import com.example.electric_api.repository.AlertLevelRepository;
+import com.example.electric_api.repository.AlertRepository;
+import com.example.electric_api.repository.AlertStatusRepository;
+import com.example.electric_api.repository.DeviceRepository;
+import com.example.electric_api.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Creates and resolves alerts. Creation goes through the AlertCoalescer like generated alerts,
+ * so a manual alert for a (device, type) that is already open is folded into it. Reads of
+ * unresolved alerts are served by the OpenAlertIndex.
+ */
+@Service
+public class AlertService {
+
+    static final String RESOLVE_SQL =
+        "UPDATE alerts SET resolved_at = ?, alert_status_id = COALESCE(?, alert_status_id), resolved_by_user_id = ? " +
+        "WHERE id = ? AND resolved_at IS NULL";
+
+    static final String ALERT_KEY_SQL = "SELECT device_id, alert_type FROM alerts WHERE id = ?";
+
+    @Autowired
+    private AlertRepository alertRepository;
+
+    @Autowired
+    private AlertLevelRepository alertLevelRepository;
+
+    @Autowired
+    private AlertStatusRepository alertStatusRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AlertCoalescer alertCoalescer;
+
+    @Autowired
+    private OpenAlertIndex openAlertIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.alerts.resolved-status:RESOLVED}")
+    private String resolvedStatusName;
+
+    public OpenAlertEntry createAlert(AlertController.AlertCreateRequest request) {
+        if (request.getDeviceId() == null || !deviceRepository.existsById(request.getDeviceId())) {
+            throw new IllegalArgumentException("deviceId must reference an existing device");
+        }
+        if (request.getAlertLevelId() == null || !alertLevelRepository.existsById(request.getAlertLevelId())) {
+            throw new IllegalArgumentException("alertLevelId must reference an existing alert level");
+        }
+        if (request.getTitle() == null || request.getTitle().isBlank()) {
+            throw new IllegalArgumentException("title is required");
+        }
+        if (request.getAlertType() == null) {
+            throw new IllegalArgumentException("alertType is required");
+        }
+        Alert.AlertType type = Alert.AlertType.valueOf(request.getAlertType().toUpperCase());
+
+        Long alertId = alertCoalescer.raise(new AlertCoalescer.Candidate(request.getDeviceId(), null,
+            request.getAlertLevelId(), type, request.getTitle(), request.getDescription(),
+            decimal(request.getThresholdValue()), decimal(request.getActualValue()), LocalDateTime.now()));
+        if (alertId == null) {
+            throw new IllegalStateException("Alert could not be stored");
+        }
+        // A concurrent resolve may already have dropped it from the index
+        OpenAlertEntry alert = openAlertIndex.get(alertId);
+        if (alert == null) {
+            throw new IllegalStateException("Alert " + alertId + " was stored but is no longer open");
+        }
+        return alert;
+    }
+
+    /** Marks an open alert resolved and drops it from the in-memory indexes. */
+    public Map<String, Object> resolveAlert(Long alertId, String resolvedByEmail) {
+        Long statusId = alertStatusRepository.findByName(resolvedStatusName).map(AlertStatus::getId).orElse(null);
+        Long userId = resolvedByEmail != null
+            ? userRepository.findByEmail(resolvedByEmail).map(User::getId).orElse(null) : null;
+        LocalDateTime now = LocalDateTime.now();
+
+        int updated = jdbcTemplate.update(RESOLVE_SQL, Timestamp.valueOf(now), statusId, userId, alertId);
+        if (updated == 0) {
+            if (!alertRepository.existsById(alertId)) {
+                throw new NoSuchElementException("Alert not found with id: " + alertId);
+            }
+            throw new IllegalStateException("Alert " + alertId + " is already resolved");
+        }
+
+        OpenAlertEntry removed = openAlertIndex.remove(alertId);
+        if (removed != null) {
+            alertCoalescer.onResolved(alertId, removed.getDeviceId(), removed.getAlertType());
+        } else {
+            jdbcTemplate.query(ALERT_KEY_SQL, rs -> {
+                alertCoalescer.onResolved(alertId, rs.getLong(1), Alert.AlertType.valueOf(rs.getString(2)));
+            }, alertId);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("id", alertId);
+        result.put("resolvedAt", now);
+        result.put("resolvedByUserId", userId);
+        return result;
+    }
+
+    public List<OpenAlertEntry> getOpenAlerts(Long deviceId, Long stationId, Alert.AlertType type,
+                                              AlertLevel.Severity minSeverity, int offset, int limit) {
+        return openAlertIndex.find(deviceId, stationId, type, minSeverity, offset, limit);
+    }
+
+    public int countOpenAlerts(Long deviceId, Long stationId, Alert.AlertType type, AlertLevel.Severity minSeverity) {
+        return openAlertIndex.count(deviceId, stationId, type, minSeverity);
+    }
+
+    public Map<String, Object> getOpenAlertCounts() {
+        return openAlertIndex.getCounts();
+    }
+
+    /**
+     * Newest alerts first, continuing after the cursor's (createdAt, id). Each page seeks on
+     * idx_alert_created, or idx_device_created when filtered by device.
+     */
+    public KeysetPage<AlertListItem> listAlerts(String level, String status, Alert.AlertType type, Long deviceId,
+                                                Boolean resolved, String cursor, int size) {
+        StringBuilder jpql = new StringBuilder(
+            "SELECT new com.example.electric_api.dto.AlertListItem(a.id, a.device.id, a.alertLevel.id, " +
+            "a.alertLevel.name, a.alertStatus.name, a.title, a.alertType, a.thresholdValue, a.actualValue, " +
+            "a.occurrenceCount, a.createdAt, a.resolvedAt, a.incidentId) FROM Alert a WHERE 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+        if (level != null) {
+            jpql.append(" AND a.alertLevel.name = :level");
+            params.put("level", level.toUpperCase());
+        }
+        if (status != null) {
+            jpql.append(" AND a.alertStatus.name = :status");
+            params.put("status", status.toUpperCase());
+        }
+        if (type != null) {
+            jpql.append(" AND a.alertType = :type");
+            params.put("type", type);
+        }
+        if (deviceId != null) {
+            jpql.append(" AND a.device.id = :deviceId");
+            params.put("deviceId", deviceId);
+        }
+        if (resolved != null) {
+            jpql.append(resolved ? " AND a.resolvedAt IS NOT NULL" : " AND a.resolvedAt IS NULL");
+        }
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] keys = KeysetCursor.decode("alerts", cursor, 2);
+            jpql.append(" AND (a.createdAt < :afterCreatedAt OR (a.createdAt = :afterCreatedAt AND a.id < :afterId))");
+            try {
+                params.put("afterCreatedAt", LocalDateTime.parse(keys[0]));
+                params.put("afterId", Long.parseLong(keys[1]));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        jpql.append(" ORDER BY a.createdAt DESC, a.id DESC");
+
+        TypedQuery<AlertListItem> query = entityManager.createQuery(jpql.toString(), AlertListItem.class);
+        params.forEach(query::setParameter);
+        query.setMaxResults(size + 1);
+        return KeysetPage.of(query.getResultList(), size,
+            last -> KeysetCursor.encode("alerts", last.getCreatedAt(), last.getId()));
+    }
+
+    private static BigDecimal decimal(String value) {
+        return value != null && !value.isBlank() ? new BigDecimal(value.trim()) : null;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.config.CacheConfig;
+import com.example.electric_api.repository.AlertLevelRepository;
+import com.example.electric_api.repository.AlertStatusRepository;
+import com.example.electric_api.repository.DeviceTypeRepository;
+import com.example.electric_api.repository.ManufacturerRepository;
+import com.example.electric_api.repository.StationRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cached category list responses. The lists serialize their lazily loaded device graphs, so what
+ * is cached is the rendered JSON body, produced inside a read-only transaction, rather than
+ * entities that would be detached by the time a later request serialized them. Category writes
+ * and device changes evict the cache; nested alert lists may lag by up to the cache TTL.
+ */
+@Service
+public class CategoryService {
+
+    @Autowired
+    private DeviceTypeRepository deviceTypeRepository;
+
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Autowired
+    private AlertLevelRepository alertLevelRepository;
+
+    @Autowired
+    private AlertStatusRepository alertStatusRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Cacheable(cacheNames = CacheConfig.CATEGORIES, key = "'deviceTypes'", sync = true)
+    @Transactional(readOnly = true)
+    public byte[] getDeviceTypesJson() {
+        return render("deviceTypes", deviceTypeRepository.findByIsActiveTrue());
+    }
+
+    @Cacheable(cacheNames = CacheConfig.CATEGORIES, key = "'manufacturers'", sync = true)
+    @Transactional(readOnly = true)
+    public byte[] getManufacturersJson() {
+        return render("manufacturers", manufacturerRepository.findByIsActiveTrue());
+    }
+
+    @Cacheable(cacheNames = CacheConfig.CATEGORIES, key = "'stations'", sync = true)
+    @Transactional(readOnly = true)
+    public byte[] getStationsJson() {
+        return render("stations", stationRepository.findByIsActiveTrue());
+    }
+
+    @Cacheable(cacheNames = CacheConfig.CATEGORIES, key = "'alertLevels'", sync = true)
+    @Transactional(readOnly = true)
+    public byte[] getAlertLevelsJson() {
+        return render("alertLevels", alertLevelRepository.findByIsActiveTrue());
+    }
+
+    @Cacheable(cacheNames = CacheConfig.CATEGORIES, key = "'alertStatuses'", sync = true)
+    @Transactional(readOnly = true)
+    public byte[] getAlertStatusesJson() {
+        return render("alertStatuses", alertStatusRepository.findByIsActiveTrue());
+    }
+
+    @CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true)
+    public void evictAll() {
+    }
+
+    /** The lists embed each category's devices. */
+    @CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+    }
+
+    private byte[] render(String key, List<?> items) {
+        Map<String, Object> response = new HashMap<>();
+        response.put(key, items);
+        response.put("dataSource", "DATABASE");
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
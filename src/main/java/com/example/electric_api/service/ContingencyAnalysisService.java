@@ -0,0 +1,548 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.PowerFacility;
+import com.example.electric_api.dto.PowerLine;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * N-1 contingency analysis of the grid topology. Every in-service line and facility is taken out
+ * in turn, and the rest of the network is checked for facilities that lose supply and for lines
+ * and facilities loaded beyond their capacity. Overloads the base case already has are reported
+ * once as base-case overloads; a scenario only counts an overload that is new or worse than in
+ * the base case.
+ *
+ * The grid model has no impedances, so flows are an allocation rather than a load-flow solution.
+ * Each load facility draws load-factor x capacity from the nearest in-service source along a
+ * breadth-first shortest-path tree from all sources, and every line and facility carries what
+ * lies below it in that tree. Lost supply is found exactly; overloads are exact for radial
+ * corridors and pessimistic where the grid is meshed.
+ *
+ * An analysis runs as one background job on a dedicated ForkJoin pool, with its scenarios in
+ * parallel; requests never wait on it. While it runs, callers get the last result, marked stale
+ * when it describes an older topology, or nothing until the first one completes. Each worker
+ * thread reuses its own scratch arrays, so evaluating a scenario allocates nothing. The result is
+ * kept until the topology version changes.
+ */
+@Service
+public class ContingencyAnalysisService {
+
+    private static final int SCENARIOS_PER_TASK = 32;
+    private static final int MAX_LISTED_FACILITIES = 100;
+    private static final int MAX_LISTED_OVERLOADS = 20;
+    // Flows of an unchanged corridor may be summed in a different order than in the base case
+    private static final double LOADING_TOLERANCE = 1e-9;
+
+    // Only used by the pool's worker threads
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    @Autowired
+    private GridTopologyService gridTopologyService;
+
+    @Value("${app.grid-map.contingency.load-factor:0.5}")
+    private double loadFactor;
+
+    @Value("${app.grid-map.contingency.max-results:200}")
+    private int maxResults;
+
+    private final ForkJoinPool pool;
+    private volatile Analysis cached;
+    // Guarded by this; the analysis in progress, if any
+    private CompletableFuture<Analysis> running;
+
+    public ContingencyAnalysisService(@Value("${app.grid-map.contingency.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("contingency-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    /**
+     * The latest analysis, listing at most limit insecure scenarios, or null while the first one is
+     * still running. Starts a new analysis when the topology changed since the latest one.
+     */
+    public Map<String, Object> getAnalysis(int limit) {
+        Analysis analysis = cached;
+        boolean current = analysis != null && analysis.version == gridTopologyService.getVersion();
+        CompletableFuture<Analysis> run = current ? null : start();
+        if (analysis == null) {
+            return null;
+        }
+        Map<String, Object> response = analysis.toResponse(limit);
+        response.put("stale", !current);
+        response.put("analysisRunning", run != null && !run.isDone());
+        return response;
+    }
+
+    // Starts an analysis of the current topology unless one is already running
+    private synchronized CompletableFuture<Analysis> start() {
+        CompletableFuture<Analysis> run = running;
+        if (run == null) {
+            CompletableFuture<Analysis> started = CompletableFuture.supplyAsync(this::analyze, pool);
+            running = started;
+            started.whenComplete((analysis, error) -> {
+                synchronized (this) {
+                    if (running == started) {
+                        running = null;
+                    }
+                }
+                if (error != null) {
+                    System.out.println("❌ N-1 contingency analysis failed: " + error.getMessage());
+                }
+            });
+            run = started;
+        }
+        return run;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // Runs on the pool, one at a time
+    private Analysis analyze() {
+        GridTopology.Snapshot snapshot = gridTopologyService.snapshot();
+        Analysis previous = cached;
+        if (previous != null && previous.version == snapshot.version) {
+            return previous;
+        }
+        long started = System.currentTimeMillis();
+        Model model = new Model(snapshot, loadFactor);
+
+        List<Map<String, Object>> baseOverloads = new ArrayList<>();
+        Scratch scratch = new Scratch();
+        evaluate(model, -1, -1, scratch, new Details(model, null, baseOverloads));
+        model.setBaseCase(scratch);
+
+        pool.invoke(new ScenarioTask(model, 0, model.scenarioCount()));
+
+        Integer[] insecure = model.insecureScenarios();
+        Arrays.sort(insecure, Comparator.<Integer>comparingDouble(s -> -model.lostCapacity[s])
+            .thenComparingInt(s -> -model.lostCount[s])
+            .thenComparingDouble(s -> -model.worstLoading[s]));
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int i = 0; i < Math.min(insecure.length, maxResults); i++) {
+            results.add(describe(model, insecure[i], scratch));
+        }
+
+        Analysis analysis = new Analysis(snapshot.version, LocalDateTime.now(), System.currentTimeMillis() - started,
+            pool.getParallelism(), model, insecure.length, baseOverloads, results);
+        cached = analysis;
+        System.out.println("⚡ N-1 contingency analysis: " + model.scenarioCount() + " scenarios, " +
+            insecure.length + " insecure, " + analysis.durationMs + " ms on " + pool.getParallelism() + " threads");
+        return analysis;
+    }
+
+    private Map<String, Object> describe(Model model, int scenario, Scratch scratch) {
+        List<Map<String, Object>> overloads = new ArrayList<>();
+        List<String> lost = new ArrayList<>();
+        int skipNode = model.scenarioNode[scenario];
+        int skipEdge = model.scenarioEdge[scenario];
+        evaluate(model, skipNode, skipEdge, scratch, new Details(model, lost, overloads));
+        overloads.sort(Comparator.comparingDouble(o -> -((Double) o.get("loading"))));
+
+        Map<String, Object> result = new HashMap<>();
+        if (skipEdge >= 0) {
+            result.put("outageType", "line");
+            result.put("id", model.lines[skipEdge].getId());
+            result.put("name", model.lines[skipEdge].getName());
+        } else {
+            result.put("outageType", "facility");
+            result.put("id", model.facilities[skipNode].getId());
+            result.put("name", model.facilities[skipNode].getName());
+        }
+        result.put("lostFacilityCount", model.lostCount[scenario]);
+        result.put("lostFacilities", lost.subList(0, Math.min(lost.size(), MAX_LISTED_FACILITIES)));
+        result.put("lostCapacity", round(model.lostCapacity[scenario]));
+        result.put("overloadCount", model.overloadCount[scenario]);
+        result.put("overloads", overloads.subList(0, Math.min(overloads.size(), MAX_LISTED_OVERLOADS)));
+        result.put("worstLoading", round(model.worstLoading[scenario]));
+        return result;
+    }
+
+    /**
+     * One scenario: breadth-first from the in-service sources without skipNode and skipEdge, then
+     * flows summed from the leaves of that tree up. Leaves its counters in the scratch.
+     */
+    private static void evaluate(Model model, int skipNode, int skipEdge, Scratch s, Details details) {
+        GridTopology graph = model.graph;
+        int epoch = s.begin(graph.nodeCount());
+        int[] stamp = s.stamp;
+        int[] queue = s.queue;
+        int[] parentEdge = s.parentEdge;
+        int[] parentNode = s.parentNode;
+        double[] flow = s.flow;
+
+        int tail = 0;
+        for (int node : model.sources) {
+            if (node != skipNode) {
+                stamp[node] = epoch;
+                parentEdge[node] = -1;
+                flow[node] = 0;
+                queue[tail++] = node;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int node = queue[head];
+            for (int slot = graph.offsets[node]; slot < graph.offsets[node + 1]; slot++) {
+                int next = graph.neighbors[slot];
+                int edge = graph.slotEdges[slot];
+                if (stamp[next] == epoch || edge == skipEdge || next == skipNode
+                        || !model.edgeUp[edge] || !model.nodeUp[next]) {
+                    continue;
+                }
+                stamp[next] = epoch;
+                parentEdge[next] = edge;
+                parentNode[next] = node;
+                flow[next] = model.load[next];
+                queue[tail++] = next;
+            }
+        }
+        s.reached = tail;
+
+        int lostCount = 0;
+        double lostCapacity = 0;
+        for (int node : model.baseEnergized) {
+            if (node != skipNode && stamp[node] != epoch) {
+                lostCount++;
+                lostCapacity += model.nodeCapacity[node];
+                if (details != null) details.lost(node);
+            }
+        }
+
+        // Null while the base case itself is evaluated: every overload counts then
+        double[] baseNodeLoading = model.baseNodeLoading;
+        double[] baseEdgeLoading = model.baseEdgeLoading;
+        int overloads = 0;
+        double worst = 0;
+        for (int k = tail - 1; k >= 0; k--) {
+            int node = queue[k];
+            double f = flow[node];
+            double nodeCapacity = model.nodeCapacity[node];
+            if (nodeCapacity > 0) {
+                double loading = f / nodeCapacity;
+                worst = Math.max(worst, loading);
+                if (loading > 1 && (baseNodeLoading == null || loading > baseNodeLoading[node] + LOADING_TOLERANCE)) {
+                    overloads++;
+                    if (details != null) details.overload("facility", node, f, nodeCapacity);
+                }
+            }
+            int edge = parentEdge[node];
+            if (edge >= 0) {
+                double edgeCapacity = model.edgeCapacity[edge];
+                if (edgeCapacity > 0) {
+                    double loading = f / edgeCapacity;
+                    worst = Math.max(worst, loading);
+                    if (loading > 1
+                            && (baseEdgeLoading == null || loading > baseEdgeLoading[edge] + LOADING_TOLERANCE)) {
+                        overloads++;
+                        if (details != null) details.overload("line", edge, f, edgeCapacity);
+                    }
+                }
+                flow[parentNode[node]] += f;
+            }
+        }
+        s.lostCount = lostCount;
+        s.lostCapacity = lostCapacity;
+        s.overloads = overloads;
+        s.worst = worst;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    private static final class ScenarioTask extends RecursiveAction {
+        private final Model model;
+        private final int from;
+        private final int to;
+
+        ScenarioTask(Model model, int from, int to) {
+            this.model = model;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SCENARIOS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ScenarioTask(model, from, middle), new ScenarioTask(model, middle, to));
+                return;
+            }
+            Scratch scratch = SCRATCH.get();
+            for (int scenario = from; scenario < to; scenario++) {
+                int skipNode = model.scenarioNode[scenario];
+                int skipEdge = model.scenarioEdge[scenario];
+                if (model.unchangedByOutage(skipNode, skipEdge)) {
+                    // Same flows as the base case, so nothing new or worse
+                    model.worstLoading[scenario] = model.baseWorstLoading;
+                    continue;
+                }
+                evaluate(model, skipNode, skipEdge, scratch, null);
+                model.lostCount[scenario] = scratch.lostCount;
+                model.lostCapacity[scenario] = scratch.lostCapacity;
+                model.overloadCount[scenario] = scratch.overloads;
+                model.worstLoading[scenario] = scratch.worst;
+            }
+        }
+    }
+
+    /** Primitive view of a topology snapshot plus per-scenario results, each written by one task only. */
+    private static final class Model {
+        final GridTopology graph;
+        final PowerFacility[] facilities;
+        final PowerLine[] lines;
+        final boolean[] nodeUp;
+        final boolean[] edgeUp;
+        final int[] sources;
+        final double[] load;
+        final double[] nodeCapacity;
+        final double[] edgeCapacity;
+        final double loadFactor;
+        int[] baseEnergized = new int[0];
+        boolean[] baseTreeEdge;
+        boolean[] baseReached;
+        double[] baseNodeLoading;
+        double[] baseEdgeLoading;
+        double baseWorstLoading;
+
+        // Scenario k takes out line scenarioEdge[k] or facility scenarioNode[k]; the other is -1
+        final int[] scenarioEdge;
+        final int[] scenarioNode;
+        final int[] lostCount;
+        final double[] lostCapacity;
+        final int[] overloadCount;
+        final double[] worstLoading;
+
+        Model(GridTopology.Snapshot snapshot, double loadFactor) {
+            this.graph = snapshot.graph;
+            this.facilities = snapshot.facilities;
+            this.lines = snapshot.lines;
+            this.nodeUp = snapshot.nodeUp;
+            this.edgeUp = snapshot.edgeUp;
+            this.loadFactor = loadFactor;
+
+            int n = facilities.length;
+            load = new double[n];
+            nodeCapacity = new double[n];
+            int[] upSources = new int[n];
+            int sourceCount = 0;
+            for (int i = 0; i < n; i++) {
+                PowerFacility facility = facilities[i];
+                nodeCapacity[i] = facility.getCapacity() != null ? facility.getCapacity() : 0;
+                if (!nodeUp[i]) continue;
+                if (graph.source[i]) {
+                    upSources[sourceCount++] = i;
+                } else if (!"transmission_tower".equals(facility.getType())) {
+                    load[i] = loadFactor * nodeCapacity[i];
+                }
+            }
+            sources = Arrays.copyOf(upSources, sourceCount);
+
+            edgeCapacity = new double[lines.length];
+            for (int e = 0; e < lines.length; e++) {
+                edgeCapacity[e] = lines[e].getCapacity() != null ? lines[e].getCapacity() : 0;
+            }
+
+            int count = 0;
+            for (boolean up : edgeUp) if (up) count++;
+            for (boolean up : nodeUp) if (up) count++;
+            scenarioEdge = new int[count];
+            scenarioNode = new int[count];
+            int k = 0;
+            for (int e = 0; e < lines.length; e++) {
+                if (edgeUp[e]) {
+                    scenarioEdge[k] = e;
+                    scenarioNode[k++] = -1;
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                if (nodeUp[i]) {
+                    scenarioEdge[k] = -1;
+                    scenarioNode[k++] = i;
+                }
+            }
+            lostCount = new int[count];
+            lostCapacity = new double[count];
+            overloadCount = new int[count];
+            worstLoading = new double[count];
+        }
+
+        int scenarioCount() {
+            return scenarioEdge.length;
+        }
+
+        /**
+         * Records what the base case reached and how loaded it left each line and facility, read
+         * from the scratch right after evaluating it.
+         */
+        void setBaseCase(Scratch scratch) {
+            baseEnergized = Arrays.copyOf(scratch.queue, scratch.reached);
+            baseReached = new boolean[facilities.length];
+            baseTreeEdge = new boolean[lines.length];
+            double[] nodeLoading = new double[facilities.length];
+            double[] edgeLoading = new double[lines.length];
+            for (int node : baseEnergized) {
+                baseReached[node] = true;
+                double f = scratch.flow[node];
+                if (nodeCapacity[node] > 0) nodeLoading[node] = f / nodeCapacity[node];
+                int edge = scratch.parentEdge[node];
+                if (edge >= 0) {
+                    baseTreeEdge[edge] = true;
+                    if (edgeCapacity[edge] > 0) edgeLoading[edge] = f / edgeCapacity[edge];
+                }
+            }
+            baseNodeLoading = nodeLoading;
+            baseEdgeLoading = edgeLoading;
+            baseWorstLoading = scratch.worst;
+        }
+
+        /**
+         * Taking out a line outside the base search tree, or a facility the base search never
+         * reached, leaves the search and therefore every flow exactly as in the base case.
+         */
+        boolean unchangedByOutage(int skipNode, int skipEdge) {
+            return skipEdge >= 0 ? !baseTreeEdge[skipEdge] : !baseReached[skipNode];
+        }
+
+        Integer[] insecureScenarios() {
+            List<Integer> insecure = new ArrayList<>();
+            for (int k = 0; k < scenarioCount(); k++) {
+                if (lostCount[k] > 0 || overloadCount[k] > 0) insecure.add(k);
+            }
+            return insecure.toArray(new Integer[0]);
+        }
+    }
+
+    /** Collects lost facilities and overloads when a scenario is described in full. */
+    private static final class Details {
+        final Model model;
+        final List<String> lost;
+        final List<Map<String, Object>> overloads;
+
+        Details(Model model, List<String> lost, List<Map<String, Object>> overloads) {
+            this.model = model;
+            this.lost = lost;
+            this.overloads = overloads;
+        }
+
+        void lost(int node) {
+            if (lost != null) lost.add(model.facilities[node].getId());
+        }
+
+        void overload(String type, int index, double flow, double capacity) {
+            Map<String, Object> overload = new HashMap<>();
+            overload.put("type", type);
+            overload.put("id", "line".equals(type) ? model.lines[index].getId() : model.facilities[index].getId());
+            overload.put("flow", round(flow));
+            overload.put("capacity", capacity);
+            overload.put("loading", round(flow / capacity));
+            double[] baseLoading = "line".equals(type) ? model.baseEdgeLoading : model.baseNodeLoading;
+            if (baseLoading != null) {
+                overload.put("baseLoading", round(baseLoading[index]));
+            }
+            overloads.add(overload);
+        }
+    }
+
+    /** Per-thread buffers sized to the largest topology seen; the stamp epoch avoids clearing them per scenario. */
+    private static final class Scratch {
+        int[] stamp = new int[0];
+        int[] queue = new int[0];
+        int[] parentEdge = new int[0];
+        int[] parentNode = new int[0];
+        double[] flow = new double[0];
+        int epoch;
+
+        int reached;
+        int lostCount;
+        double lostCapacity;
+        int overloads;
+        double worst;
+
+        int begin(int nodes) {
+            if (stamp.length < nodes) {
+                stamp = new int[nodes];
+                queue = new int[nodes];
+                parentEdge = new int[nodes];
+                parentNode = new int[nodes];
+                flow = new double[nodes];
+                epoch = 0;
+            }
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(stamp, 0);
+                epoch = 1;
+            }
+            return epoch;
+        }
+    }
+
+    private static final class Analysis {
+        final long version;
+        final LocalDateTime computedAt;
+        final long durationMs;
+        final int parallelism;
+        final int scenarios;
+        final int facilities;
+        final int lines;
+        final double loadFactor;
+        final int insecure;
+        final List<Map<String, Object>> baseOverloads;
+        final List<Map<String, Object>> results;
+
+        Analysis(long version, LocalDateTime computedAt, long durationMs, int parallelism, Model model, int insecure,
+                 List<Map<String, Object>> baseOverloads, List<Map<String, Object>> results) {
+            this.version = version;
+            this.computedAt = computedAt;
+            this.durationMs = durationMs;
+            this.parallelism = parallelism;
+            this.scenarios = model.scenarioCount();
+            this.facilities = model.facilities.length;
+            this.lines = model.lines.length;
+            this.loadFactor = model.loadFactor;
+            this.insecure = insecure;
+            this.baseOverloads = List.copyOf(baseOverloads);
+            this.results = List.copyOf(results);
+        }
+
+        Map<String, Object> toResponse(int limit) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("topologyVersion", version);
+            response.put("computedAt", computedAt);
+            response.put("durationMs", durationMs);
+            response.put("parallelism", parallelism);
+            response.put("facilities", facilities);
+            response.put("lines", lines);
+            response.put("scenarios", scenarios);
+            response.put("loadFactor", loadFactor);
+            response.put("secureScenarios", scenarios - insecure);
+            response.put("insecureScenarios", insecure);
+            response.put("baseCaseOverloads", baseOverloads);
+            response.put("results", results.subList(0, Math.min(limit, results.size())));
+            return response;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.entity.Device;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Precomputed dashboard responses. The overview, statistics and alerts summary are rebuilt on a
+ * short tick when devices changed (or the snapshot reached its maximum age) and published as one
+ * immutable snapshot, each section already serialized to its response body. Any number of polling
+ * dashboards then share one computation per tick.
+ *
+ * Every section's version and strong ETag are a hash of its content, so they only change when the
+ * content does and agree across restarts and instances. The simulated figures are drawn again
+ * only when the snapshot reaches its maximum age; a device change in between only moves the
+ * device counts.
+ */
+@Service
+public class DashboardSnapshotService {
+
+    public static final String OVERVIEW = "overview";
+    public static final String STATISTICS = "statistics";
+    public static final String ALERTS_SUMMARY = "alerts-summary";
+
+    @Autowired
+    private FakeDataService fakeDataService;
+
+    @Autowired
+    private DeviceStatusCounters deviceStatusCounters;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.dashboard.snapshot.max-age-ms:30000}")
+    private long maxAgeMs;
+
+    private volatile Snapshot current;
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    // Guarded by rebuild(); reused until the snapshot reaches its maximum age
+    private Map<String, Object> simulatedOverview;
+    private Map<String, Object> simulatedAlertsSummary;
+    private long simulatedAtMillis;
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+
+    public Section getSection(String name) {
+        Snapshot snapshot = current;
+        if (snapshot == null) {
+            snapshot = rebuild(false);
+        }
+        return snapshot.sections.get(name);
+    }
+
+    public void recordNotModified() {
+        notModified.increment();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        dirty.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${app.dashboard.snapshot.refresh-interval-ms:2000}")
+    public void refresh() {
+        Snapshot snapshot = current;
+        if (snapshot == null || dirty.get() || System.currentTimeMillis() - snapshot.builtAtMillis >= maxAgeMs) {
+            rebuild(true);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        Snapshot snapshot = current;
+        if (snapshot != null) {
+            Map<String, Object> sections = new HashMap<>();
+            snapshot.sections.forEach((name, section) -> sections.put(name, section.getEtag()));
+            stats.put("etags", sections);
+            stats.put("builtAt", snapshot.builtAt);
+        }
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("notModified", notModified.sum());
+        return stats;
+    }
+
+    private synchronized Snapshot rebuild(boolean force) {
+        Snapshot previous = current;
+        if (!force && previous != null) {
+            // Another request built it while this one waited
+            return previous;
+        }
+        dirty.set(false);
+        LocalDateTime now = LocalDateTime.now();
+        long nowMillis = System.currentTimeMillis();
+        if (simulatedOverview == null || nowMillis - simulatedAtMillis >= maxAgeMs) {
+            simulatedOverview = fakeDataService.getDashboardOverview();
+            simulatedAlertsSummary = fakeDataService.getFakeAlertsSummary();
+            simulatedAtMillis = nowMillis;
+        }
+
+        Map<String, Object> statistics = fakeDataService.getFakeStatistics();
+        // Only the content decides whether the section changed
+        statistics.remove("lastUpdated");
+
+        Map<String, Section> sections = new HashMap<>();
+        sections.put(OVERVIEW, section(previous, OVERVIEW, "data", buildOverview(),
+            "Dashboard overview loaded successfully", now));
+        sections.put(STATISTICS, section(previous, STATISTICS, "statistics", statistics,
+            "Statistics loaded successfully", now));
+        sections.put(ALERTS_SUMMARY, section(previous, ALERTS_SUMMARY, "alerts", new HashMap<>(simulatedAlertsSummary),
+            "Alerts summary loaded successfully", now));
+
+        Snapshot snapshot = new Snapshot(Map.copyOf(sections), now, nowMillis);
+        current = snapshot;
+        rebuilds.increment();
+        return snapshot;
+    }
+
+    private Map<String, Object> buildOverview() {
+        Map<String, Object> overview = new HashMap<>(simulatedOverview);
+
+        // Device counts are real whenever the counters are loaded; they cost a few LongAdder reads
+        if (deviceStatusCounters.isReady()) {
+            overview.put("totalDevices", deviceStatusCounters.getTotal());
+            overview.put("onlineDevices", deviceStatusCounters.getCount(Device.DeviceStatus.ONLINE));
+            overview.put("offlineDevices", deviceStatusCounters.getCount(Device.DeviceStatus.OFFLINE));
+            overview.put("maintenanceDevices", deviceStatusCounters.getCount(Device.DeviceStatus.MAINTENANCE));
+            overview.put("errorDevices", deviceStatusCounters.getCount(Device.DeviceStatus.ERROR));
+            overview.put("warningDevices", deviceStatusCounters.getCount(Device.DeviceStatus.WARNING));
+            overview.put("deviceCountSource", "COUNTERS");
+        }
+        return overview;
+    }
+
+    private Section section(Snapshot previous, String name, String key, Map<String, Object> content, String message,
+                            LocalDateTime now) {
+        byte[] contentJson = toJson(content);
+        Section before = previous != null ? previous.sections.get(name) : null;
+        if (before != null && Arrays.equals(before.contentJson, contentJson)) {
+            return before;
+        }
+
+        String version = DigestUtils.md5DigestAsHex(contentJson);
+        if (STATISTICS.equals(name)) {
+            content.put("lastUpdated", now);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put(key, content);
+        response.put("dataSource", "FAKE_DATA");
+        response.put("message", message);
+        response.put("timestamp", now);
+        response.put("version", version);
+        return new Section(version, "\"" + version + "\"", toJson(response), contentJson);
+    }
+
+    private byte[] toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Snapshot {
+        final Map<String, Section> sections;
+        final LocalDateTime builtAt;
+        final long builtAtMillis;
+
+        Snapshot(Map<String, Section> sections, LocalDateTime builtAt, long builtAtMillis) {
+            this.sections = sections;
+            this.builtAt = builtAt;
+            this.builtAtMillis = builtAtMillis;
+        }
+    }
+
+    /** One serialized dashboard response. The body must not be modified. */
+    public static final class Section {
+        private final String version;
+        private final String etag;
+        private final byte[] body;
+        private final byte[] contentJson;
+
+        Section(String version, String etag, byte[] body, byte[] contentJson) {
+            this.version = version;
+            this.etag = etag;
+            this.body = body;
+            this.contentJson = contentJson;
+        }
+
+        public String getVersion() { return version; }
+
+        public String getEtag() { return etag; }
+
+        public byte[] getBody() { return body; }
+    }
+}
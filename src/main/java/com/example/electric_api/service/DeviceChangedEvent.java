@@ -0,0 +1,74 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.entity.Device;
+
+import java.util.Objects;
+
+/**
+ * Published by DeviceService when a device is created, updated or deactivated. Listeners that
+ * keep derived in-memory state (counters, latest-value cache) apply it after the transaction
+ * commits, so a rolled-back change never shows up in them.
+ */
+public class DeviceChangedEvent {
+
+    private final Long deviceId;
+    private final State before;
+    private final State after;
+
+    public DeviceChangedEvent(Long deviceId, State before, State after) {
+        this.deviceId = deviceId;
+        this.before = before;
+        this.after = after;
+    }
+
+    public Long getDeviceId() { return deviceId; }
+
+    /** State before the change; null when the device did not exist or was inactive. */
+    public State getBefore() { return before; }
+
+    /** State after the change; null when the device was deactivated. */
+    public State getAfter() { return after; }
+
+    /** The fields the counters are keyed by. */
+    public static final class State {
+        private final Device.DeviceStatus status;
+        private final Long stationId;
+        private final Long deviceTypeId;
+
+        public State(Device.DeviceStatus status, Long stationId, Long deviceTypeId) {
+            this.status = status;
+            this.stationId = stationId;
+            this.deviceTypeId = deviceTypeId;
+        }
+
+        /** Snapshot of an active device; null for an inactive one. */
+        public static State of(Device device) {
+            if (device == null || !Boolean.TRUE.equals(device.getIsActive())) {
+                return null;
+            }
+            return new State(device.getStatus(),
+                device.getStation() != null ? device.getStation().getId() : null,
+                device.getDeviceType() != null ? device.getDeviceType().getId() : null);
+        }
+
+        public Device.DeviceStatus getStatus() { return status; }
+
+        public Long getStationId() { return stationId; }
+
+        public Long getDeviceTypeId() { return deviceTypeId; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof State)) return false;
+            State other = (State) o;
+            return status == other.status && Objects.equals(stationId, other.stationId)
+                && Objects.equals(deviceTypeId, other.deviceTypeId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(status, stationId, deviceTypeId);
+        }
+    }
+}
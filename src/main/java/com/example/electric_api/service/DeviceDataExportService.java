@@ -0,0 +1,185 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.TelemetrySeries;
+import com.example.electric_api.entity.DeviceData;
+import com.example.electric_api.entity.DeviceDataBlock;
+import com.example.electric_api.repository.DeviceDataBlockRepository;
+import com.example.electric_api.repository.DeviceDataRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams a device's stored history straight to an output stream as NDJSON or CSV.
+ * Compressed blocks and raw rows are both read through forward-only cursors and merged by
+ * timestamp, so memory stays at one decoded block plus one row regardless of the range.
+ */
+@Service
+public class DeviceDataExportService {
+
+    public enum Format { NDJSON, CSV }
+
+    @Autowired
+    private DeviceDataRepository deviceDataRepository;
+
+    @Autowired
+    private DeviceDataBlockRepository deviceDataBlockRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /** Writes readings with start <= timestamp < end in ascending order; returns the number written. */
+    @Transactional(readOnly = true)
+    public long export(Long deviceId, LocalDateTime start, LocalDateTime end, Format format, OutputStream out) throws IOException {
+        long fromMillis = TelemetrySeries.toEpochMillis(start);
+        long toMillis = TelemetrySeries.toEpochMillis(end);
+
+        try (Stream<DeviceDataBlock> blocks = deviceDataBlockRepository.streamOverlapping(deviceId, start.minusHours(1), start, end);
+             Stream<DeviceData> rows = deviceDataRepository.streamByDeviceIdAndTimestampRange(deviceId, start, end);
+             RowWriter writer = format == Format.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out)) {
+
+            Iterator<DeviceDataBlock> blockIterator = blocks.iterator();
+            Iterator<DeviceData> rowIterator = rows.iterator();
+            TelemetrySeries block = new TelemetrySeries(0);
+            int blockPosition = 0;
+            DeviceData row = null;
+            long written = 0;
+
+            while (true) {
+                // Decode the next block only when the current one is used up
+                while (blockPosition >= block.size() && blockIterator.hasNext()) {
+                    DeviceDataBlock next = blockIterator.next();
+                    block = new TelemetrySeries(next.getPointCount());
+                    TelemetryBlockCodec.decodeInto(next.getPayload(), block, fromMillis, toMillis);
+                    blockPosition = 0;
+                    entityManager.detach(next);
+                }
+                if (row == null && rowIterator.hasNext()) {
+                    row = rowIterator.next();
+                    entityManager.detach(row);
+                }
+
+                boolean hasBlockPoint = blockPosition < block.size();
+                if (!hasBlockPoint && row == null) {
+                    break;
+                }
+                if (hasBlockPoint && (row == null
+                        || block.getTimestamp(blockPosition) <= TelemetrySeries.toEpochMillis(row.getTimestamp()))) {
+                    writer.write(TelemetrySeries.toLocalDateTime(block.getTimestamp(blockPosition)),
+                        block.getVoltage(blockPosition), block.getCurrent(blockPosition), block.getPower(blockPosition),
+                        block.getFrequency(blockPosition), block.getTemperature(blockPosition));
+                    blockPosition++;
+                } else {
+                    writer.write(row.getTimestamp(), toDouble(row.getVoltage()), toDouble(row.getCurrent()),
+                        toDouble(row.getPower()), toDouble(row.getFrequency()), toDouble(row.getTemperature()));
+                    row = null;
+                }
+                written++;
+            }
+            return written;
+        }
+    }
+
+    private static double toDouble(BigDecimal value) {
+        return value != null ? value.doubleValue() : Double.NaN;
+    }
+
+    private interface RowWriter extends AutoCloseable {
+        void write(LocalDateTime timestamp, double voltage, double current, double power, double frequency,
+                   double temperature) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(OutputStream out) throws IOException {
+            generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        }
+
+        @Override
+        public void write(LocalDateTime timestamp, double voltage, double current, double power, double frequency,
+                          double temperature) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("timestamp", DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(timestamp));
+            writeValue("voltage", voltage);
+            writeValue("current", current);
+            writeValue("power", power);
+            writeValue("frequency", frequency);
+            writeValue("temperature", temperature);
+            generator.writeEndObject();
+        }
+
+        private void writeValue(String field, double value) throws IOException {
+            if (Double.isNaN(value)) {
+                generator.writeNullField(field);
+            } else {
+                generator.writeNumberField(field, value);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.writeRaw('\n');
+            generator.close();
+        }
+    }
+
+    private static class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(OutputStream out) throws IOException {
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            writer.write("timestamp,voltage,current,power,frequency,temperature\n");
+        }
+
+        @Override
+        public void write(LocalDateTime timestamp, double voltage, double current, double power, double frequency,
+                          double temperature) throws IOException {
+            writer.write(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(timestamp));
+            writeValue(voltage);
+            writeValue(current);
+            writeValue(power);
+            writeValue(frequency);
+            writeValue(temperature);
+            writer.write('\n');
+        }
+
+        private void writeValue(double value) throws IOException {
+            writer.write(',');
+            if (!Double.isNaN(value)) {
+                writer.write(Double.toString(value));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.TelemetrySeries;
+import com.example.electric_api.entity.DeviceDataBlock;
+import com.example.electric_api.repository.DeviceDataBlockRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Reads stored readings for a device and time range from both storage tiers: compressed
+ * hourly blocks (only those overlapping the range are decoded) and raw device_data rows
+ * that have not been compacted yet.
+ *
+ * Long ranges are read in two steps: {@link #plan} counts the readings of every hour from block
+ * metadata and raw timestamps, and {@link #read} then loads only the hours a page or a
+ * downsampling pass needs, one hour at a time.
+ */
+@Component
+public class DeviceDataHistoryReader {
+
+    static final String RAW_RANGE_SQL =
+        "SELECT timestamp, voltage, current, power, frequency, temperature FROM device_data " +
+        "WHERE device_id = ? AND timestamp >= ? AND timestamp < ? ORDER BY timestamp";
+
+    static final String RAW_TIMESTAMPS_SQL =
+        "SELECT timestamp FROM device_data WHERE device_id = ? AND timestamp >= ? AND timestamp < ?";
+
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DeviceDataBlockRepository deviceDataBlockRepository;
+
+    /** Ascending readings with start <= timestamp < end. */
+    public TelemetrySeries readRange(Long deviceId, LocalDateTime start, LocalDateTime end) {
+        long fromMillis = TelemetrySeries.toEpochMillis(start);
+        long toMillis = TelemetrySeries.toEpochMillis(end);
+
+        List<DeviceDataBlock> blocks = deviceDataBlockRepository.findOverlapping(deviceId, start.minusHours(1), start, end);
+        int estimated = 0;
+        for (DeviceDataBlock block : blocks) {
+            estimated += block.getPointCount();
+        }
+        TelemetrySeries compacted = new TelemetrySeries(Math.max(16, estimated));
+        for (DeviceDataBlock block : blocks) {
+            TelemetryBlockCodec.decodeInto(block.getPayload(), compacted, fromMillis, toMillis);
+        }
+
+        TelemetrySeries raw = new TelemetrySeries(64);
+        jdbcTemplate.query(RAW_RANGE_SQL, rs -> {
+            appendRow(rs, 1, raw);
+        }, deviceId, Timestamp.valueOf(start), Timestamp.valueOf(end));
+
+        return TelemetrySeries.merge(compacted, raw);
+    }
+
+    /**
+     * Counts the readings of a range hour by hour without loading block payloads, except for the
+     * partially covered first and last hour.
+     */
+    public RangePlan plan(Long deviceId, LocalDateTime start, LocalDateTime end) {
+        long fromMillis = TelemetrySeries.toEpochMillis(start);
+        long toMillis = TelemetrySeries.toEpochMillis(end);
+        RangePlan plan = new RangePlan(deviceId, fromMillis, toMillis);
+
+        for (Object[] row : deviceDataBlockRepository.findOverlappingCounts(deviceId, start.minusHours(1), start, end)) {
+            LocalDateTime blockStart = (LocalDateTime) row[0];
+            long hour = TelemetrySeries.toEpochMillis(blockStart);
+            int count = (Integer) row[1];
+            if (hour < fromMillis || hour + HOUR_MILLIS > toMillis) {
+                count = deviceDataBlockRepository.findPayload(deviceId, blockStart)
+                    .map(payload -> TelemetryBlockCodec.decodeInto(payload, new TelemetrySeries(16),
+                        fromMillis, toMillis))
+                    .orElse(0);
+            }
+            plan.add(hour, count);
+        }
+        jdbcTemplate.query(RAW_TIMESTAMPS_SQL, rs -> {
+            long timestamp = TelemetrySeries.toEpochMillis(rs.getTimestamp(1).toLocalDateTime());
+            plan.add(Math.floorDiv(timestamp, HOUR_MILLIS) * HOUR_MILLIS, 1);
+        }, deviceId, Timestamp.valueOf(start), Timestamp.valueOf(end));
+        return plan;
+    }
+
+    /**
+     * Passes readings [from, to) of a planned range to the consumer in ascending order, one hour
+     * per call. Hours outside [from, to) are skipped without touching storage.
+     */
+    public void read(RangePlan plan, long from, long to, Consumer<TelemetrySeries> consumer) {
+        long position = 0;
+        for (Map.Entry<Long, Integer> hour : plan.hours.entrySet()) {
+            if (position >= to) {
+                break;
+            }
+            long next = position + hour.getValue();
+            if (next > from) {
+                TelemetrySeries readings = readHour(plan, hour.getKey());
+                int first = (int) Math.min(readings.size(), Math.max(0, from - position));
+                int last = (int) Math.min(readings.size(), to - position);
+                if (first < last) {
+                    consumer.accept(first == 0 && last == readings.size() ? readings : readings.slice(first, last));
+                }
+            }
+            position = next;
+        }
+    }
+
+    // Looks the block up again rather than trusting the plan, in case compaction ran in between
+    private TelemetrySeries readHour(RangePlan plan, long hour) {
+        long fromMillis = Math.max(hour, plan.fromMillis);
+        long toMillis = Math.min(hour + HOUR_MILLIS, plan.toMillis);
+
+        TelemetrySeries compacted = new TelemetrySeries(64);
+        deviceDataBlockRepository.findPayload(plan.deviceId, TelemetrySeries.toLocalDateTime(hour))
+            .ifPresent(payload -> TelemetryBlockCodec.decodeInto(payload, compacted, fromMillis, toMillis));
+
+        TelemetrySeries raw = new TelemetrySeries(64);
+        jdbcTemplate.query(RAW_RANGE_SQL, rs -> {
+            appendRow(rs, 1, raw);
+        }, plan.deviceId, Timestamp.valueOf(TelemetrySeries.toLocalDateTime(fromMillis)),
+            Timestamp.valueOf(TelemetrySeries.toLocalDateTime(toMillis)));
+
+        return TelemetrySeries.merge(compacted, raw);
+    }
+
+    /** Appends the row's timestamp and five metric columns, starting at firstColumn. */
+    static void appendRow(ResultSet rs, int firstColumn, TelemetrySeries target) throws SQLException {
+        target.add(TelemetrySeries.toEpochMillis(rs.getTimestamp(firstColumn).toLocalDateTime()),
+            getDouble(rs, firstColumn + 1), getDouble(rs, firstColumn + 2), getDouble(rs, firstColumn + 3),
+            getDouble(rs, firstColumn + 4), getDouble(rs, firstColumn + 5));
+    }
+
+    private static double getDouble(ResultSet rs, int column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? Double.NaN : value;
+    }
+
+    /** Readings per hour of one device and range, in hour order. */
+    public static final class RangePlan {
+        private final Long deviceId;
+        private final long fromMillis;
+        private final long toMillis;
+        private final TreeMap<Long, Integer> hours = new TreeMap<>();
+        private long total;
+
+        RangePlan(Long deviceId, long fromMillis, long toMillis) {
+            this.deviceId = deviceId;
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+        }
+
+        void add(long hour, int count) {
+            if (count > 0) {
+                hours.merge(hour, count, Integer::sum);
+                total += count;
+            }
+        }
+
+        public long getTotal() { return total; }
+    }
+}
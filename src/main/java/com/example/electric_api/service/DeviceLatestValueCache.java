@@ -0,0 +1,172 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.DeviceLatestValue;
+import com.example.electric_api.dto.TelemetryReading;
+import com.example.electric_api.dto.TelemetrySeries;
+import com.example.electric_api.entity.Device;
+import com.example.electric_api.repository.DeviceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One entry per active device with its latest reading and status, so dashboards and the map
+ * get a whole station or a list of devices from memory instead of one "latest row" query
+ * per device. Readings arrive from the write pipeline after each committed batch; device
+ * metadata and the last stored reading are loaded once at startup with two grouped queries.
+ */
+@Component
+public class DeviceLatestValueCache implements TelemetryListener {
+
+    static final String LATEST_RAW_SQL =
+        "SELECT d.device_id, d.timestamp, d.voltage, d.current, d.power, d.frequency, d.temperature " +
+        "FROM device_data d JOIN (SELECT device_id, MAX(timestamp) AS latest FROM device_data GROUP BY device_id) m " +
+        "ON m.device_id = d.device_id AND m.latest = d.timestamp";
+
+    static final String LATEST_BLOCK_SQL =
+        "SELECT b.device_id, b.payload FROM device_data_blocks b " +
+        "JOIN (SELECT device_id, MAX(block_start) AS latest FROM device_data_blocks GROUP BY device_id) m " +
+        "ON m.device_id = b.device_id AND m.latest = b.block_start";
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, DeviceLatestValue> entries = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> devicesByStation = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        long started = System.currentTimeMillis();
+        try {
+            for (Object[] row : deviceRepository.findActiveDeviceKeys()) {
+                putDevice((Long) row[0], (Long) row[1], (Device.DeviceStatus) row[2]);
+            }
+
+            // Compacted hours first, then raw rows; the newer reading wins either way
+            jdbcTemplate.query(LATEST_BLOCK_SQL, rs -> {
+                TelemetrySeries block = new TelemetrySeries(16);
+                TelemetryBlockCodec.decodeInto(rs.getBytes(2), block, Long.MIN_VALUE, Long.MAX_VALUE);
+                if (!block.isEmpty()) {
+                    int last = block.size() - 1;
+                    putReading(rs.getLong(1), block.getTimestamp(last), block.getVoltage(last), block.getCurrent(last),
+                        block.getPower(last), block.getFrequency(last), block.getTemperature(last));
+                }
+            });
+            jdbcTemplate.query(LATEST_RAW_SQL, rs -> {
+                TelemetrySeries row = new TelemetrySeries(1);
+                DeviceDataHistoryReader.appendRow(rs, 2, row);
+                putReading(rs.getLong(1), row.getTimestamp(0), row.getVoltage(0), row.getCurrent(0),
+                    row.getPower(0), row.getFrequency(0), row.getTemperature(0));
+            });
+            System.out.println("📍 Latest-value cache loaded " + entries.size() + " devices in " +
+                (System.currentTimeMillis() - started) + "ms");
+        } catch (Exception e) {
+            System.out.println("⚠️ Could not warm latest-value cache: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onReadings(List<TelemetryReading> readings) {
+        for (TelemetryReading reading : readings) {
+            putReading(reading.getDeviceId(), TelemetrySeries.toEpochMillis(reading.getTimestamp()),
+                TelemetrySeries.toDouble(reading.getVoltage()),
+                TelemetrySeries.toDouble(reading.getCurrent()),
+                TelemetrySeries.toDouble(reading.getPower()),
+                TelemetrySeries.toDouble(reading.getFrequency()),
+                TelemetrySeries.toDouble(reading.getTemperature()));
+        }
+    }
+
+    /** Latest values for the given devices in request order; unknown or inactive ids are skipped. */
+    public List<DeviceLatestValue> getLatest(Collection<Long> deviceIds) {
+        List<DeviceLatestValue> result = new ArrayList<>(deviceIds.size());
+        for (Long deviceId : deviceIds) {
+            DeviceLatestValue value = entries.get(deviceId);
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    /** Latest values for every active device of a station, ordered by device id. */
+    public List<DeviceLatestValue> getLatestByStation(Long stationId) {
+        Set<Long> deviceIds = devicesByStation.get(stationId);
+        if (deviceIds == null) {
+            return Collections.emptyList();
+        }
+        List<Long> sorted = new ArrayList<>(deviceIds);
+        Collections.sort(sorted);
+        return getLatest(sorted);
+    }
+
+    /** Station of an active device, or null when the device is unknown. */
+    public Long getStationId(Long deviceId) {
+        DeviceLatestValue value = entries.get(deviceId);
+        return value != null ? value.getStationId() : null;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /** Keeps station and status in step once a device change has committed. */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        if (event.getAfter() == null) {
+            removeDevice(event.getDeviceId());
+        } else {
+            putDevice(event.getDeviceId(), event.getAfter().getStationId(), event.getAfter().getStatus());
+        }
+    }
+
+    private void removeDevice(Long deviceId) {
+        DeviceLatestValue removed = entries.remove(deviceId);
+        if (removed != null && removed.getStationId() != null) {
+            unindex(removed.getStationId(), deviceId);
+        }
+    }
+
+    private void putDevice(Long deviceId, Long stationId, Device.DeviceStatus status) {
+        DeviceLatestValue previous = entries.get(deviceId);
+        entries.compute(deviceId, (id, current) -> current == null
+            ? new DeviceLatestValue(id, stationId, status)
+            : current.withDevice(stationId, status));
+
+        if (previous != null && previous.getStationId() != null && !previous.getStationId().equals(stationId)) {
+            unindex(previous.getStationId(), deviceId);
+        }
+        if (stationId != null) {
+            devicesByStation.computeIfAbsent(stationId, id -> ConcurrentHashMap.newKeySet()).add(deviceId);
+        }
+    }
+
+    // Out-of-order batches never move a device back in time. Readings for ids without an entry
+    // (unknown, deleted or deactivated devices) are dropped, as getLatest would skip them anyway.
+    private void putReading(Long deviceId, long timestamp, double voltage, double current, double power,
+                            double frequency, double temperature) {
+        entries.computeIfPresent(deviceId, (id, value) -> {
+            if (value.hasReading() && value.getTimestampMillis() > timestamp) {
+                return value;
+            }
+            return value.withReading(timestamp, voltage, current, power, frequency, temperature);
+        });
+    }
+
+    private void unindex(Long stationId, Long deviceId) {
+        devicesByStation.computeIfPresent(stationId, (id, devices) -> {
+            devices.remove(deviceId);
+            return devices.isEmpty() ? null : devices;
+        });
+    }
+}
@@ -1,9 +1,22 @@
 package com.example.electric_api.service;
 
+import com.example.electric_api.config.CacheConfig;
 import com.example.electric_api.controller.DeviceController;
+import com.example.electric_api.dto.DeviceCountRow;
+import com.example.electric_api.dto.DeviceLatestValue;
+import com.example.electric_api.dto.DeviceListItem;
+import com.example.electric_api.dto.KeysetPage;
+import com.example.electric_api.dto.DistributionEntry;
+import com.example.electric_api.dto.TelemetrySeries;
 import com.example.electric_api.entity.*;
 import com.example.electric_api.repository.*;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -13,8 +26,9 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.IntToDoubleFunction;
 
 @Service
 @Transactional
@@ -32,10 +46,76 @@ public class DeviceService {
     @Autowired
     private StationRepository stationRepository;
 
+    @Autowired
+    private DeviceTelemetryHotStore deviceTelemetryHotStore;
+
+    @Autowired
+    private DeviceDataHistoryReader deviceDataHistoryReader;
+
+    @Autowired
+    private TelemetryRollupService telemetryRollupService;
+
+    @Autowired
+    private DeviceLatestValueCache deviceLatestValueCache;
+
+    @Autowired
+    private DeviceStatusCounters deviceStatusCounters;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.telemetry.history.max-points:10000}")
+    private int maxHistoryPoints;
+
     public Page<Device> getAllDevices(Pageable pageable) {
         return deviceRepository.findByIsActiveTrue(pageable);
     }
 
+    /** Active devices by id, continuing after the cursor's id; every page is a primary key seek. */
+    @Transactional(readOnly = true)
+    public KeysetPage<DeviceListItem> listDevices(String search, Device.DeviceStatus status, Long stationId,
+                                                  Long deviceTypeId, String cursor, int size) {
+        StringBuilder jpql = new StringBuilder(
+            "SELECT new com.example.electric_api.dto.DeviceListItem(d.id, d.name, d.model, d.serialNumber, d.status, " +
+            "d.station.id, d.deviceType.id, d.manufacturer.id, d.latitude, d.longitude, d.installationDate, " +
+            "d.lastMaintenance) FROM Device d WHERE d.isActive = true");
+        Map<String, Object> params = new HashMap<>();
+        if (search != null && !search.isEmpty()) {
+            jpql.append(" AND (d.name LIKE :search OR d.model LIKE :search OR d.serialNumber LIKE :search)");
+            params.put("search", "%" + search + "%");
+        }
+        if (status != null) {
+            jpql.append(" AND d.status = :status");
+            params.put("status", status);
+        }
+        if (stationId != null) {
+            jpql.append(" AND d.station.id = :stationId");
+            params.put("stationId", stationId);
+        }
+        if (deviceTypeId != null) {
+            jpql.append(" AND d.deviceType.id = :deviceTypeId");
+            params.put("deviceTypeId", deviceTypeId);
+        }
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] keys = KeysetCursor.decode("devices", cursor, 1);
+            jpql.append(" AND d.id > :afterId");
+            try {
+                params.put("afterId", Long.parseLong(keys[0]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        jpql.append(" ORDER BY d.id");
+
+        TypedQuery<DeviceListItem> query = entityManager.createQuery(jpql.toString(), DeviceListItem.class);
+        params.forEach(query::setParameter);
+        query.setMaxResults(size + 1);
+        return KeysetPage.of(query.getResultList(), size, last -> KeysetCursor.encode("devices", last.getId()));
+    }
+
     public Page<Device> searchDevices(String search, Pageable pageable) {
         return deviceRepository.searchActiveDevices(search, pageable);
     }
@@ -89,11 +169,14 @@ public class DeviceService {
             device.setInstallationDate(LocalDate.parse(request.getInstallationDate()));
         }
 
-        return deviceRepository.save(device);
+        Device saved = deviceRepository.save(device);
+        eventPublisher.publishEvent(new DeviceChangedEvent(saved.getId(), null, DeviceChangedEvent.State.of(saved)));
+        return saved;
     }
 
     public Device updateDevice(Long id, DeviceController.DeviceUpdateRequest request) {
         Device device = getDeviceById(id);
+        DeviceChangedEvent.State before = DeviceChangedEvent.State.of(device);
 
         // Update basic info
         if (request.getName() != null) device.setName(request.getName());
@@ -141,79 +224,238 @@ public class DeviceService {
             device.setStation(station);
         }
 
-        return deviceRepository.save(device);
+        Device saved = deviceRepository.save(device);
+        eventPublisher.publishEvent(new DeviceChangedEvent(id, before, DeviceChangedEvent.State.of(saved)));
+        return saved;
     }
 
     public void deleteDevice(Long id) {
         Device device = getDeviceById(id);
+        DeviceChangedEvent.State before = DeviceChangedEvent.State.of(device);
         device.setIsActive(false);
         deviceRepository.save(device);
+        eventPublisher.publishEvent(new DeviceChangedEvent(id, before, null));
+    }
+
+    public Map<String, Object> getLatestValues(List<Long> deviceIds, Long stationId) {
+        List<DeviceLatestValue> latest = stationId != null
+            ? deviceLatestValueCache.getLatestByStation(stationId)
+            : deviceLatestValueCache.getLatest(deviceIds);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("devices", latest);
+        response.put("count", latest.size());
+        if (stationId != null) {
+            response.put("stationId", stationId);
+        }
+        response.put("dataTier", "MEMORY");
+        return response;
     }
 
     public Map<String, Object> getDeviceData(Long deviceId, Pageable pageable) {
         Device device = getDeviceById(deviceId);
         
-        // Generate mock real-time data since we don't have real sensors
-        List<Map<String, Object>> mockData = generateMockDeviceData(device, 20);
-        
         Map<String, Object> response = new HashMap<>();
         response.put("device", device);
-        response.put("data", mockData);
-        response.put("lastUpdated", LocalDateTime.now());
         response.put("status", device.getStatus());
+
+        // Recent readings come from the in-memory hot tier; mock data only for devices that never reported
+        TelemetrySeries recent = deviceTelemetryHotStore.getRecent(deviceId,
+            (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE), pageable.getPageSize());
+        if (!recent.isEmpty()) {
+            response.put("data", recent);
+            response.put("lastUpdated", TelemetrySeries.toLocalDateTime(recent.getTimestamp(0)));
+            response.put("dataTier", "MEMORY");
+        } else {
+            response.put("data", generateMockDeviceData(device, 20));
+            response.put("lastUpdated", LocalDateTime.now());
+            response.put("dataTier", "MOCK");
+        }
         
         return response;
     }
 
-    public Map<String, Object> getDeviceDataHistory(Long deviceId, String startDate, String endDate, Pageable pageable) {
+    public Map<String, Object> getDeviceDataHistory(Long deviceId, String startDate, String endDate, Integer points,
+                                                    Integer maxPoints, String metric, Pageable pageable) {
         Device device = getDeviceById(deviceId);
-        
-        // Generate mock historical data
-        List<Map<String, Object>> mockHistory = generateMockHistoricalData(device, startDate, endDate);
+        if (maxPoints != null && (maxPoints < 3 || maxPoints > maxHistoryPoints)) {
+            throw new IllegalArgumentException("maxPoints must be between 3 and " + maxHistoryPoints);
+        }
+        if (!TelemetrySeries.METRICS.contains(metric)) {
+            throw new IllegalArgumentException("metric must be one of " + TelemetrySeries.METRICS);
+        }
         
         Map<String, Object> response = new HashMap<>();
         response.put("device", device);
-        response.put("history", mockHistory);
-        response.put("totalRecords", mockHistory.size());
         response.put("startDate", startDate);
         response.put("endDate", endDate);
+
+        LocalDateTime start = parseHistoryStart(startDate);
+        LocalDateTime end = parseHistoryEnd(endDate);
+
+        // Chart requests: serve the coarsest rollup that still gives the requested number of points
+        Integer targetPoints = points != null ? points : maxPoints;
+        if (targetPoints != null && targetPoints > 0) {
+            DeviceDataRollup.Resolution resolution = telemetryRollupService.chooseResolution(start, end, targetPoints);
+            if (resolution != null) {
+                List<DeviceDataRollup> rollups = telemetryRollupService.readRange(deviceId, resolution, start, end);
+                if (!rollups.isEmpty()) {
+                    int[] keep = downsample(rollups.size(),
+                        i -> TelemetrySeries.toEpochMillis(rollups.get(i).getBucketStart()),
+                        i -> TelemetrySeries.toDouble(rollups.get(i).getAvg(metric)), maxPoints, response);
+                    List<DeviceDataRollup> history = rollups;
+                    if (keep != null) {
+                        history = new ArrayList<>(keep.length);
+                        for (int index : keep) {
+                            history.add(rollups.get(index));
+                        }
+                    }
+                    response.put("history", history);
+                    response.put("totalRecords", rollups.size());
+                    response.put("resolution", resolution.getLabel());
+                    response.put("dataTier", "ROLLUP");
+                    return response;
+                }
+            }
+        }
+
+        // Stored readings from compressed hourly blocks plus not-yet-compacted rows. The range is
+        // counted first; then only the hours of the page are decoded, or every hour is streamed
+        // through the downsampler, so a long range is never held in memory at once.
+        DeviceDataHistoryReader.RangePlan plan = deviceDataHistoryReader.plan(deviceId, start, end);
+        if (plan.getTotal() > 0) {
+            if (maxPoints != null && plan.getTotal() > maxPoints) {
+                LttbDownsampler.SeriesStream downsampler = new LttbDownsampler.SeriesStream(plan.getTotal(), maxPoints, metric);
+                deviceDataHistoryReader.read(plan, 0, plan.getTotal(), downsampler::accept);
+                TelemetrySeries kept = downsampler.finish();
+                response.put("history", kept);
+                response.put("downsampled", true);
+                response.put("returnedRecords", kept.size());
+            } else {
+                long from = Math.min(pageable.getOffset(), plan.getTotal());
+                TelemetrySeries page = new TelemetrySeries(pageable.getPageSize());
+                deviceDataHistoryReader.read(plan, from, from + pageable.getPageSize(), chunk -> {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        page.add(chunk, i);
+                    }
+                });
+                response.put("history", page);
+                response.put("page", pageable.getPageNumber());
+                response.put("size", pageable.getPageSize());
+            }
+            response.put("totalRecords", plan.getTotal());
+            response.put("resolution", "raw");
+            response.put("dataTier", "STORAGE");
+            return response;
+        }
+
+        // Generate mock historical data
+        List<Map<String, Object>> mockHistory = generateMockHistoricalData(device, startDate, endDate);
+        int[] keep = downsample(mockHistory.size(), i -> i,
+            i -> TelemetrySeries.toDouble((Number) mockHistory.get(i).get(metric)), maxPoints, response);
+        List<Map<String, Object>> history = mockHistory;
+        if (keep != null) {
+            history = new ArrayList<>(keep.length);
+            for (int index : keep) {
+                history.add(mockHistory.get(index));
+            }
+        }
+        response.put("history", history);
+        response.put("totalRecords", mockHistory.size());
+        response.put("dataTier", "MOCK");
         
         return response;
     }
 
+    // LTTB indices to keep when the series is longer than maxPoints, otherwise null
+    private int[] downsample(int size, IntToDoubleFunction x, IntToDoubleFunction y, Integer maxPoints,
+                             Map<String, Object> response) {
+        if (maxPoints == null || size <= maxPoints) {
+            return null;
+        }
+        int[] keep = LttbDownsampler.select(size, x, y, maxPoints);
+        response.put("downsampled", true);
+        response.put("returnedRecords", keep.length);
+        return keep;
+    }
+
+    /** Cached briefly and evicted on device changes; the returned map is shared and must not be modified. */
+    @Cacheable(cacheNames = CacheConfig.DEVICE_STATISTICS, key = "'all'", sync = true)
+    @Transactional(readOnly = true)
     public Map<String, Object> getDeviceStatistics() {
-        Map<String, Object> stats = new HashMap<>();
-        
-        // Count by status
+        // Stations and types without devices still show up with 0
+        Map<Long, DistributionEntry> stations = new LinkedHashMap<>();
+        for (DistributionEntry station : stationRepository.findAllAsDistributionEntries()) {
+            stations.put(station.getId(), station);
+        }
+        Map<Long, DistributionEntry> types = new LinkedHashMap<>();
+        for (DistributionEntry type : deviceTypeRepository.findAllAsDistributionEntries()) {
+            types.put(type.getId(), type);
+        }
+
+        // Counts come from the in-memory counters once they are loaded
+        if (deviceStatusCounters.isReady()) {
+            for (DistributionEntry station : stations.values()) {
+                station.add(deviceStatusCounters.getStationCount(station.getId()));
+            }
+            for (DistributionEntry type : types.values()) {
+                type.add(deviceStatusCounters.getTypeCount(type.getId()));
+            }
+            return buildStatistics(deviceStatusCounters.getTotal(), deviceStatusCounters.getStatusCounts(),
+                stations.values(), types.values(), "COUNTERS");
+        }
+
         Map<String, Long> statusCounts = new HashMap<>();
         for (Device.DeviceStatus status : Device.DeviceStatus.values()) {
-            statusCounts.put(status.name().toLowerCase(), 
-                deviceRepository.countByStatusAndIsActiveTrue(status));
+            statusCounts.put(status.name().toLowerCase(), 0L);
         }
-        
-        // Count by station
-        List<Object[]> stationCounts = stationRepository.findAll().stream()
-            .map(station -> new Object[]{
-                station.getName(), 
-                deviceRepository.countByStationIdAndIsActiveTrue(station.getId())
-            })
-            .collect(Collectors.toList());
-        
-        // Count by device type
-        List<Object[]> typeCounts = deviceTypeRepository.findAll().stream()
-            .map(type -> new Object[]{
-                type.getName(),
-                deviceRepository.countByDeviceTypeIdAndIsActiveTrue(type.getId())
-            })
-            .collect(Collectors.toList());
-        
-        stats.put("totalDevices", deviceRepository.countByIsActiveTrue());
+
+        long total = 0;
+        for (DeviceCountRow row : deviceRepository.countActiveGroupedByStatusStationAndType()) {
+            total += row.getCount();
+            statusCounts.merge(row.getStatus().name().toLowerCase(), row.getCount(), Long::sum);
+            DistributionEntry station = stations.get(row.getStationId());
+            if (station != null) {
+                station.add(row.getCount());
+            }
+            DistributionEntry type = types.get(row.getDeviceTypeId());
+            if (type != null) {
+                type.add(row.getCount());
+            }
+        }
+
+        return buildStatistics(total, statusCounts, stations.values(), types.values(), "QUERY");
+    }
+
+    private Map<String, Object> buildStatistics(long total, Map<String, Long> statusCounts,
+                                                Collection<DistributionEntry> stations,
+                                                Collection<DistributionEntry> types, String countSource) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalDevices", total);
         stats.put("statusDistribution", statusCounts);
-        stats.put("stationDistribution", stationCounts);
-        stats.put("typeDistribution", typeCounts);
+        stats.put("stationDistribution", new ArrayList<>(stations));
+        stats.put("typeDistribution", new ArrayList<>(types));
+        stats.put("countSource", countSource);
         stats.put("lastUpdated", LocalDateTime.now());
         
-        return stats;
+        return Collections.unmodifiableMap(stats);
+    }
+
+    // History range defaults: last 7 days, end date inclusive
+    public static LocalDateTime parseHistoryStart(String startDate) {
+        return startDate != null ? parseHistoryDate("startDate", startDate).atStartOfDay() : LocalDateTime.now().minusDays(7);
+    }
+
+    public static LocalDateTime parseHistoryEnd(String endDate) {
+        return endDate != null ? parseHistoryDate("endDate", endDate).plusDays(1).atStartOfDay() : LocalDateTime.now();
+    }
+
+    private static LocalDate parseHistoryDate(String name, String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " must be a date in yyyy-MM-dd format");
+        }
     }
 
     // Mock data generators
@@ -239,12 +481,8 @@ public class DeviceService {
         List<Map<String, Object>> history = new ArrayList<>();
         Random random = new Random();
         
-        LocalDateTime start = startDate != null ? 
-            LocalDate.parse(startDate).atStartOfDay() : 
-            LocalDateTime.now().minusDays(7);
-        LocalDateTime end = endDate != null ? 
-            LocalDate.parse(endDate).atTime(23, 59, 59) : 
-            LocalDateTime.now();
+        LocalDateTime start = parseHistoryStart(startDate);
+        LocalDateTime end = parseHistoryEnd(endDate);
         
         LocalDateTime current = start;
         while (current.isBefore(end)) {
@@ -0,0 +1,230 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.config.CacheConfig;
+import com.example.electric_api.dto.DeviceCountRow;
+import com.example.electric_api.entity.Device;
+import com.example.electric_api.repository.DeviceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Active device counts keyed by status x station x type, kept in LongAdders and moved by
+ * DeviceChangedEvents after each commit. Dashboard, statistics and grid map reads add up a
+ * handful of counters instead of scanning devices or running count queries.
+ *
+ * The counters are rebuilt from one grouped query at startup and compared against it on
+ * a schedule; any drift (e.g. rows changed outside DeviceService) is corrected then. A change
+ * is tracked from the moment it is published inside its transaction until it is applied after
+ * commit, so a reconcile whose query may already have seen an unapplied change is skipped
+ * rather than counting it twice.
+ */
+@Component
+public class DeviceStatusCounters {
+
+    private static final int RECONCILE_ATTEMPTS = 3;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private final Map<DeviceChangedEvent.State, LongAdder> counters = new ConcurrentHashMap<>();
+    private final LongAdder[] byStatus = new LongAdder[Device.DeviceStatus.values().length];
+    private final Map<Long, LongAdder> byStation = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> byType = new ConcurrentHashMap<>();
+
+    // Bumped on every published change so reconcile can tell whether its snapshot is still current
+    private final AtomicLong changeSequence = new AtomicLong();
+    // Changes published in a transaction that has not completed yet
+    private final AtomicLong inFlight = new AtomicLong();
+    private volatile boolean ready;
+    private volatile long lastDrift;
+
+    public DeviceStatusCounters() {
+        for (int i = 0; i < byStatus.length; i++) {
+            byStatus[i] = new LongAdder();
+        }
+    }
+
+    /** Runs when the change is published; the counters move only once its transaction commits. */
+    @EventListener
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        if (Objects.equals(event.getBefore(), event.getAfter())) {
+            return;
+        }
+        changeSequence.incrementAndGet();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(event);
+            return;
+        }
+        inFlight.incrementAndGet();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        apply(event);
+                    }
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${app.devices.counters.reconcile-interval-ms:300000}",
+               initialDelayString = "${app.devices.counters.reconcile-interval-ms:300000}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    /**
+     * Brings the counters in line with the database. The correction is only applied if no change
+     * was between publish and apply when the query ran and none was published since; otherwise the
+     * query may have seen a change the counters have not, and it is retried a few times before
+     * being left to the next run. Returns the total absolute drift corrected.
+     */
+    public synchronized long reconcile() {
+        for (int attempt = 0; attempt < RECONCILE_ATTEMPTS; attempt++) {
+            Long drift = tryReconcile();
+            if (drift != null) {
+                return drift;
+            }
+        }
+        System.out.println("⏭️ Device counters changed during reconcile; retrying on next run");
+        return 0;
+    }
+
+    // Null when changes were in flight; runs under the same lock as apply
+    private Long tryReconcile() {
+        try {
+            long sequence = changeSequence.get();
+            if (inFlight.get() > 0) {
+                return null;
+            }
+            Map<DeviceChangedEvent.State, Long> actual = new HashMap<>();
+            for (DeviceCountRow row : deviceRepository.countActiveGroupedByStatusStationAndType()) {
+                actual.put(new DeviceChangedEvent.State(row.getStatus(), row.getStationId(), row.getDeviceTypeId()),
+                    row.getCount());
+            }
+
+            Map<DeviceChangedEvent.State, Long> corrections = new HashMap<>();
+            Set<DeviceChangedEvent.State> keys = new HashSet<>(counters.keySet());
+            keys.addAll(actual.keySet());
+            for (DeviceChangedEvent.State key : keys) {
+                LongAdder counter = counters.get(key);
+                long delta = actual.getOrDefault(key, 0L) - (counter != null ? counter.sum() : 0L);
+                if (delta != 0) {
+                    corrections.put(key, delta);
+                }
+            }
+            if (changeSequence.get() != sequence) {
+                return null;
+            }
+
+            long drift = 0;
+            for (Map.Entry<DeviceChangedEvent.State, Long> correction : corrections.entrySet()) {
+                add(correction.getKey(), correction.getValue());
+                drift += Math.abs(correction.getValue());
+            }
+            if (ready && drift > 0) {
+                System.out.println("⚠️ Device counters drifted by " + drift + "; corrected from database");
+            }
+            lastDrift = drift;
+            ready = true;
+            return drift;
+        } catch (Exception e) {
+            System.out.println("❌ Device counter reconcile failed: " + e.getMessage());
+            return 0L;
+        }
+    }
+
+    /** False until the first successful reconcile; callers fall back to querying until then. */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long getTotal() {
+        long total = 0;
+        for (LongAdder counter : byStatus) {
+            total += counter.sum();
+        }
+        return total;
+    }
+
+    public long getCount(Device.DeviceStatus status) {
+        return byStatus[status.ordinal()].sum();
+    }
+
+    /** Counts per status, lowercase names, including zeros. */
+    public Map<String, Long> getStatusCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        for (Device.DeviceStatus status : Device.DeviceStatus.values()) {
+            counts.put(status.name().toLowerCase(), getCount(status));
+        }
+        return counts;
+    }
+
+    public long getStationCount(Long stationId) {
+        LongAdder counter = byStation.get(stationId);
+        return counter != null ? counter.sum() : 0;
+    }
+
+    public long getTypeCount(Long deviceTypeId) {
+        LongAdder counter = byType.get(deviceTypeId);
+        return counter != null ? counter.sum() : 0;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("ready", ready);
+        stats.put("keys", counters.size());
+        stats.put("lastDrift", lastDrift);
+        return stats;
+    }
+
+    private synchronized void apply(DeviceChangedEvent event) {
+        if (event.getBefore() != null) {
+            add(event.getBefore(), -1);
+        }
+        if (event.getAfter() != null) {
+            add(event.getAfter(), 1);
+        }
+        // Cached device statistics are built from these counters
+        Cache statistics = cacheManager.getCache(CacheConfig.DEVICE_STATISTICS);
+        if (statistics != null) {
+            statistics.clear();
+        }
+    }
+
+    private void add(DeviceChangedEvent.State key, long delta) {
+        counters.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+        if (key.getStatus() != null) {
+            byStatus[key.getStatus().ordinal()].add(delta);
+        }
+        if (key.getStationId() != null) {
+            byStation.computeIfAbsent(key.getStationId(), k -> new LongAdder()).add(delta);
+        }
+        if (key.getDeviceTypeId() != null) {
+            byType.computeIfAbsent(key.getDeviceTypeId(), k -> new LongAdder()).add(delta);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.TelemetryReading;
+import com.example.electric_api.dto.TelemetrySeries;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hot tier for recent device readings. Each device gets a ring of primitive arrays (one per
+ * metric, about 48 bytes per reading) instead of DeviceData entities with five BigDecimals.
+ * Fed by the write pipeline after each committed batch, and lazily warmed from storage
+ * the first time a device is read after a restart.
+ */
+@Component
+public class DeviceTelemetryHotStore implements TelemetryListener {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    @Autowired
+    private DeviceDataHistoryReader deviceDataHistoryReader;
+
+    @Value("${app.telemetry.hot.retention-hours:6}")
+    private int retentionHours;
+
+    @Value("${app.telemetry.hot.max-points-per-device:1440}")
+    private int maxPointsPerDevice;
+
+    private final Map<Long, DeviceRing> rings = new ConcurrentHashMap<>();
+
+    @Override
+    public void onReadings(List<TelemetryReading> readings) {
+        long cutoff = cutoffMillis();
+        for (TelemetryReading reading : readings) {
+            long timestamp = TelemetrySeries.toEpochMillis(reading.getTimestamp());
+            if (timestamp < cutoff) {
+                continue;
+            }
+            // Append inside compute so the prune job cannot discard the ring in between
+            rings.compute(reading.getDeviceId(), (id, ring) -> {
+                DeviceRing target = ring != null ? ring : new DeviceRing(maxPointsPerDevice);
+                target.append(timestamp,
+                    TelemetrySeries.toDouble(reading.getVoltage()),
+                    TelemetrySeries.toDouble(reading.getCurrent()),
+                    TelemetrySeries.toDouble(reading.getPower()),
+                    TelemetrySeries.toDouble(reading.getFrequency()),
+                    TelemetrySeries.toDouble(reading.getTemperature()));
+                return target;
+            });
+        }
+    }
+
+    /**
+     * Newest-first readings for a device within the retention window, skipping the first
+     * {@code offset} readings. Returns an empty series when nothing recent is known.
+     */
+    public TelemetrySeries getRecent(Long deviceId, int offset, int limit) {
+        DeviceRing ring = rings.computeIfAbsent(deviceId, id -> new DeviceRing(maxPointsPerDevice));
+        if (!ring.warmed) {
+            warm(deviceId, ring);
+        }
+        return ring.copyNewest(offset, limit, cutoffMillis());
+    }
+
+    public Map<String, Object> getStats() {
+        long points = 0;
+        long allocatedBytes = 0;
+        for (DeviceRing ring : rings.values()) {
+            synchronized (ring) {
+                points += ring.count;
+                allocatedBytes += (long) ring.timestamps.length * DeviceRing.BYTES_PER_POINT;
+            }
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("devices", rings.size());
+        stats.put("points", points);
+        stats.put("allocatedBytes", allocatedBytes);
+        stats.put("retentionHours", retentionHours);
+        stats.put("maxPointsPerDevice", maxPointsPerDevice);
+        return stats;
+    }
+
+    @Scheduled(fixedDelayString = "${app.telemetry.hot.prune-interval-ms:60000}")
+    public void pruneExpired() {
+        long cutoff = cutoffMillis();
+        // Devices that went quiet drop out entirely; they are re-warmed on the next read
+        for (Long deviceId : rings.keySet()) {
+            rings.computeIfPresent(deviceId, (id, ring) -> ring.trim(cutoff) ? null : ring);
+        }
+    }
+
+    // Loads readings persisted before this ring started receiving live data (e.g. before a restart).
+    // The query stops at the first live reading; anything from there on is already in the ring.
+    private void warm(Long deviceId, DeviceRing ring) {
+        if (!ring.warming.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long before = ring.oldestTimestamp(Long.MAX_VALUE);
+            LocalDateTime upper = before == Long.MAX_VALUE
+                ? LocalDateTime.now()
+                : TelemetrySeries.toLocalDateTime(before);
+
+            ring.prependOlder(deviceDataHistoryReader.readRange(deviceId,
+                TelemetrySeries.toLocalDateTime(cutoffMillis()), upper));
+            ring.warmed = true;
+        } finally {
+            ring.warming.set(false);
+        }
+    }
+
+    private long cutoffMillis() {
+        return TelemetrySeries.toEpochMillis(LocalDateTime.now().minusHours(retentionHours));
+    }
+
+    /**
+     * Circular buffer of readings in timestamp order. Arrays start small and double up to
+     * maxPoints, after which the oldest reading is overwritten. A late reading is shifted into
+     * place from the newest end, which costs as many moves as readings it arrived behind.
+     */
+    private static class DeviceRing {
+        static final int BYTES_PER_POINT = Long.BYTES + 5 * Double.BYTES;
+
+        final int maxPoints;
+        final AtomicBoolean warming = new AtomicBoolean();
+        volatile boolean warmed;
+
+        long[] timestamps;
+        double[] voltage;
+        double[] current;
+        double[] power;
+        double[] frequency;
+        double[] temperature;
+        int head;
+        int count;
+
+        DeviceRing(int maxPoints) {
+            this.maxPoints = Math.max(1, maxPoints);
+            allocate(Math.min(INITIAL_CAPACITY, this.maxPoints));
+        }
+
+        synchronized void append(long ts, double v, double c, double p, double f, double t) {
+            if (count == timestamps.length && count < maxPoints) {
+                resize(Math.min(maxPoints, timestamps.length * 2));
+            }
+            if (count == timestamps.length) {
+                // Full: a reading older than everything kept would be evicted straight away
+                if (ts < timestamps[head]) {
+                    return;
+                }
+                head = (head + 1) % timestamps.length;
+                count--;
+            }
+            int position = count;
+            while (position > 0) {
+                int previous = (head + position - 1) % timestamps.length;
+                if (timestamps[previous] <= ts) {
+                    break;
+                }
+                move(previous, (head + position) % timestamps.length);
+                position--;
+            }
+            int slot = (head + position) % timestamps.length;
+            count++;
+            timestamps[slot] = ts;
+            voltage[slot] = v;
+            current[slot] = c;
+            power[slot] = p;
+            frequency[slot] = f;
+            temperature[slot] = t;
+        }
+
+        synchronized TelemetrySeries copyNewest(int offset, int limit, long cutoff) {
+            int available = count - Math.max(0, offset);
+            TelemetrySeries series = new TelemetrySeries(Math.max(1, Math.min(limit, available)));
+            for (int i = count - 1 - Math.max(0, offset); i >= 0 && series.size() < limit; i--) {
+                int slot = (head + i) % timestamps.length;
+                if (timestamps[slot] < cutoff) {
+                    continue;
+                }
+                series.add(timestamps[slot], voltage[slot], current[slot], power[slot], frequency[slot], temperature[slot]);
+            }
+            return series;
+        }
+
+        synchronized long oldestTimestamp(long defaultValue) {
+            return count > 0 ? timestamps[head] : defaultValue;
+        }
+
+        // Puts older readings (ascending) in front of the live ones, keeping the newest maxPoints.
+        // Stored readings at or after the oldest live one are skipped, since the ring has them.
+        synchronized void prependOlder(TelemetrySeries older) {
+            int olderCount = older.size();
+            if (count > 0) {
+                while (olderCount > 0 && older.getTimestamp(olderCount - 1) >= timestamps[head]) {
+                    olderCount--;
+                }
+            }
+            if (olderCount == 0) {
+                return;
+            }
+            int total = Math.min(maxPoints, olderCount + count);
+            int keepOlder = total - count;
+
+            long[] ts = new long[total];
+            double[] v = new double[total], c = new double[total], p = new double[total],
+                f = new double[total], t = new double[total];
+            int n = 0;
+            for (int i = olderCount - keepOlder; i < olderCount; i++, n++) {
+                ts[n] = older.getTimestamp(i);
+                v[n] = older.getVoltage(i);
+                c[n] = older.getCurrent(i);
+                p[n] = older.getPower(i);
+                f[n] = older.getFrequency(i);
+                t[n] = older.getTemperature(i);
+            }
+            for (int i = 0; i < count; i++, n++) {
+                int slot = (head + i) % timestamps.length;
+                ts[n] = timestamps[slot];
+                v[n] = voltage[slot];
+                c[n] = current[slot];
+                p[n] = power[slot];
+                f[n] = frequency[slot];
+                t[n] = temperature[slot];
+            }
+            timestamps = ts;
+            voltage = v;
+            current = c;
+            power = p;
+            frequency = f;
+            temperature = t;
+            head = 0;
+            count = total;
+        }
+
+        /** Drops expired readings; returns true when the ring is empty and can be discarded. */
+        synchronized boolean trim(long cutoff) {
+            while (count > 0 && timestamps[head] < cutoff) {
+                head = (head + 1) % timestamps.length;
+                count--;
+            }
+            return count == 0 && warmed;
+        }
+
+        private void move(int from, int to) {
+            timestamps[to] = timestamps[from];
+            voltage[to] = voltage[from];
+            current[to] = current[from];
+            power[to] = power[from];
+            frequency[to] = frequency[from];
+            temperature[to] = temperature[from];
+        }
+
+        private void resize(int capacity) {
+            long[] ts = new long[capacity];
+            double[] v = new double[capacity], c = new double[capacity], p = new double[capacity],
+                f = new double[capacity], t = new double[capacity];
+            for (int i = 0; i < count; i++) {
+                int slot = (head + i) % timestamps.length;
+                ts[i] = timestamps[slot];
+                v[i] = voltage[slot];
+                c[i] = current[slot];
+                p[i] = power[slot];
+                f[i] = frequency[slot];
+                t[i] = temperature[slot];
+            }
+            timestamps = ts;
+            voltage = v;
+            current = c;
+            power = p;
+            frequency = f;
+            temperature = t;
+            head = 0;
+        }
+
+        private void allocate(int capacity) {
+            timestamps = new long[capacity];
+            voltage = new double[capacity];
+            current = new double[capacity];
+            power = new double[capacity];
+            frequency = new double[capacity];
+            temperature = new double[capacity];
+        }
+    }
+}
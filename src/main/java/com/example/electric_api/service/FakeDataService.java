@@ -458,23 +458,14 @@ public class FakeDataService {
         List<Device> allDevices = getFakeDevices();
         List<Alert> allAlerts = getFakeAlerts();
         
-        // Calculate device statistics
+        // Calculate device statistics in one pass
         int totalDevices = allDevices.size();
-        int onlineDevices = (int) allDevices.stream()
-            .filter(device -> device.getStatus() == Device.DeviceStatus.ONLINE)
-            .count();
-        int offlineDevices = (int) allDevices.stream()
-            .filter(device -> device.getStatus() == Device.DeviceStatus.OFFLINE)
-            .count();
-        int maintenanceDevices = (int) allDevices.stream()
-            .filter(device -> device.getStatus() == Device.DeviceStatus.MAINTENANCE)
-            .count();
-        int errorDevices = (int) allDevices.stream()
-            .filter(device -> device.getStatus() == Device.DeviceStatus.ERROR)
-            .count();
-        int warningDevices = (int) allDevices.stream()
-            .filter(device -> device.getStatus() == Device.DeviceStatus.WARNING)
-            .count();
+        int[] statusCounts = new int[Device.DeviceStatus.values().length];
+        for (Device device : allDevices) {
+            if (device.getStatus() != null) {
+                statusCounts[device.getStatus().ordinal()]++;
+            }
+        }
         
         // Calculate power statistics
         double totalPower = allDevices.stream()
@@ -533,11 +524,11 @@ public class FakeDataService {
         
         // Build overview response
         overview.put("totalDevices", totalDevices);
-        overview.put("onlineDevices", onlineDevices);
-        overview.put("offlineDevices", offlineDevices);
-        overview.put("maintenanceDevices", maintenanceDevices);
-        overview.put("errorDevices", errorDevices);
-        overview.put("warningDevices", warningDevices);
+        overview.put("onlineDevices", statusCounts[Device.DeviceStatus.ONLINE.ordinal()]);
+        overview.put("offlineDevices", statusCounts[Device.DeviceStatus.OFFLINE.ordinal()]);
+        overview.put("maintenanceDevices", statusCounts[Device.DeviceStatus.MAINTENANCE.ordinal()]);
+        overview.put("errorDevices", statusCounts[Device.DeviceStatus.ERROR.ordinal()]);
+        overview.put("warningDevices", statusCounts[Device.DeviceStatus.WARNING.ordinal()]);
         overview.put("totalPower", Math.round(totalPower * 10.0) / 10.0);
         overview.put("totalVoltage", Math.round(totalVoltage * 10.0) / 10.0);
         overview.put("alerts", activeAlerts);
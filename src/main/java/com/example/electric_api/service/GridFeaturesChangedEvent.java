@@ -0,0 +1,25 @@
+package com.example.electric_api.service;
+
+import java.util.List;
+
+/**
+ * Published by GridMapService when facilities or power lines were added, removed or changed
+ * status. Carries the bounding box of every affected feature, before and after the change, so
+ * listeners holding tiles can drop only the ones that show it, and the feature generation the
+ * change was published as.
+ */
+public class GridFeaturesChangedEvent {
+
+    private final List<double[]> bounds;
+    private final long generation;
+
+    public GridFeaturesChangedEvent(List<double[]> bounds, long generation) {
+        this.bounds = bounds;
+        this.generation = generation;
+    }
+
+    /** Boxes as west, south, east, north in degrees. */
+    public List<double[]> getBounds() { return bounds; }
+
+    public long getGeneration() { return generation; }
+}
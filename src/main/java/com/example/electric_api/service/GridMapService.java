@@ -0,0 +1,422 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.config.CacheConfig;
+import com.example.electric_api.dto.DeviceListItem;
+import com.example.electric_api.dto.PowerFacility;
+import com.example.electric_api.dto.PowerLine;
+import com.example.electric_api.dto.StationMapItem;
+import com.example.electric_api.repository.DeviceRepository;
+import com.example.electric_api.repository.StationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Power grid facilities and lines for the map. Both full lists are cached; callers must treat the
+ * returned objects as read-only.
+ *
+ * Viewport queries are answered from R-trees over facilities, stations, devices and individual
+ * line segments, so a pan returns only what intersects the visible box. Each zoom level also
+ * hides layers that would be unreadable at that scale (devices and towers only appear close in,
+ * low-voltage lines and substations only at regional zoom). The trees are rebuilt in the
+ * background after device or station changes; queries keep using the previous trees meanwhile.
+ *
+ * Line geometry is served per zoom from precomputed {@link LinePyramid}s, so a zoomed-out map gets
+ * a few vertices per corridor instead of every tower. The line layer comes from the static grid
+ * model and is built once, not on every device change.
+ *
+ * The refresh tick also compares facility and line statuses with the indexed ones; on a change it
+ * rebuilds those layers, clears the cached full lists and publishes a {@link GridFeaturesChangedEvent}
+ * so vector tiles showing the changed features are re-encoded.
+ */
+@Service
+public class GridMapService {
+
+    public static final int MAX_ZOOM = 22;
+
+    static final int STATION_MIN_ZOOM = 8;
+    static final int DEVICE_MIN_ZOOM = 12;
+
+    @Autowired
+    private FakeDataService fakeDataService;
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private volatile GridIndex index;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    // Bumped after an index with changed facilities or lines is published
+    private final AtomicLong featureGeneration = new AtomicLong();
+
+    @Cacheable(cacheNames = CacheConfig.GRID_MAP, key = "'facilities'", sync = true)
+    public List<PowerFacility> getFacilities() {
+        return List.copyOf(fakeDataService.getFakePowerFacilities());
+    }
+
+    @Cacheable(cacheNames = CacheConfig.GRID_MAP, key = "'lines'", sync = true)
+    public List<PowerLine> getLines() {
+        return List.copyOf(fakeDataService.getFakePowerLines());
+    }
+
+    /** All lines with geometry simplified for the zoom level. The list is shared and read-only. */
+    public List<PowerLine> getLines(int zoom) {
+        return currentIndex().lines.atZoom(zoom);
+    }
+
+    /**
+     * Everything visible in the box west,south,east,north at the given zoom. A box with
+     * west > east crosses the antimeridian. Stations and devices are only listed with includeAssets.
+     */
+    public Map<String, Object> getViewport(double west, double south, double east, double north, int zoom,
+                                           boolean includeAssets) {
+        GridIndex grid = currentIndex();
+        List<PowerFacility> facilities = findFacilities(grid, west, south, east, north, zoom);
+        List<PowerLine> visibleLines = findLines(grid, west, south, east, north, zoom);
+
+        Map<String, Object> viewport = new HashMap<>();
+        viewport.put("facilities", facilities);
+        viewport.put("powerLines", visibleLines);
+        viewport.put("totalFacilities", facilities.size());
+        viewport.put("totalLines", visibleLines.size());
+        // Stations and devices come from the database and are not public
+        if (includeAssets) {
+            List<StationMapItem> stations = new ArrayList<>();
+            if (zoom >= STATION_MIN_ZOOM) {
+                searchWindow(grid.stations, west, south, east, north, stations::add);
+            }
+            List<DeviceListItem> devices = new ArrayList<>();
+            if (zoom >= DEVICE_MIN_ZOOM) {
+                searchWindow(grid.devices, west, south, east, north, devices::add);
+            }
+            viewport.put("stations", stations);
+            viewport.put("devices", devices);
+            viewport.put("totalStations", stations.size());
+            viewport.put("totalDevices", devices.size());
+        }
+        viewport.put("bbox", List.of(west, south, east, north));
+        viewport.put("zoom", zoom);
+        viewport.put("indexBuiltAt", grid.builtAt);
+        return viewport;
+    }
+
+    /** Facilities in the box that are shown at the zoom level. */
+    public List<PowerFacility> findFacilities(double west, double south, double east, double north, int zoom) {
+        return findFacilities(currentIndex(), west, south, east, north, zoom);
+    }
+
+    /** Lines crossing the box that are shown at the zoom level, with geometry simplified for it. */
+    public List<PowerLine> findLines(double west, double south, double east, double north, int zoom) {
+        return findLines(currentIndex(), west, south, east, north, zoom);
+    }
+
+    private static List<PowerFacility> findFacilities(GridIndex grid, double west, double south, double east,
+                                                      double north, int zoom) {
+        List<PowerFacility> facilities = new ArrayList<>();
+        searchWindow(grid.facilities, west, south, east, north, facility -> {
+            if (zoom >= facilityMinZoom(facility)) facilities.add(facility);
+        });
+        return facilities;
+    }
+
+    private static List<PowerLine> findLines(GridIndex grid, double west, double south, double east, double north,
+                                             int zoom) {
+        // A line appears once however many of its segments intersect
+        List<PowerLine> linesAtZoom = grid.lines.atZoom(zoom);
+        BitSet seen = new BitSet(linesAtZoom.size());
+        List<PowerLine> lines = new ArrayList<>();
+        searchWindow(grid.lines.segments, west, south, east, north, index -> {
+            PowerLine line = linesAtZoom.get(index);
+            if (!seen.get(index) && zoom >= lineMinZoom(line)) {
+                seen.set(index);
+                lines.add(line);
+            }
+        });
+        return lines;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        rebuild();
+    }
+
+    /** Marks the trees stale, e.g. after a station was added; the next refresh rebuilds them. */
+    public void invalidate() {
+        dirty.set(true);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        dirty.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${app.grid-map.index.refresh-interval-ms:5000}")
+    public void refreshIndex() {
+        GridIndex grid = index;
+        if (grid == null) {
+            return;
+        }
+        List<PowerFacility> facilities = fakeDataService.getFakePowerFacilities();
+        List<PowerLine> lines = fakeDataService.getFakePowerLines();
+
+        List<double[]> changed = new ArrayList<>();
+        collectChanges(grid.facilityList, facilities, PowerFacility::getId, PowerFacility::getStatus,
+            GridMapService::bounds, changed);
+        collectChanges(grid.lines.atZoom(MAX_ZOOM), lines, PowerLine::getId, PowerLine::getStatus,
+            GridMapService::bounds, changed);
+
+        if (!changed.isEmpty()) {
+            dirty.set(false);
+            rebuild(facilities, lines);
+            long generation = featureGeneration.incrementAndGet();
+            Cache cache = cacheManager.getCache(CacheConfig.GRID_MAP);
+            if (cache != null) {
+                cache.clear();
+            }
+            System.out.println("🗺️ Grid features changed: " + changed.size() + " affected areas");
+            eventPublisher.publishEvent(new GridFeaturesChangedEvent(changed, generation));
+        } else if (dirty.compareAndSet(true, false)) {
+            rebuild(facilities, null);
+        }
+    }
+
+    /** Adds the bounds of every feature that was added, removed or changed status. */
+    private static <T> void collectChanges(List<T> before, List<T> after, Function<T, String> id,
+                                           Function<T, String> status, Function<T, double[]> bounds,
+                                           List<double[]> changed) {
+        Map<String, T> previous = new HashMap<>();
+        for (T feature : before) {
+            previous.put(id.apply(feature), feature);
+        }
+        for (T feature : after) {
+            T old = previous.remove(id.apply(feature));
+            if (old == null || !Objects.equals(status.apply(old), status.apply(feature))) {
+                if (old != null) changed.add(bounds.apply(old));
+                changed.add(bounds.apply(feature));
+            }
+        }
+        for (T removed : previous.values()) {
+            changed.add(bounds.apply(removed));
+        }
+        changed.removeIf(Objects::isNull);
+    }
+
+    private static double[] bounds(PowerFacility facility) {
+        if (facility.getLatitude() == null || facility.getLongitude() == null) {
+            return null;
+        }
+        double lat = facility.getLatitude().doubleValue();
+        double lng = facility.getLongitude().doubleValue();
+        return new double[]{lng, lat, lng, lat};
+    }
+
+    private static double[] bounds(PowerLine line) {
+        if (line.getPositions() == null || line.getPositions().isEmpty()) {
+            return null;
+        }
+        double[] box = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (BigDecimal[] position : line.getPositions()) {
+            box[0] = Math.min(box[0], position[1].doubleValue());
+            box[1] = Math.min(box[1], position[0].doubleValue());
+            box[2] = Math.max(box[2], position[1].doubleValue());
+            box[3] = Math.max(box[3], position[0].doubleValue());
+        }
+        return box;
+    }
+
+    /**
+     * Increases whenever facilities or lines change. Anyone who reads a generation afterwards sees an
+     * index at least that new, so it can version results derived from the index.
+     */
+    public long getFeatureGeneration() {
+        return featureGeneration.get();
+    }
+
+    private GridIndex currentIndex() {
+        GridIndex grid = index;
+        if (grid == null) {
+            synchronized (this) {
+                grid = index;
+                if (grid == null) {
+                    grid = rebuild();
+                }
+            }
+        }
+        return grid;
+    }
+
+    private GridIndex rebuild() {
+        return rebuild(fakeDataService.getFakePowerFacilities(), index == null ? fakeDataService.getFakePowerLines() : null);
+    }
+
+    /** Rebuilds the trees; a null line source keeps the current line layer. */
+    private synchronized GridIndex rebuild(List<PowerFacility> facilitySource, List<PowerLine> lineSource) {
+        long started = System.currentTimeMillis();
+        GridIndex previous = index;
+
+        SpatialIndex.Builder<PowerFacility> facilities = SpatialIndex.builder();
+        for (PowerFacility facility : facilitySource) {
+            if (facility.getLatitude() != null && facility.getLongitude() != null) {
+                facilities.addPoint(facility, facility.getLongitude().doubleValue(), facility.getLatitude().doubleValue());
+            }
+        }
+
+        LineLayer lines = lineSource != null || previous == null
+            ? buildLineLayer(lineSource != null ? lineSource : fakeDataService.getFakePowerLines())
+            : previous.lines;
+
+        SpatialIndex.Builder<StationMapItem> stations = SpatialIndex.builder();
+        for (StationMapItem station : stationRepository.findActiveMapItems()) {
+            stations.addPoint(station, station.getLongitude().doubleValue(), station.getLatitude().doubleValue());
+        }
+
+        SpatialIndex.Builder<DeviceListItem> devices = SpatialIndex.builder();
+        for (DeviceListItem device : deviceRepository.findActiveLocatedListItems()) {
+            devices.addPoint(device, device.getLongitude().doubleValue(), device.getLatitude().doubleValue());
+        }
+
+        GridIndex grid = new GridIndex(List.copyOf(facilitySource), facilities.build(), lines, stations.build(),
+            devices.build(), LocalDateTime.now());
+        index = grid;
+        System.out.println("🗺️ Grid map index built: " + grid.facilities.size() + " facilities, " +
+            grid.lines.segments.size() + " line segments, " + grid.stations.size() + " stations, " +
+            grid.devices.size() + " devices in " + (System.currentTimeMillis() - started) + " ms");
+        return grid;
+    }
+
+    private static LineLayer buildLineLayer(List<PowerLine> source) {
+        SpatialIndex.Builder<Integer> segments = SpatialIndex.builder();
+        List<LinePyramid> pyramids = new ArrayList<>(source.size());
+        for (int index = 0; index < source.size(); index++) {
+            List<BigDecimal[]> positions = source.get(index).getPositions();
+            double[] coordinates = new double[positions != null ? positions.size() * 2 : 0];
+            for (int i = 0; i < coordinates.length / 2; i++) {
+                coordinates[2 * i] = positions.get(i)[0].doubleValue();
+                coordinates[2 * i + 1] = positions.get(i)[1].doubleValue();
+            }
+            pyramids.add(LinePyramid.build(coordinates));
+
+            // Segments are indexed at full resolution so simplification never hides a line from a viewport
+            if (coordinates.length == 2) {
+                segments.addPoint(index, coordinates[1], coordinates[0]);
+            }
+            for (int i = 2; i < coordinates.length; i += 2) {
+                segments.add(index, coordinates[i - 1], coordinates[i - 2], coordinates[i + 1], coordinates[i]);
+            }
+        }
+
+        List<List<PowerLine>> byZoom = new ArrayList<>(MAX_ZOOM + 1);
+        List<PowerLine> previousLevel = null;
+        for (int zoom = 0; zoom <= MAX_ZOOM; zoom++) {
+            List<PowerLine> level = new ArrayList<>(source.size());
+            for (int index = 0; index < source.size(); index++) {
+                double[] coordinates = pyramids.get(index).coordinates(zoom);
+                // Lines whose geometry did not change since the lower zoom keep the same object
+                if (previousLevel != null && coordinates == pyramids.get(index).coordinates(zoom - 1)) {
+                    level.add(previousLevel.get(index));
+                } else {
+                    level.add(withPositions(source.get(index), coordinates));
+                }
+            }
+            previousLevel = List.copyOf(level);
+            byZoom.add(previousLevel);
+        }
+        return new LineLayer(segments.build(), byZoom);
+    }
+
+    private static PowerLine withPositions(PowerLine line, double[] coordinates) {
+        List<BigDecimal[]> positions = new ArrayList<>(coordinates.length / 2);
+        for (int i = 0; i < coordinates.length; i += 2) {
+            positions.add(new BigDecimal[]{BigDecimal.valueOf(coordinates[i]), BigDecimal.valueOf(coordinates[i + 1])});
+        }
+        return new PowerLine(line.getId(), line.getName(), line.getFrom(), line.getTo(), positions,
+            line.getVoltage(), line.getCapacity(), line.getStatus(), line.getType());
+    }
+
+    private static <T> void searchWindow(SpatialIndex<T> tree, double west, double south, double east, double north,
+                                         Consumer<T> consumer) {
+        if (west <= east) {
+            tree.search(west, south, east, north, consumer);
+        } else {
+            tree.search(west, south, 180, north, consumer);
+            tree.search(-180, south, east, north, consumer);
+        }
+    }
+
+    static int facilityMinZoom(PowerFacility facility) {
+        int voltage = facility.getVoltage() != null ? facility.getVoltage() : 0;
+        String type = facility.getType() != null ? facility.getType() : "";
+        return switch (type) {
+            case "power_plant" -> 0;
+            case "substation" -> voltage >= 500 ? 0 : voltage >= 220 ? 5 : 8;
+            case "renewable" -> 6;
+            case "transmission_tower" -> 10;
+            case "distribution_center", "transformer" -> 11;
+            default -> 8;
+        };
+    }
+
+    static int lineMinZoom(PowerLine line) {
+        int voltage = line.getVoltage() != null ? line.getVoltage() : 0;
+        return voltage >= 500 ? 0 : voltage >= 220 ? 5 : voltage >= 110 ? 8 : 10;
+    }
+
+    private static final class LineLayer {
+        // Items are positions in the per-zoom lists
+        final SpatialIndex<Integer> segments;
+        final List<List<PowerLine>> byZoom;
+
+        LineLayer(SpatialIndex<Integer> segments, List<List<PowerLine>> byZoom) {
+            this.segments = segments;
+            this.byZoom = byZoom;
+        }
+
+        List<PowerLine> atZoom(int zoom) {
+            return byZoom.get(Math.max(0, Math.min(zoom, MAX_ZOOM)));
+        }
+    }
+
+    private static final class GridIndex {
+        final List<PowerFacility> facilityList;
+        final SpatialIndex<PowerFacility> facilities;
+        final LineLayer lines;
+        final SpatialIndex<StationMapItem> stations;
+        final SpatialIndex<DeviceListItem> devices;
+        final LocalDateTime builtAt;
+
+        GridIndex(List<PowerFacility> facilityList, SpatialIndex<PowerFacility> facilities, LineLayer lines,
+                  SpatialIndex<StationMapItem> stations, SpatialIndex<DeviceListItem> devices, LocalDateTime builtAt) {
+            this.facilityList = facilityList;
+            this.facilities = facilities;
+            this.lines = lines;
+            this.stations = stations;
+            this.devices = devices;
+            this.builtAt = builtAt;
+        }
+    }
+}
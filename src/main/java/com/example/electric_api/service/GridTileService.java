@@ -0,0 +1,148 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.config.CacheConfig;
+import com.example.electric_api.dto.PowerFacility;
+import com.example.electric_api.dto.PowerLine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mapbox Vector Tiles of the grid map with two layers, "facilities" (points) and "power_lines"
+ * (lines simplified for the tile's zoom). Tiles follow the same per-zoom visibility rules as the
+ * viewport query and are kept, with their ETag, in a bounded cache keyed "generation:z/x/y".
+ *
+ * The generation is GridMapService's feature generation, read before the tile is encoded, so a
+ * tile still being encoded from the old index when features change is stored under a key no
+ * later request asks for. On a change the cached tiles that do not cover it are carried over to
+ * the new generation and the rest are dropped.
+ */
+@Service
+public class GridTileService {
+
+    public static final String MEDIA_TYPE = "application/vnd.mapbox-vector-tile";
+    public static final String FACILITIES_LAYER = "facilities";
+    public static final String LINES_LAYER = "power_lines";
+
+    @Autowired
+    private GridMapService gridMapService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Cacheable(cacheNames = CacheConfig.GRID_TILES, key = "@gridMapService.getFeatureGeneration() + ':' + #zoom + '/' + #x + '/' + #y",
+               sync = true)
+    public Tile getTile(int zoom, int x, int y) {
+        double[] box = VectorTileEncoder.bounds(zoom, x, y);
+        VectorTileEncoder tile = new VectorTileEncoder(zoom, x, y);
+
+        for (PowerFacility facility : gridMapService.findFacilities(box[0], box[1], box[2], box[3], zoom)) {
+            Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put("id", facility.getId());
+            properties.put("name", facility.getName());
+            properties.put("type", facility.getType());
+            properties.put("voltage", facility.getVoltage());
+            properties.put("capacity", facility.getCapacity());
+            properties.put("status", facility.getStatus());
+            properties.put("operator", facility.getOperator());
+            tile.addPoint(FACILITIES_LAYER, numericId(facility.getId()), facility.getLatitude().doubleValue(),
+                facility.getLongitude().doubleValue(), properties);
+        }
+
+        for (PowerLine line : gridMapService.findLines(box[0], box[1], box[2], box[3], zoom)) {
+            List<BigDecimal[]> positions = line.getPositions();
+            double[] coordinates = new double[positions.size() * 2];
+            for (int i = 0; i < positions.size(); i++) {
+                coordinates[2 * i] = positions.get(i)[0].doubleValue();
+                coordinates[2 * i + 1] = positions.get(i)[1].doubleValue();
+            }
+            Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put("id", line.getId());
+            properties.put("name", line.getName());
+            properties.put("from", line.getFrom());
+            properties.put("to", line.getTo());
+            properties.put("voltage", line.getVoltage());
+            properties.put("capacity", line.getCapacity());
+            properties.put("status", line.getStatus());
+            properties.put("type", line.getType());
+            tile.addLine(LINES_LAYER, numericId(line.getId()), coordinates, properties);
+        }
+        byte[] bytes = tile.encode();
+        return new Tile(bytes, "\"" + DigestUtils.md5DigestAsHex(bytes) + "\"");
+    }
+
+    @EventListener
+    public synchronized void onGridFeaturesChanged(GridFeaturesChangedEvent event) {
+        Cache cache = cacheManager.getCache(CacheConfig.GRID_TILES);
+        if (!(cache instanceof CaffeineCache caffeineCache)) {
+            return;
+        }
+        Map<Object, Object> tiles = caffeineCache.getNativeCache().asMap();
+        String previous = (event.getGeneration() - 1) + ":";
+        String current = event.getGeneration() + ":";
+        int carried = 0;
+        int evicted = 0;
+        for (Object key : List.copyOf(tiles.keySet())) {
+            String name = key.toString();
+            if (name.startsWith(current)) {
+                continue;
+            }
+            Object tile = tiles.remove(key);
+            // Older generations may hold tiles stored late from an index before the last change
+            if (tile == null || !name.startsWith(previous)) {
+                continue;
+            }
+            String position = name.substring(previous.length());
+            if (covers(position, event.getBounds())) {
+                evicted++;
+            } else if (tiles.putIfAbsent(current + position, tile) == null) {
+                carried++;
+            }
+        }
+        System.out.println("🧹 Evicted " + evicted + " grid map tiles after feature changes, kept " + carried);
+    }
+
+    private static boolean covers(String key, List<double[]> changed) {
+        String[] parts = key.split("/");
+        double[] tile = VectorTileEncoder.bounds(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+            Integer.parseInt(parts[2]));
+        for (double[] box : changed) {
+            if (box[0] <= tile[2] && box[2] >= tile[0] && box[1] <= tile[3] && box[3] >= tile[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Long numericId(String id) {
+        if (id == null || id.isEmpty() || !id.chars().allMatch(Character::isDigit) || id.length() > 18) {
+            return null;
+        }
+        return Long.parseLong(id);
+    }
+
+    /** One encoded tile and its strong ETag. The bytes must not be modified. */
+    public static final class Tile {
+        private final byte[] bytes;
+        private final String etag;
+
+        Tile(byte[] bytes, String etag) {
+            this.bytes = bytes;
+            this.etag = etag;
+        }
+
+        public byte[] getBytes() { return bytes; }
+
+        public String getEtag() { return etag; }
+    }
+}
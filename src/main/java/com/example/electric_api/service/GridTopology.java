@@ -0,0 +1,364 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.PowerFacility;
+import com.example.electric_api.dto.PowerLine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The grid as a graph: facilities are int-indexed nodes and power lines the edges between their
+ * from/to facilities, stored as compressed adjacency arrays (offsets, neighbor and edge per slot).
+ *
+ * The structure is fixed once built; only the in-service flags of nodes and edges change. A
+ * union-find over the in-service part tracks which components still contain a generation source.
+ * Bringing a line or facility back into service just unions it in; taking one out rebuilds the
+ * union-find, since union-find cannot split. Not thread-safe: GridTopologyService serializes
+ * access, and readers that run in parallel work on a {@link #snapshot(long)}.
+ */
+final class GridTopology {
+
+    private static final Set<String> SOURCE_TYPES = Set.of("power_plant", "renewable");
+
+    final PowerFacility[] facilities;
+    final PowerLine[] lines;
+    private final Map<String, Integer> nodeIndex;
+    private final Map<String, Integer> edgeIndex;
+
+    // Adjacency of node i is slots offsets[i] until offsets[i + 1]
+    final int[] offsets;
+    final int[] neighbors;
+    final int[] slotEdges;
+    final int[] edgeFrom;
+    final int[] edgeTo;
+    final boolean[] source;
+    final int unresolvedLines;
+
+    private final boolean[] nodeUp;
+    private final boolean[] edgeUp;
+    private final int[] parent;
+    private final int[] componentSize;
+    private final boolean[] rootHasSource;
+
+    private GridTopology(PowerFacility[] facilities, PowerLine[] lines, Map<String, Integer> nodeIndex,
+                         Map<String, Integer> edgeIndex, int[] offsets, int[] neighbors, int[] slotEdges,
+                         int[] edgeFrom, int[] edgeTo, int unresolvedLines) {
+        this.facilities = facilities;
+        this.lines = lines;
+        this.nodeIndex = nodeIndex;
+        this.edgeIndex = edgeIndex;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.slotEdges = slotEdges;
+        this.edgeFrom = edgeFrom;
+        this.edgeTo = edgeTo;
+        this.unresolvedLines = unresolvedLines;
+
+        int n = facilities.length;
+        this.source = new boolean[n];
+        this.nodeUp = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            source[i] = SOURCE_TYPES.contains(facilities[i].getType());
+            nodeUp[i] = facilityInService(facilities[i].getStatus());
+        }
+        this.edgeUp = new boolean[lines.length];
+        for (int e = 0; e < lines.length; e++) {
+            edgeUp[e] = lineInService(lines[e].getStatus());
+        }
+        this.parent = new int[n];
+        this.componentSize = new int[n];
+        this.rootHasSource = new boolean[n];
+        rebuildComponents();
+    }
+
+    /** Lines whose from or to facility is unknown are left out and counted. */
+    static GridTopology build(List<PowerFacility> facilityList, List<PowerLine> lineList) {
+        PowerFacility[] facilities = facilityList.toArray(new PowerFacility[0]);
+        Map<String, Integer> nodeIndex = new HashMap<>();
+        for (int i = 0; i < facilities.length; i++) {
+            nodeIndex.put(facilities[i].getId(), i);
+        }
+
+        List<PowerLine> resolved = new ArrayList<>(lineList.size());
+        for (PowerLine line : lineList) {
+            Integer from = nodeIndex.get(line.getFrom());
+            Integer to = nodeIndex.get(line.getTo());
+            if (from != null && to != null && !from.equals(to)) {
+                resolved.add(line);
+            }
+        }
+        PowerLine[] lines = resolved.toArray(new PowerLine[0]);
+        int m = lines.length;
+        int[] edgeFrom = new int[m];
+        int[] edgeTo = new int[m];
+        int[] degree = new int[facilities.length + 1];
+        Map<String, Integer> edgeIndex = new HashMap<>();
+        for (int e = 0; e < m; e++) {
+            edgeFrom[e] = nodeIndex.get(lines[e].getFrom());
+            edgeTo[e] = nodeIndex.get(lines[e].getTo());
+            degree[edgeFrom[e] + 1]++;
+            degree[edgeTo[e] + 1]++;
+            edgeIndex.put(lines[e].getId(), e);
+        }
+
+        int[] offsets = degree;
+        for (int i = 0; i < facilities.length; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] fill = Arrays.copyOf(offsets, facilities.length);
+        int[] neighbors = new int[2 * m];
+        int[] slotEdges = new int[2 * m];
+        for (int e = 0; e < m; e++) {
+            int a = fill[edgeFrom[e]]++;
+            neighbors[a] = edgeTo[e];
+            slotEdges[a] = e;
+            int b = fill[edgeTo[e]]++;
+            neighbors[b] = edgeFrom[e];
+            slotEdges[b] = e;
+        }
+        return new GridTopology(facilities, lines, nodeIndex, edgeIndex, offsets, neighbors, slotEdges,
+            edgeFrom, edgeTo, lineList.size() - m);
+    }
+
+    static boolean facilityInService(String status) {
+        return !"offline".equals(status) && !"maintenance".equals(status);
+    }
+
+    static boolean lineInService(String status) {
+        return status == null || "active".equals(status);
+    }
+
+    int nodeCount() {
+        return facilities.length;
+    }
+
+    int edgeCount() {
+        return lines.length;
+    }
+
+    /** Node index of the facility, or -1. */
+    int node(String facilityId) {
+        Integer i = nodeIndex.get(facilityId);
+        return i != null ? i : -1;
+    }
+
+    /** Edge index of the line, or -1. */
+    int edge(String lineId) {
+        Integer e = edgeIndex.get(lineId);
+        return e != null ? e : -1;
+    }
+
+    boolean isNodeUp(int node) {
+        return nodeUp[node];
+    }
+
+    boolean isEdgeUp(int edge) {
+        return edgeUp[edge];
+    }
+
+    /** Whether the facility is in service and connected to an in-service generation source. */
+    boolean isEnergized(int node) {
+        return nodeUp[node] && rootHasSource[find(node)];
+    }
+
+    /**
+     * Applies the current facilities and lines when only statuses changed. Returns false, changing
+     * nothing, if facilities or lines were added, removed or reconnected; the caller must build a
+     * new topology then.
+     */
+    boolean update(List<PowerFacility> facilityList, List<PowerLine> lineList) {
+        if (facilityList.size() != facilities.length) {
+            return false;
+        }
+        int[] nodes = new int[facilities.length];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = node(facilityList.get(i).getId());
+            if (nodes[i] < 0) return false;
+        }
+        int[] edges = new int[lineList.size()];
+        int resolved = 0;
+        for (int i = 0; i < edges.length; i++) {
+            PowerLine line = lineList.get(i);
+            int from = node(line.getFrom());
+            int to = node(line.getTo());
+            edges[i] = edge(line.getId());
+            if (from < 0 || to < 0 || from == to) {
+                // Left out of the graph before as well, unless it used to connect two facilities
+                if (edges[i] >= 0) return false;
+                continue;
+            }
+            if (edges[i] < 0 || edgeFrom[edges[i]] != from || edgeTo[edges[i]] != to) return false;
+            resolved++;
+        }
+        if (resolved != lines.length) {
+            return false;
+        }
+
+        List<Integer> nodesUp = new ArrayList<>();
+        List<Integer> edgesUp = new ArrayList<>();
+        boolean anyDown = false;
+        for (int i = 0; i < nodes.length; i++) {
+            PowerFacility facility = facilityList.get(i);
+            facilities[nodes[i]] = facility;
+            boolean up = facilityInService(facility.getStatus());
+            if (up != nodeUp[nodes[i]]) {
+                nodeUp[nodes[i]] = up;
+                if (up) nodesUp.add(nodes[i]); else anyDown = true;
+            }
+        }
+        for (int i = 0; i < edges.length; i++) {
+            if (edges[i] < 0) continue;
+            PowerLine line = lineList.get(i);
+            lines[edges[i]] = line;
+            boolean up = lineInService(line.getStatus());
+            if (up != edgeUp[edges[i]]) {
+                edgeUp[edges[i]] = up;
+                if (up) edgesUp.add(edges[i]); else anyDown = true;
+            }
+        }
+
+        if (anyDown) {
+            rebuildComponents();
+            return true;
+        }
+        for (int node : nodesUp) {
+            parent[node] = node;
+            componentSize[node] = 1;
+            rootHasSource[node] = source[node];
+        }
+        for (int node : nodesUp) {
+            for (int slot = offsets[node]; slot < offsets[node + 1]; slot++) {
+                connect(slotEdges[slot]);
+            }
+        }
+        for (int edge : edgesUp) {
+            connect(edge);
+        }
+        return true;
+    }
+
+    /**
+     * Facilities that are energized now but would lose every path to a source if the facility
+     * skipNode or the line skipEdge (either may be -1) went out of service.
+     */
+    int[] lostWithout(int skipNode, int skipEdge) {
+        int n = facilities.length;
+        boolean[] reached = new boolean[n];
+        reachFromSources(nodeUp, edgeUp, skipNode, skipEdge, new int[n], reached);
+        int[] lost = new int[n];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (i != skipNode && !reached[i] && isEnergized(i)) {
+                lost[count++] = i;
+            }
+        }
+        return Arrays.copyOf(lost, count);
+    }
+
+    /**
+     * Breadth-first search from every in-service source over in-service lines, never entering
+     * skipNode nor crossing skipEdge. Marks the facilities it reaches in reached (which must be
+     * all false) using queue as scratch, and returns how many it reached.
+     */
+    int reachFromSources(boolean[] nodeUp, boolean[] edgeUp, int skipNode, int skipEdge, int[] queue,
+                         boolean[] reached) {
+        int tail = 0;
+        for (int i = 0; i < facilities.length; i++) {
+            if (source[i] && nodeUp[i] && i != skipNode) {
+                reached[i] = true;
+                queue[tail++] = i;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int node = queue[head];
+            for (int slot = offsets[node]; slot < offsets[node + 1]; slot++) {
+                int next = neighbors[slot];
+                int edge = slotEdges[slot];
+                if (reached[next] || edge == skipEdge || next == skipNode || !edgeUp[edge] || !nodeUp[next]) {
+                    continue;
+                }
+                reached[next] = true;
+                queue[tail++] = next;
+            }
+        }
+        return tail;
+    }
+
+    /** Copies of the current facilities, lines and in-service flags, for readers outside the service lock. */
+    Snapshot snapshot(long version) {
+        return new Snapshot(this, version, facilities.clone(), lines.clone(), nodeUp.clone(), edgeUp.clone());
+    }
+
+    /** Number of connected components among in-service facilities. */
+    int componentCount() {
+        int count = 0;
+        for (int i = 0; i < parent.length; i++) {
+            if (nodeUp[i] && parent[i] == i) count++;
+        }
+        return count;
+    }
+
+    private void rebuildComponents() {
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+            componentSize[i] = 1;
+            rootHasSource[i] = nodeUp[i] && source[i];
+        }
+        for (int e = 0; e < edgeFrom.length; e++) {
+            connect(e);
+        }
+    }
+
+    private void connect(int edge) {
+        int a = edgeFrom[edge];
+        int b = edgeTo[edge];
+        if (!edgeUp[edge] || !nodeUp[a] || !nodeUp[b]) {
+            return;
+        }
+        int ra = find(a);
+        int rb = find(b);
+        if (ra == rb) {
+            return;
+        }
+        if (componentSize[ra] < componentSize[rb]) {
+            int swap = ra;
+            ra = rb;
+            rb = swap;
+        }
+        parent[rb] = ra;
+        componentSize[ra] += componentSize[rb];
+        rootHasSource[ra] |= rootHasSource[rb];
+    }
+
+    private int find(int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    /** The fixed structure plus a frozen copy of everything that changes. */
+    static final class Snapshot {
+        final GridTopology graph;
+        final long version;
+        final PowerFacility[] facilities;
+        final PowerLine[] lines;
+        final boolean[] nodeUp;
+        final boolean[] edgeUp;
+
+        Snapshot(GridTopology graph, long version, PowerFacility[] facilities, PowerLine[] lines, boolean[] nodeUp,
+                 boolean[] edgeUp) {
+            this.graph = graph;
+            this.version = version;
+            this.facilities = facilities;
+            this.lines = lines;
+            this.nodeUp = nodeUp;
+            this.edgeUp = edgeUp;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.electric_api.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation tokens for keyset pagination: the listing name and the last row's sort
+ * key values, Base64url encoded. The name stops a cursor from one listing being replayed
+ * against another.
+ */
+final class KeysetCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private KeysetCursor() {}
+
+    static String encode(String listing, Object... keys) {
+        StringBuilder raw = new StringBuilder(listing);
+        for (Object key : keys) {
+            raw.append(SEPARATOR).append(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** The key values of a cursor for the listing; throws IllegalArgumentException for anything else. */
+    static String[] decode(String listing, String cursor, int keyCount) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String[] parts = raw.split("\\" + SEPARATOR, -1);
+        if (parts.length != keyCount + 1 || !parts[0].equals(listing)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String[] keys = new String[keyCount];
+        System.arraycopy(parts, 1, keys, 0, keyCount);
+        return keys;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.electric_api.service;
+
+import java.util.Arrays;
+
+/**
+ * Multi-resolution geometry of one polyline: for every zoom level 0..{@link GridMapService#MAX_ZOOM}
+ * a packed [lat, lng, lat, lng, ...] array holding only the vertices that are visible at that zoom.
+ *
+ * Vertices are ranked once with Douglas-Peucker on Web Mercator coordinates: each vertex gets the
+ * distance at which it was split off, capped by its parent's, so levels are nested and a vertex
+ * survives at zoom z when that distance exceeds {@link #TOLERANCE_PIXELS} pixels of a 256 px tile.
+ * Consecutive zoom levels with the same vertices share one array. The endpoints are always kept,
+ * and the highest zoom level keeps every vertex.
+ */
+final class LinePyramid {
+
+    static final double TOLERANCE_PIXELS = 0.5;
+
+    private final double[][] levels;
+
+    private LinePyramid(double[][] levels) {
+        this.levels = levels;
+    }
+
+    /** Packed coordinates at the zoom level; the array is shared and must not be modified. */
+    double[] coordinates(int zoom) {
+        return levels[Math.max(0, Math.min(zoom, levels.length - 1))];
+    }
+
+    /** Builds the pyramid from packed [lat, lng, ...] coordinates. */
+    static LinePyramid build(double[] coordinates) {
+        int n = coordinates.length / 2;
+        byte[] minZoom = minZooms(coordinates, n);
+
+        double[][] levels = new double[GridMapService.MAX_ZOOM + 1][];
+        double[] previous = null;
+        for (int zoom = 0; zoom <= GridMapService.MAX_ZOOM; zoom++) {
+            int count = 0;
+            for (int i = 0; i < n; i++) {
+                if (minZoom[i] <= zoom) count++;
+            }
+            // Levels are nested, so an equal count means an identical level
+            if (previous != null && previous.length == count * 2) {
+                levels[zoom] = previous;
+                continue;
+            }
+            double[] level = new double[count * 2];
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                if (minZoom[i] <= zoom) {
+                    level[k++] = coordinates[2 * i];
+                    level[k++] = coordinates[2 * i + 1];
+                }
+            }
+            levels[zoom] = level;
+            previous = level;
+        }
+        return new LinePyramid(levels);
+    }
+
+    private static byte[] minZooms(double[] coordinates, int n) {
+        byte[] minZoom = new byte[n];
+        if (n <= 2) {
+            return minZoom;
+        }
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            y[i] = mercatorY(coordinates[2 * i]);
+            x[i] = coordinates[2 * i + 1];
+        }
+
+        double[] significance = new double[n];
+        Arrays.fill(significance, Double.POSITIVE_INFINITY);
+
+        // Explicit stack of (first, last, parent significance); DP recursion can be as deep as the line
+        int[] firsts = new int[n];
+        int[] lasts = new int[n];
+        double[] limits = new double[n];
+        int top = 0;
+        firsts[0] = 0;
+        lasts[0] = n - 1;
+        limits[0] = Double.POSITIVE_INFINITY;
+        top++;
+        while (top > 0) {
+            top--;
+            int first = firsts[top];
+            int last = lasts[top];
+            double limit = limits[top];
+            if (last - first < 2) {
+                continue;
+            }
+            int split = first + 1;
+            double farthest = -1;
+            for (int i = first + 1; i < last; i++) {
+                double d = segmentDistance(x[i], y[i], x[first], y[first], x[last], y[last]);
+                if (d > farthest) {
+                    farthest = d;
+                    split = i;
+                }
+            }
+            double s = Math.min(farthest, limit);
+            significance[split] = s;
+            firsts[top] = first;
+            lasts[top] = split;
+            limits[top] = s;
+            top++;
+            firsts[top] = split;
+            lasts[top] = last;
+            limits[top] = s;
+            top++;
+        }
+
+        for (int i = 1; i < n - 1; i++) {
+            int zoom = 0;
+            while (zoom < GridMapService.MAX_ZOOM && significance[i] <= tolerance(zoom)) {
+                zoom++;
+            }
+            minZoom[i] = (byte) zoom;
+        }
+        return minZoom;
+    }
+
+    /** Tolerance in projected degrees at the zoom level. */
+    static double tolerance(int zoom) {
+        return TOLERANCE_PIXELS * 360.0 / (256.0 * (1L << zoom));
+    }
+
+    /** Web Mercator y in degrees, so both axes share the same scale per pixel. */
+    private static double mercatorY(double latitude) {
+        double clamped = Math.max(-85.05112878, Math.min(85.05112878, latitude));
+        return Math.toDegrees(Math.log(Math.tan(Math.PI / 4 + Math.toRadians(clamped) / 2)));
+    }
+
+    private static double segmentDistance(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        double ex = px - (ax + t * dx);
+        double ey = py - (ay + t * dy);
+        return Math.sqrt(ex * ex + ey * ey);
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.TelemetrySeries;
+
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling (Steinarsson, 2013).
+ *
+ * Works on index accessors rather than point objects, so any column-oriented or list-shaped
+ * series can be reduced without copying it first. One pass over the input; the output only
+ * holds the selected indices. Peaks survive because each bucket keeps the point that forms
+ * the largest triangle with the previously kept point and the average of the next bucket.
+ * Kept points without a value are skipped as anchors, so a gap never blanks the triangles of
+ * the bucket after it.
+ */
+public final class LttbDownsampler {
+
+    private LttbDownsampler() {}
+
+    /**
+     * Returns the ascending indices of at most {@code threshold} points to keep.
+     * x must be ascending; NaN y values are never picked over a real value.
+     */
+    public static int[] select(int size, IntToDoubleFunction x, IntToDoubleFunction y, int threshold) {
+        if (threshold < 3) {
+            throw new IllegalArgumentException("LTTB needs at least 3 output points");
+        }
+        if (size <= threshold) {
+            int[] all = new int[size];
+            for (int i = 0; i < size; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        int[] selected = new int[threshold];
+        int count = 0;
+        selected[count++] = 0;
+
+        // First and last points are always kept; the rest is split into threshold - 2 buckets
+        double bucketSize = (double) (size - 2) / (threshold - 2);
+        // Last kept point with a value; NaN until there is one
+        double previousX = x.applyAsDouble(0);
+        double previousY = y.applyAsDouble(0);
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int start = (int) Math.floor(bucket * bucketSize) + 1;
+            int end = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+
+            // Average of the next bucket (or the last point for the final bucket)
+            int nextStart = end;
+            int nextEnd = Math.min(size, (int) Math.floor((bucket + 2) * bucketSize) + 1);
+            double avgX = 0, avgY = 0;
+            int samples = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                double value = y.applyAsDouble(i);
+                if (!Double.isNaN(value)) {
+                    avgX += x.applyAsDouble(i);
+                    avgY += value;
+                    samples++;
+                }
+            }
+            if (samples > 0) {
+                avgX /= samples;
+                avgY /= samples;
+            } else {
+                avgX = x.applyAsDouble(size - 1);
+                avgY = y.applyAsDouble(size - 1);
+            }
+
+            int chosen = start;
+            double maxArea = -1;
+            for (int i = start; i < end; i++) {
+                double area = triangleArea(previousX, previousY, x.applyAsDouble(i), y.applyAsDouble(i), avgX, avgY);
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = i;
+                }
+            }
+            selected[count++] = chosen;
+            if (!Double.isNaN(y.applyAsDouble(chosen))) {
+                previousX = x.applyAsDouble(chosen);
+                previousY = y.applyAsDouble(chosen);
+            }
+        }
+
+        selected[count++] = size - 1;
+        return selected;
+    }
+
+    /**
+     * Area (doubled) of the triangle anchor - point - next-bucket average. A missing anchor or
+     * average height is replaced by the other one, so only a point without a value gives NaN,
+     * and NaN never beats a real area.
+     */
+    static double triangleArea(double anchorX, double anchorY, double x, double y, double avgX, double avgY) {
+        if (Double.isNaN(anchorY)) {
+            anchorY = avgY;
+        } else if (Double.isNaN(avgY)) {
+            avgY = anchorY;
+        }
+        return Math.abs((anchorX - avgX) * (y - anchorY) - (anchorX - x) * (avgY - anchorY));
+    }
+
+    /**
+     * The same selection over readings that arrive in ascending order, for series too long to
+     * hold in memory. The total count must be known up front; only the bucket being decided and
+     * the next one are buffered. If the next bucket has no values and the last point has not
+     * arrived yet, the end of the next bucket stands in for it at the previous point's height.
+     */
+    public static final class SeriesStream {
+        private final long size;
+        private final int threshold;
+        private final String metric;
+        private final double bucketSize;
+        private final TelemetrySeries kept;
+
+        private TelemetrySeries buffer = new TelemetrySeries(64);
+        private long bufferStart;   // index of buffer[0] in the whole series
+        private long received;
+        private int bucket;
+        private double previousX;
+        private double previousY;
+
+        public SeriesStream(long size, int threshold, String metric) {
+            if (threshold < 3) {
+                throw new IllegalArgumentException("LTTB needs at least 3 output points");
+            }
+            this.size = size;
+            this.threshold = threshold;
+            this.metric = metric;
+            this.bucketSize = (double) (size - 2) / (threshold - 2);
+            this.kept = new TelemetrySeries((int) Math.min(size, threshold));
+        }
+
+        public void accept(TelemetrySeries chunk) {
+            IntToDoubleFunction y = chunk.column(metric);
+            for (int i = 0; i < chunk.size() && received < size; i++) {
+                received++;
+                if (size <= threshold) {
+                    kept.add(chunk, i);
+                } else if (received == 1) {
+                    kept.add(chunk, i);
+                    previousX = chunk.getTimestamp(i);
+                    previousY = y.applyAsDouble(i);
+                    bufferStart = 1;
+                } else {
+                    buffer.add(chunk, i);
+                    decideReadyBuckets();
+                }
+            }
+        }
+
+        /** The kept readings; the last point is added once every reading has been passed in. */
+        public TelemetrySeries finish() {
+            if (size > threshold && !buffer.isEmpty()) {
+                kept.add(buffer, buffer.size() - 1);
+            }
+            return kept;
+        }
+
+        private void decideReadyBuckets() {
+            IntToDoubleFunction y = buffer.column(metric);
+            while (bucket < threshold - 2) {
+                long start = bucketStart(bucket);
+                long end = bucketStart(bucket + 1);
+                long nextEnd = Math.min(size, bucketStart(bucket + 2));
+                // The final bucket is always weighed against the last point, so it waits for it
+                if (received < (bucket == threshold - 3 ? size : nextEnd)) {
+                    return;
+                }
+
+                double avgX = 0, avgY = 0;
+                int samples = 0;
+                for (long i = end; i < nextEnd; i++) {
+                    double value = y.applyAsDouble((int) (i - bufferStart));
+                    if (!Double.isNaN(value)) {
+                        avgX += buffer.getTimestamp((int) (i - bufferStart));
+                        avgY += value;
+                        samples++;
+                    }
+                }
+                if (samples > 0) {
+                    avgX /= samples;
+                    avgY /= samples;
+                } else if (received == size) {
+                    avgX = buffer.getTimestamp(buffer.size() - 1);
+                    avgY = y.applyAsDouble(buffer.size() - 1);
+                } else {
+                    avgX = buffer.getTimestamp((int) (nextEnd - 1 - bufferStart));
+                    avgY = previousY;
+                }
+
+                int chosen = (int) (start - bufferStart);
+                double maxArea = -1;
+                for (int i = (int) (start - bufferStart); i < end - bufferStart; i++) {
+                    double area = triangleArea(previousX, previousY, buffer.getTimestamp(i), y.applyAsDouble(i),
+                        avgX, avgY);
+                    if (area > maxArea) {
+                        maxArea = area;
+                        chosen = i;
+                    }
+                }
+                kept.add(buffer, chosen);
+                if (!Double.isNaN(y.applyAsDouble(chosen))) {
+                    previousX = buffer.getTimestamp(chosen);
+                    previousY = y.applyAsDouble(chosen);
+                }
+
+                buffer = buffer.slice((int) (end - bufferStart), buffer.size());
+                bufferStart = end;
+                y = buffer.column(metric);
+                bucket++;
+            }
+        }
+
+        private long bucketStart(int index) {
+            return (long) Math.floor(index * bucketSize) + 1;
+        }
+    }
+}
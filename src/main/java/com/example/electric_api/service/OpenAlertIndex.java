@@ -0,0 +1,313 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.OpenAlertEntry;
+import com.example.electric_api.entity.Alert;
+import com.example.electric_api.entity.AlertLevel;
+import com.example.electric_api.repository.AlertLevelRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Every unresolved alert, kept in memory in priority order (highest severity first, then
+ * oldest first) with secondary indexes by device, station and alert type. Each index is itself
+ * ordered, so a top-N for one device or station reads the first N entries of its index and
+ * counts are kept per index instead of being computed.
+ *
+ * Loaded once at startup from alerts WHERE resolved_at IS NULL; afterwards the AlertCoalescer
+ * adds new alerts and folds in repeats, and AlertService removes resolved ones. Mutations are
+ * serialized; reads iterate the concurrent sets without locking.
+ */
+@Component
+public class OpenAlertIndex {
+
+    static final String OPEN_ALERTS_SQL =
+        "SELECT a.id, a.device_id, d.station_id, a.alert_type, a.alert_level_id, a.title, a.description, " +
+        "a.threshold_value, a.actual_value, a.occurrence_count, a.created_at, a.last_occurrence_at, a.incident_id " +
+        "FROM alerts a JOIN devices d ON d.id = a.device_id WHERE a.resolved_at IS NULL";
+
+    private static final AlertLevel.Severity[] SEVERITIES = AlertLevel.Severity.values();
+
+    /** Highest severity first, then oldest first. */
+    public static final Comparator<OpenAlertEntry> PRIORITY = Comparator
+        .comparingInt((OpenAlertEntry entry) -> -severityOf(entry).ordinal())
+        .thenComparing(OpenAlertEntry::getCreatedAt, Comparator.nullsLast(Comparator.naturalOrder()))
+        .thenComparing(OpenAlertEntry::getId);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AlertLevelRepository alertLevelRepository;
+
+    private final Bucket all = new Bucket();
+    private final Map<Long, OpenAlertEntry> byId = new ConcurrentHashMap<>();
+    private final Map<Long, Bucket> byDevice = new ConcurrentHashMap<>();
+    private final Map<Long, Bucket> byStation = new ConcurrentHashMap<>();
+    private final Map<Alert.AlertType, Bucket> byType = new ConcurrentHashMap<>();
+    private final AtomicIntegerArray bySeverity = new AtomicIntegerArray(SEVERITIES.length);
+    private final Map<Long, AlertLevel> levels = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+        try {
+            List<OpenAlertEntry> loaded = new ArrayList<>();
+            jdbcTemplate.query(OPEN_ALERTS_SQL, rs -> {
+                Integer occurrences = (Integer) rs.getObject(10);
+                loaded.add(newEntry(rs.getLong(1), rs.getLong(2), (Long) rs.getObject(3),
+                    Alert.AlertType.valueOf(rs.getString(4)), rs.getLong(5), rs.getString(6), rs.getString(7),
+                    rs.getBigDecimal(8), rs.getBigDecimal(9), occurrences != null ? occurrences : 1,
+                    toLocalDateTime(rs.getTimestamp(11)), toLocalDateTime(rs.getTimestamp(12)),
+                    (Long) rs.getObject(13)));
+            });
+            // Alerts raised while loading are already current
+            synchronized (this) {
+                for (OpenAlertEntry entry : loaded) {
+                    if (!byId.containsKey(entry.getId())) {
+                        put(entry);
+                    }
+                }
+            }
+            System.out.println("🗂️ Open-alert index loaded " + loaded.size() + " unresolved alerts in " +
+                (System.currentTimeMillis() - started) + "ms");
+        } catch (Exception e) {
+            System.out.println("⚠️ Could not load open alerts: " + e.getMessage());
+        }
+    }
+
+    /** Builds an entry, resolving the level name and severity from the cached alert levels. */
+    public OpenAlertEntry newEntry(Long id, Long deviceId, Long stationId, Alert.AlertType alertType, Long levelId,
+                                   String title, String description, BigDecimal thresholdValue,
+                                   BigDecimal actualValue, int occurrenceCount, LocalDateTime createdAt,
+                                   LocalDateTime lastOccurrenceAt, Long incidentId) {
+        AlertLevel level = level(levelId);
+        return new OpenAlertEntry(id, deviceId, stationId, alertType, levelId,
+            level != null ? level.getName() : null, level != null ? level.getSeverity() : null,
+            title, description, thresholdValue, actualValue, occurrenceCount, createdAt, lastOccurrenceAt, incidentId);
+    }
+
+    /** Adds an alert, replacing any entry with the same id. */
+    public synchronized void put(OpenAlertEntry entry) {
+        OpenAlertEntry previous = byId.put(entry.getId(), entry);
+        if (previous != null) {
+            unindex(previous);
+        }
+        all.add(entry);
+        bucket(byDevice, entry.getDeviceId()).add(entry);
+        if (entry.getStationId() != null) {
+            bucket(byStation, entry.getStationId()).add(entry);
+        }
+        bucket(byType, entry.getAlertType()).add(entry);
+        bySeverity.incrementAndGet(severityOf(entry).ordinal());
+    }
+
+    /** Removes a resolved alert; returns the removed entry or null when it was not open. */
+    public synchronized OpenAlertEntry remove(Long alertId) {
+        OpenAlertEntry removed = byId.remove(alertId);
+        if (removed != null) {
+            unindex(removed);
+        }
+        return removed;
+    }
+
+    public synchronized void recordRepeat(Long alertId, BigDecimal actualValue, int moreOccurrences,
+                                          LocalDateTime lastOccurrenceAt) {
+        OpenAlertEntry entry = byId.get(alertId);
+        if (entry != null) {
+            put(entry.withRepeat(actualValue, moreOccurrences, lastOccurrenceAt));
+        }
+    }
+
+    public synchronized void setIncident(Long alertId, Long incidentId) {
+        OpenAlertEntry entry = byId.get(alertId);
+        if (entry != null) {
+            put(entry.withIncident(incidentId));
+        }
+    }
+
+    public OpenAlertEntry get(Long alertId) {
+        return byId.get(alertId);
+    }
+
+    /**
+     * Open alerts in priority order matching every given filter (null means any), skipping
+     * offset entries. Walks the smallest matching index and stops below minSeverity.
+     */
+    public List<OpenAlertEntry> find(Long deviceId, Long stationId, Alert.AlertType type,
+                                     AlertLevel.Severity minSeverity, int offset, int limit) {
+        List<OpenAlertEntry> result = new ArrayList<>(Math.min(limit, 256));
+        Bucket source = smallest(deviceId, stationId, type);
+        if (source == null) {
+            return result;
+        }
+        int skipped = 0;
+        for (OpenAlertEntry entry : source.entries) {
+            if (minSeverity != null && severityOf(entry).compareTo(minSeverity) < 0) {
+                break;
+            }
+            if (!matches(entry, deviceId, stationId, type)) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(entry);
+        }
+        return result;
+    }
+
+    /** Number of open alerts matching the filters; a kept counter unless filters are combined. */
+    public int count(Long deviceId, Long stationId, Alert.AlertType type, AlertLevel.Severity minSeverity) {
+        int filters = (deviceId != null ? 1 : 0) + (stationId != null ? 1 : 0) + (type != null ? 1 : 0);
+        if (filters == 0 && minSeverity != null) {
+            int count = 0;
+            for (int s = minSeverity.ordinal(); s < SEVERITIES.length; s++) {
+                count += bySeverity.get(s);
+            }
+            return count;
+        }
+        Bucket source = smallest(deviceId, stationId, type);
+        if (source == null) {
+            return 0;
+        }
+        if (filters <= 1 && minSeverity == null) {
+            return source.size;
+        }
+        int count = 0;
+        for (OpenAlertEntry entry : source.entries) {
+            if (minSeverity != null && severityOf(entry).compareTo(minSeverity) < 0) {
+                break;
+            }
+            if (matches(entry, deviceId, stationId, type)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public Map<String, Object> getCounts() {
+        Map<String, Object> counts = new LinkedHashMap<>();
+        counts.put("total", all.size);
+        Map<String, Integer> severity = new LinkedHashMap<>();
+        for (int s = SEVERITIES.length - 1; s >= 0; s--) {
+            severity.put(SEVERITIES[s].name(), bySeverity.get(s));
+        }
+        counts.put("bySeverity", severity);
+        Map<String, Integer> types = new LinkedHashMap<>();
+        for (Alert.AlertType type : Alert.AlertType.values()) {
+            Bucket bucket = byType.get(type);
+            if (bucket != null && bucket.size > 0) {
+                types.put(type.name(), bucket.size);
+            }
+        }
+        counts.put("byType", types);
+        return counts;
+    }
+
+    private void unindex(OpenAlertEntry entry) {
+        all.remove(entry);
+        release(byDevice, entry.getDeviceId(), entry);
+        if (entry.getStationId() != null) {
+            release(byStation, entry.getStationId(), entry);
+        }
+        release(byType, entry.getAlertType(), entry);
+        bySeverity.decrementAndGet(severityOf(entry).ordinal());
+    }
+
+    private Bucket smallest(Long deviceId, Long stationId, Alert.AlertType type) {
+        Bucket best = all;
+        if (deviceId != null) {
+            best = pick(best, byDevice.get(deviceId));
+        }
+        if (best != null && stationId != null) {
+            best = pick(best, byStation.get(stationId));
+        }
+        if (best != null && type != null) {
+            best = pick(best, byType.get(type));
+        }
+        return best;
+    }
+
+    // A missing index means no entry can match
+    private static Bucket pick(Bucket current, Bucket candidate) {
+        if (candidate == null) {
+            return null;
+        }
+        return candidate.size < current.size ? candidate : current;
+    }
+
+    private static boolean matches(OpenAlertEntry entry, Long deviceId, Long stationId, Alert.AlertType type) {
+        return (deviceId == null || deviceId.equals(entry.getDeviceId()))
+            && (stationId == null || stationId.equals(entry.getStationId()))
+            && (type == null || type == entry.getAlertType());
+    }
+
+    private AlertLevel level(Long levelId) {
+        if (levelId == null) {
+            return null;
+        }
+        AlertLevel level = levels.get(levelId);
+        if (level == null) {
+            level = alertLevelRepository.findById(levelId).orElse(null);
+            if (level != null) {
+                levels.put(levelId, level);
+            }
+        }
+        return level;
+    }
+
+    private static <K> Bucket bucket(Map<K, Bucket> index, K key) {
+        return index.computeIfAbsent(key, k -> new Bucket());
+    }
+
+    private static <K> void release(Map<K, Bucket> index, K key, OpenAlertEntry entry) {
+        Bucket bucket = index.get(key);
+        if (bucket != null) {
+            bucket.remove(entry);
+            if (bucket.size == 0) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static AlertLevel.Severity severityOf(OpenAlertEntry entry) {
+        return entry.getSeverity() != null ? entry.getSeverity() : AlertLevel.Severity.LOW;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    /** One ordered index with its size; only mutated under the index lock. */
+    private static final class Bucket {
+        final ConcurrentSkipListSet<OpenAlertEntry> entries = new ConcurrentSkipListSet<>(PRIORITY);
+        volatile int size;
+
+        void add(OpenAlertEntry entry) {
+            if (entries.add(entry)) {
+                size++;
+            }
+        }
+
+        void remove(OpenAlertEntry entry) {
+            if (entries.remove(entry)) {
+                size--;
+            }
+        }
+    }
+}
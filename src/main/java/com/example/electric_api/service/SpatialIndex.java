@@ -0,0 +1,190 @@
+package com.example.electric_api.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Immutable R-tree over axis-aligned boxes, bulk-loaded with Sort-Tile-Recursive packing
+ * (Leutenegger et al., ICDE 1997). Each level is stored as flat coordinate arrays; a node
+ * record points at a contiguous range of records one level down, so a query touches only
+ * the nodes whose boxes intersect the search window.
+ *
+ * Coordinates are plain doubles; the grid map uses x = longitude, y = latitude. Points are
+ * boxes with zero extent.
+ */
+final class SpatialIndex<T> {
+
+    private static final int NODE_CAPACITY = 16;
+
+    private final List<T> items;
+    // levels[0] holds the entries, the last level the root's children
+    private final Level[] levels;
+
+    private SpatialIndex(List<T> items, Level[] levels) {
+        this.items = items;
+        this.levels = levels;
+    }
+
+    int size() {
+        return items.size();
+    }
+
+    /** Passes every item whose box intersects the window (edges inclusive) to the consumer. */
+    void search(double minX, double minY, double maxX, double maxY, Consumer<T> consumer) {
+        Level top = levels[levels.length - 1];
+        search(levels.length - 1, 0, top.size(), minX, minY, maxX, maxY, consumer);
+    }
+
+    private void search(int depth, int from, int to, double minX, double minY, double maxX, double maxY,
+                        Consumer<T> consumer) {
+        Level level = levels[depth];
+        for (int i = from; i < to; i++) {
+            if (level.minX[i] > maxX || level.maxX[i] < minX || level.minY[i] > maxY || level.maxY[i] < minY) {
+                continue;
+            }
+            if (depth == 0) {
+                consumer.accept(items.get(level.start[i]));
+            } else {
+                search(depth - 1, level.start[i], level.end[i], minX, minY, maxX, maxY, consumer);
+            }
+        }
+    }
+
+    static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    static final class Builder<T> {
+        private final List<T> items = new ArrayList<>();
+        private double[] minX = new double[64];
+        private double[] minY = new double[64];
+        private double[] maxX = new double[64];
+        private double[] maxY = new double[64];
+
+        Builder<T> add(T item, double x1, double y1, double x2, double y2) {
+            int i = items.size();
+            if (i == minX.length) {
+                minX = Arrays.copyOf(minX, i * 2);
+                minY = Arrays.copyOf(minY, i * 2);
+                maxX = Arrays.copyOf(maxX, i * 2);
+                maxY = Arrays.copyOf(maxY, i * 2);
+            }
+            minX[i] = Math.min(x1, x2);
+            minY[i] = Math.min(y1, y2);
+            maxX[i] = Math.max(x1, x2);
+            maxY[i] = Math.max(y1, y2);
+            items.add(item);
+            return this;
+        }
+
+        Builder<T> addPoint(T item, double x, double y) {
+            return add(item, x, y, x, y);
+        }
+
+        SpatialIndex<T> build() {
+            int n = items.size();
+            int[] itemIndexes = new int[n];
+            for (int i = 0; i < n; i++) {
+                itemIndexes[i] = i;
+            }
+            Level level = new Level(Arrays.copyOf(minX, n), Arrays.copyOf(minY, n), Arrays.copyOf(maxX, n),
+                Arrays.copyOf(maxY, n), itemIndexes, null);
+
+            List<Level> levels = new ArrayList<>();
+            while (true) {
+                level = level.strOrdered();
+                levels.add(level);
+                if (level.size() <= NODE_CAPACITY) {
+                    break;
+                }
+                level = level.grouped();
+            }
+            return new SpatialIndex<>(List.copyOf(items), levels.toArray(new Level[0]));
+        }
+    }
+
+    private static final class Level {
+        final double[] minX;
+        final double[] minY;
+        final double[] maxX;
+        final double[] maxY;
+        // Entries: item index. Nodes: child range [start, end) in the level below
+        final int[] start;
+        final int[] end;
+
+        Level(double[] minX, double[] minY, double[] maxX, double[] maxY, int[] start, int[] end) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.start = start;
+            this.end = end;
+        }
+
+        int size() {
+            return minX.length;
+        }
+
+        /** Records sorted into vertical slices by center x, each slice sorted by center y. */
+        Level strOrdered() {
+            int n = size();
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingDouble(i -> minX[i] + maxX[i]));
+            int nodes = (n + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            int sliceSize = (int) Math.ceil(Math.sqrt(nodes)) * NODE_CAPACITY;
+            for (int from = 0; from < n; from += sliceSize) {
+                Arrays.sort(order, from, Math.min(n, from + sliceSize), Comparator.comparingDouble(i -> minY[i] + maxY[i]));
+            }
+
+            double[] x1 = new double[n], y1 = new double[n], x2 = new double[n], y2 = new double[n];
+            int[] s = new int[n];
+            int[] e = end != null ? new int[n] : null;
+            for (int i = 0; i < n; i++) {
+                int from = order[i];
+                x1[i] = minX[from];
+                y1[i] = minY[from];
+                x2[i] = maxX[from];
+                y2[i] = maxY[from];
+                s[i] = start[from];
+                if (e != null) {
+                    e[i] = end[from];
+                }
+            }
+            return new Level(x1, y1, x2, y2, s, e);
+        }
+
+        /** One parent per run of NODE_CAPACITY consecutive records. */
+        Level grouped() {
+            int n = size();
+            int parents = (n + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            double[] x1 = new double[parents], y1 = new double[parents], x2 = new double[parents], y2 = new double[parents];
+            int[] s = new int[parents];
+            int[] e = new int[parents];
+            for (int p = 0; p < parents; p++) {
+                int from = p * NODE_CAPACITY;
+                int to = Math.min(n, from + NODE_CAPACITY);
+                double a = Double.POSITIVE_INFINITY, b = Double.POSITIVE_INFINITY;
+                double c = Double.NEGATIVE_INFINITY, d = Double.NEGATIVE_INFINITY;
+                for (int i = from; i < to; i++) {
+                    a = Math.min(a, minX[i]);
+                    b = Math.min(b, minY[i]);
+                    c = Math.max(c, maxX[i]);
+                    d = Math.max(d, maxY[i]);
+                }
+                x1[p] = a;
+                y1[p] = b;
+                x2[p] = c;
+                y2[p] = d;
+                s[p] = from;
+                e[p] = to;
+            }
+            return new Level(x1, y1, x2, y2, s, e);
+        }
+    }
+}
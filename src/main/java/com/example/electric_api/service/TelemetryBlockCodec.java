@@ -0,0 +1,267 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.TelemetrySeries;
+
+import java.util.Arrays;
+
+/**
+ * Gorilla-style compression for a block of readings from one device (Pelkonen et al., VLDB 2015).
+ *
+ * Layout: version byte, 32-bit point count, then the timestamp column followed by one column per
+ * metric. Timestamps are stored as delta-of-delta with variable-width buckets, so a steady reporting
+ * interval costs one bit per reading. Metric values are XORed with the previous value and only the
+ * meaningful bits are kept, which works well for slowly changing readings. NaN (missing) values are
+ * encoded like any other double.
+ */
+public final class TelemetryBlockCodec {
+
+    private static final int VERSION = 1;
+
+    private TelemetryBlockCodec() {}
+
+    /** Encodes readings [from, to) of an ascending series. */
+    public static byte[] encode(TelemetrySeries series, int from, int to) {
+        int count = to - from;
+        BitWriter out = new BitWriter(Math.max(16, count * 8));
+        out.writeBits(VERSION, 8);
+        out.writeBits(count, 32);
+        if (count == 0) {
+            return out.toByteArray();
+        }
+
+        // Timestamps: first value raw, then delta-of-delta
+        long previous = series.getTimestamp(from);
+        long previousDelta = 0;
+        out.writeBits(previous, 64);
+        for (int i = from + 1; i < to; i++) {
+            long timestamp = series.getTimestamp(i);
+            long delta = timestamp - previous;
+            writeDeltaOfDelta(out, delta - previousDelta);
+            previousDelta = delta;
+            previous = timestamp;
+        }
+
+        XorEncoder encoder = new XorEncoder();
+        encoder.reset(series.getVoltage(from), out);
+        for (int i = from + 1; i < to; i++) encoder.write(series.getVoltage(i), out);
+        encoder.reset(series.getCurrent(from), out);
+        for (int i = from + 1; i < to; i++) encoder.write(series.getCurrent(i), out);
+        encoder.reset(series.getPower(from), out);
+        for (int i = from + 1; i < to; i++) encoder.write(series.getPower(i), out);
+        encoder.reset(series.getFrequency(from), out);
+        for (int i = from + 1; i < to; i++) encoder.write(series.getFrequency(i), out);
+        encoder.reset(series.getTemperature(from), out);
+        for (int i = from + 1; i < to; i++) encoder.write(series.getTemperature(i), out);
+
+        return out.toByteArray();
+    }
+
+    public static int pointCount(byte[] payload) {
+        BitReader in = new BitReader(payload);
+        readVersion(in);
+        return (int) in.readBits(32);
+    }
+
+    /**
+     * Decodes a block and appends the readings with fromMillis <= timestamp < toMillis to target.
+     * Returns the number of readings appended.
+     */
+    public static int decodeInto(byte[] payload, TelemetrySeries target, long fromMillis, long toMillis) {
+        BitReader in = new BitReader(payload);
+        readVersion(in);
+        int count = (int) in.readBits(32);
+        if (count == 0) {
+            return 0;
+        }
+
+        long[] timestamps = new long[count];
+        timestamps[0] = in.readBits(64);
+        long delta = 0;
+        for (int i = 1; i < count; i++) {
+            delta += readDeltaOfDelta(in);
+            timestamps[i] = timestamps[i - 1] + delta;
+        }
+
+        // Only the overlapping slice is materialized, but every column still has to be read past
+        int first = 0;
+        while (first < count && timestamps[first] < fromMillis) first++;
+        int last = count;
+        while (last > first && timestamps[last - 1] >= toMillis) last--;
+
+        double[][] columns = new double[5][];
+        XorDecoder decoder = new XorDecoder();
+        for (int column = 0; column < 5; column++) {
+            double[] values = new double[count];
+            values[0] = decoder.reset(in);
+            for (int i = 1; i < count; i++) {
+                values[i] = decoder.read(in);
+            }
+            columns[column] = values;
+        }
+
+        for (int i = first; i < last; i++) {
+            target.add(timestamps[i], columns[0][i], columns[1][i], columns[2][i], columns[3][i], columns[4][i]);
+        }
+        return last - first;
+    }
+
+    private static void readVersion(BitReader in) {
+        int version = (int) in.readBits(8);
+        if (version != VERSION) {
+            throw new IllegalStateException("Unsupported telemetry block version: " + version);
+        }
+    }
+
+    // '0' = same interval, '10' + 7 bits, '110' + 9 bits, '1110' + 12 bits, '1111' + 64 bits (zigzag)
+    private static void writeDeltaOfDelta(BitWriter out, long deltaOfDelta) {
+        long zigzag = (deltaOfDelta << 1) ^ (deltaOfDelta >> 63);
+        if (zigzag == 0) {
+            out.writeBits(0b0, 1);
+        } else if (zigzag < (1L << 7)) {
+            out.writeBits(0b10, 2);
+            out.writeBits(zigzag, 7);
+        } else if (zigzag < (1L << 9)) {
+            out.writeBits(0b110, 3);
+            out.writeBits(zigzag, 9);
+        } else if (zigzag < (1L << 12)) {
+            out.writeBits(0b1110, 4);
+            out.writeBits(zigzag, 12);
+        } else {
+            out.writeBits(0b1111, 4);
+            out.writeBits(zigzag, 64);
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader in) {
+        long zigzag;
+        if (in.readBits(1) == 0) {
+            return 0;
+        } else if (in.readBits(1) == 0) {
+            zigzag = in.readBits(7);
+        } else if (in.readBits(1) == 0) {
+            zigzag = in.readBits(9);
+        } else if (in.readBits(1) == 0) {
+            zigzag = in.readBits(12);
+        } else {
+            zigzag = in.readBits(64);
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static class XorEncoder {
+        long previous;
+        int leading;
+        int trailing;
+
+        void reset(double first, BitWriter out) {
+            previous = Double.doubleToRawLongBits(first);
+            leading = -1;
+            trailing = 0;
+            out.writeBits(previous, 64);
+        }
+
+        void write(double value, BitWriter out) {
+            long bits = Double.doubleToRawLongBits(value);
+            long xor = bits ^ previous;
+            previous = bits;
+            if (xor == 0) {
+                out.writeBits(0b0, 1);
+                return;
+            }
+            out.writeBits(0b1, 1);
+
+            int lead = Math.min(31, Long.numberOfLeadingZeros(xor));
+            int trail = Long.numberOfTrailingZeros(xor);
+            if (leading >= 0 && lead >= leading && trail >= trailing) {
+                // Meaningful bits fit inside the previous window
+                out.writeBits(0b0, 1);
+                out.writeBits(xor >>> trailing, 64 - leading - trailing);
+            } else {
+                int significant = 64 - lead - trail;
+                out.writeBits(0b1, 1);
+                out.writeBits(lead, 5);
+                out.writeBits(significant - 1, 6);
+                out.writeBits(xor >>> trail, significant);
+                leading = lead;
+                trailing = trail;
+            }
+        }
+    }
+
+    private static class XorDecoder {
+        long previous;
+        int leading;
+        int trailing;
+
+        double reset(BitReader in) {
+            previous = in.readBits(64);
+            leading = 0;
+            trailing = 0;
+            return Double.longBitsToDouble(previous);
+        }
+
+        double read(BitReader in) {
+            if (in.readBits(1) == 1) {
+                if (in.readBits(1) == 1) {
+                    leading = (int) in.readBits(5);
+                    int significant = (int) in.readBits(6) + 1;
+                    trailing = 64 - leading - significant;
+                }
+                long xor = in.readBits(64 - leading - trailing) << trailing;
+                previous ^= xor;
+            }
+            return Double.longBitsToDouble(previous);
+        }
+    }
+
+    private static class BitWriter {
+        private byte[] buffer;
+        private long bitPosition;
+
+        BitWriter(int initialBytes) {
+            buffer = new byte[initialBytes];
+        }
+
+        void writeBits(long value, int bits) {
+            while (bits > 0) {
+                int byteIndex = (int) (bitPosition >>> 3);
+                if (byteIndex >= buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                int free = 8 - (int) (bitPosition & 7);
+                int take = Math.min(free, bits);
+                int chunk = (int) ((value >>> (bits - take)) & ((1 << take) - 1));
+                buffer[byteIndex] |= (byte) (chunk << (free - take));
+                bitPosition += take;
+                bits -= take;
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, (int) ((bitPosition + 7) >>> 3));
+        }
+    }
+
+    private static class BitReader {
+        private final byte[] buffer;
+        private long bitPosition;
+
+        BitReader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        long readBits(int bits) {
+            long result = 0;
+            while (bits > 0) {
+                int available = 8 - (int) (bitPosition & 7);
+                int take = Math.min(available, bits);
+                int current = buffer[(int) (bitPosition >>> 3)] & 0xFF;
+                int chunk = (current >>> (available - take)) & ((1 << take) - 1);
+                result = (result << take) | chunk;
+                bitPosition += take;
+                bits -= take;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.TelemetrySeries;
+import com.example.electric_api.entity.DeviceDataBlock;
+import com.example.electric_api.repository.DeviceDataBlockRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves closed hours of device_data into compressed DeviceDataBlock rows, one block per device
+ * per hour, and deletes the compacted raw rows. Hours are only compacted once they are older than
+ * the configured delay, so late readings still land in device_data first; if a reading arrives
+ * for an hour that was already compacted, the next run merges it into the existing block.
+ *
+ * A device-hour that fails is logged and skipped, and the run carries on with the rest. It is
+ * retried on later runs up to the configured number of attempts; after that its rows stay in
+ * device_data (history still reads them from there) until retention drops them.
+ */
+@Service
+public class TelemetryCompactionService {
+
+    private static final String RAW_HOUR_SQL =
+        "SELECT id, timestamp, voltage, current, power, frequency, temperature FROM device_data " +
+        "WHERE device_id = ? AND timestamp >= ? AND timestamp < ? ORDER BY timestamp";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DeviceDataBlockRepository deviceDataBlockRepository;
+
+    @Value("${app.telemetry.compaction.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.telemetry.compaction.delay-minutes:10}")
+    private int delayMinutes;
+
+    @Value("${app.telemetry.compaction.max-hours-per-run:24}")
+    private int maxHoursPerRun;
+
+    @Value("${app.telemetry.compaction.max-attempts:3}")
+    private int maxAttempts;
+
+    // Failed attempts per hour and device; cleared when the device-hour compacts or its rows age out
+    private final ConcurrentSkipListMap<LocalDateTime, Map<Long, Integer>> failedAttempts = new ConcurrentSkipListMap<>();
+
+    // Metrics
+    private final LongAdder blocksWritten = new LongAdder();
+    private final LongAdder rowsCompacted = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicLong lastRunMillis = new AtomicLong();
+    private volatile LocalDateTime lastRunAt;
+
+    @Scheduled(fixedDelayString = "${app.telemetry.compaction.interval-ms:300000}",
+               initialDelayString = "${app.telemetry.compaction.initial-delay-ms:60000}")
+    public void compactClosedHours() {
+        if (!enabled) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        LocalDateTime horizon = LocalDateTime.now().minusMinutes(delayMinutes).truncatedTo(ChronoUnit.HOURS);
+
+        try {
+            // Walks forward from the oldest hour, so hours that stay behind never block later ones.
+            // Hours where every device was skipped do not count towards the per-run limit.
+            LocalDateTime cursor = null;
+            int hours = 0;
+            while (hours < maxHoursPerRun) {
+                Timestamp oldest = cursor == null
+                    ? jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM device_data WHERE timestamp < ?",
+                        Timestamp.class, Timestamp.valueOf(horizon))
+                    : jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM device_data WHERE timestamp >= ? AND timestamp < ?",
+                        Timestamp.class, Timestamp.valueOf(cursor), Timestamp.valueOf(horizon));
+                if (oldest == null) {
+                    break;
+                }
+                LocalDateTime hourStart = oldest.toLocalDateTime().truncatedTo(ChronoUnit.HOURS);
+                if (cursor == null) {
+                    failedAttempts.headMap(hourStart).clear();
+                }
+                if (compactHour(hourStart, hourStart.plusHours(1)) > 0) {
+                    hours++;
+                }
+                cursor = hourStart.plusHours(1);
+            }
+        } catch (Exception e) {
+            // Leave the rest for the next run
+            System.out.println("❌ Telemetry compaction failed: " + e.getMessage());
+        } finally {
+            lastRunAt = LocalDateTime.now();
+            lastRunMillis.set(System.currentTimeMillis() - startedAt);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long rows = rowsCompacted.sum();
+        long bytes = compressedBytes.sum();
+        List<Object[]> summary = deviceDataBlockRepository.summarize();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("storedBlocks", summary.isEmpty() ? 0 : summary.get(0)[0]);
+        stats.put("storedPoints", summary.isEmpty() ? 0 : summary.get(0)[1]);
+        stats.put("blocksWritten", blocksWritten.sum());
+        stats.put("rowsCompacted", rows);
+        stats.put("compressedBytes", bytes);
+        stats.put("bytesPerPoint", rows > 0 ? bytes / (double) rows : 0.0);
+        stats.put("failures", failures.sum());
+        stats.put("skippedDeviceHours", failedAttempts.values().stream()
+            .flatMap(devices -> devices.values().stream()).filter(attempts -> attempts >= maxAttempts).count());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastRunMillis", lastRunMillis.get());
+        return stats;
+    }
+
+    /** Returns the number of device-hours attempted, not counting those skipped after too many failures. */
+    private int compactHour(LocalDateTime hourStart, LocalDateTime hourEnd) {
+        List<Long> deviceIds = jdbcTemplate.queryForList(
+            "SELECT DISTINCT device_id FROM device_data WHERE timestamp >= ? AND timestamp < ?",
+            Long.class, Timestamp.valueOf(hourStart), Timestamp.valueOf(hourEnd));
+        Map<Long, Integer> failed = failedAttempts.computeIfAbsent(hourStart, hour -> new ConcurrentHashMap<>());
+
+        // One short transaction per device-hour keeps lock time and memory bounded
+        int attempted = 0;
+        int compacted = 0;
+        for (Long deviceId : deviceIds) {
+            if (failed.getOrDefault(deviceId, 0) >= maxAttempts) {
+                continue;
+            }
+            attempted++;
+            try {
+                transactionTemplate.executeWithoutResult(status -> compactDeviceHour(deviceId, hourStart, hourEnd));
+                compacted++;
+                failed.remove(deviceId);
+            } catch (Exception e) {
+                failures.increment();
+                int attempts = failed.merge(deviceId, 1, Integer::sum);
+                System.out.println("❌ Telemetry compaction failed for device " + deviceId + ", hour " + hourStart +
+                    " (attempt " + attempts + " of " + maxAttempts + "): " + e.getMessage());
+            }
+        }
+        if (failed.isEmpty()) {
+            failedAttempts.remove(hourStart);
+        }
+        if (compacted > 0) {
+            System.out.println("🗜️ Compacted telemetry for " + compacted + " devices, hour " + hourStart);
+        }
+        return attempted;
+    }
+
+    private void compactDeviceHour(Long deviceId, LocalDateTime hourStart, LocalDateTime hourEnd) {
+        TelemetrySeries raw = new TelemetrySeries(720);
+        long[] maxId = {0};
+        jdbcTemplate.query(RAW_HOUR_SQL, rs -> {
+            maxId[0] = Math.max(maxId[0], rs.getLong(1));
+            DeviceDataHistoryReader.appendRow(rs, 2, raw);
+        }, deviceId, Timestamp.valueOf(hourStart), Timestamp.valueOf(hourEnd));
+        if (raw.isEmpty()) {
+            return;
+        }
+
+        Optional<DeviceDataBlock> existing = deviceDataBlockRepository.findByDeviceIdAndBlockStart(deviceId, hourStart);
+        TelemetrySeries series = raw;
+        DeviceDataBlock block;
+        if (existing.isPresent()) {
+            block = existing.get();
+            TelemetrySeries compacted = new TelemetrySeries(block.getPointCount() + 1);
+            TelemetryBlockCodec.decodeInto(block.getPayload(), compacted, Long.MIN_VALUE, Long.MAX_VALUE);
+            series = TelemetrySeries.merge(compacted, raw);
+        } else {
+            block = new DeviceDataBlock(deviceId, hourStart, hourEnd, 0, null);
+        }
+
+        byte[] payload = TelemetryBlockCodec.encode(series, 0, series.size());
+        block.setPointCount(series.size());
+        block.setPayload(payload);
+        deviceDataBlockRepository.save(block);
+
+        // Bounded by the highest id read, so rows committed meanwhile are left for the next run
+        jdbcTemplate.update("DELETE FROM device_data WHERE device_id = ? AND timestamp >= ? AND timestamp < ? AND id <= ?",
+            deviceId, Timestamp.valueOf(hourStart), Timestamp.valueOf(hourEnd), maxId[0]);
+
+        blocksWritten.increment();
+        rowsCompacted.add(raw.size());
+        compressedBytes.add(payload.length);
+    }
+}
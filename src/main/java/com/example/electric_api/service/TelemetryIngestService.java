@@ -0,0 +1,113 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.TelemetryReading;
+import com.example.electric_api.repository.DeviceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class TelemetryIngestService {
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private TelemetryWritePipeline telemetryWritePipeline;
+
+    @Autowired
+    private DeviceTelemetryHotStore deviceTelemetryHotStore;
+
+    @Autowired
+    private TelemetryCompactionService telemetryCompactionService;
+
+    @Autowired
+    private TelemetryRollupService telemetryRollupService;
+
+    @Value("${app.telemetry.max-readings-per-request:10000}")
+    private int maxReadingsPerRequest;
+
+    // Devices already confirmed to exist, so steady-state ingestion never touches the database
+    private final Set<Long> knownDeviceIds = ConcurrentHashMap.newKeySet();
+
+    public Map<String, Object> ingest(List<TelemetryReading> readings) {
+        if (readings == null || readings.isEmpty()) {
+            throw new IllegalArgumentException("No readings supplied");
+        }
+        if (readings.size() > maxReadingsPerRequest) {
+            throw new IllegalArgumentException("Too many readings in one request: " + readings.size() +
+                " (max " + maxReadingsPerRequest + ")");
+        }
+
+        Set<Long> unknownDevices = resolveUnknownDevices(readings);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<TelemetryReading> accepted = new ArrayList<>(readings.size());
+        int rejected = 0;
+        for (TelemetryReading reading : readings) {
+            if (reading.getDeviceId() == null || unknownDevices.contains(reading.getDeviceId())) {
+                rejected++;
+                continue;
+            }
+            if (reading.getTimestamp() == null) {
+                reading.setTimestamp(now);
+            }
+            accepted.add(reading);
+        }
+
+        boolean queued = accepted.isEmpty() || telemetryWritePipeline.offer(accepted);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("received", readings.size());
+        result.put("accepted", queued ? accepted.size() : 0);
+        result.put("rejected", rejected);
+        result.put("unknownDevices", unknownDevices);
+        if (!queued) {
+            result.put("throttled", true);
+            result.put("retryAfterSeconds", telemetryWritePipeline.estimateRetryAfterSeconds());
+        }
+        return result;
+    }
+
+    public Map<String, Object> getPipelineMetrics() {
+        Map<String, Object> metrics = telemetryWritePipeline.getMetrics();
+        metrics.put("knownDevices", knownDeviceIds.size());
+        metrics.put("hotStore", deviceTelemetryHotStore.getStats());
+        metrics.put("compaction", telemetryCompactionService.getStats());
+        metrics.put("rollups", telemetryRollupService.getStats());
+        return metrics;
+    }
+
+    /** A deleted or deactivated device stops being accepted once the change has committed. */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        if (event.getAfter() == null) {
+            knownDeviceIds.remove(event.getDeviceId());
+        }
+    }
+
+    // Only ids not seen before are looked up, with a single IN query per request
+    private Set<Long> resolveUnknownDevices(List<TelemetryReading> readings) {
+        Set<Long> misses = new HashSet<>();
+        for (TelemetryReading reading : readings) {
+            Long deviceId = reading.getDeviceId();
+            if (deviceId != null && !knownDeviceIds.contains(deviceId)) {
+                misses.add(deviceId);
+            }
+        }
+        if (misses.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        List<Long> found = deviceRepository.findActiveIdsByIdIn(misses);
+        knownDeviceIds.addAll(found);
+        misses.removeAll(found);
+        return new TreeSet<>(misses);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.TelemetryReading;
+
+import java.util.List;
+
+/**
+ * Notified by the write pipeline after a batch of readings has been committed to device_data.
+ * Called on a telemetry writer thread, so implementations must be thread-safe and must not block.
+ */
+public interface TelemetryListener {
+
+    void onReadings(List<TelemetryReading> readings);
+}
@@ -0,0 +1,289 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.entity.SystemConfig;
+import com.example.electric_api.repository.SystemConfigRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Keeps the telemetry tables partitioned by time and enforces retention.
+ *
+ * On MySQL, device_data (by timestamp) and device_data_blocks (by block_start) use
+ * RANGE COLUMNS partitions, one per day or month. Partitions are created a few periods
+ * ahead by splitting the trailing MAXVALUE partition, and expired ones are removed with
+ * DROP PARTITION, which is a metadata operation instead of a multi-hour row-by-row delete.
+ * Range queries on the partition column only touch the matching partitions.
+ *
+ * MySQL requires the partition column in every unique key and does not allow foreign keys
+ * on partitioned tables, so converting an existing table drops the device_id foreign key
+ * and widens the primary key to (id, partition column). That rebuilds the table, so it only
+ * runs when app.telemetry.partitions.convert-existing=true.
+ *
+ * Other databases (H2 in development and tests) have no partitions; retention is emulated
+ * with deletes in small chunks so no single statement holds locks for long.
+ *
+ * Retention comes from the telemetry.retention.days SystemConfig entry.
+ */
+@Service
+public class TelemetryPartitionManager {
+
+    public static final String RETENTION_CONFIG_KEY = "telemetry.retention.days";
+
+    private static final String FUTURE_PARTITION = "p_future";
+    private static final String HISTORY_PARTITION = "p_history";
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Partitioned tables and their partition columns
+    private static final Map<String, String> TABLES = new LinkedHashMap<>();
+    static {
+        TABLES.put("device_data", "timestamp");
+        TABLES.put("device_data_blocks", "block_start");
+    }
+
+    public enum Granularity { DAILY, MONTHLY }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SystemConfigRepository systemConfigRepository;
+
+    @Value("${app.telemetry.partitions.granularity:DAILY}")
+    private Granularity granularity;
+
+    @Value("${app.telemetry.partitions.ahead:7}")
+    private int periodsAhead;
+
+    @Value("${app.telemetry.partitions.convert-existing:false}")
+    private boolean convertExisting;
+
+    @Value("${app.telemetry.partitions.default-retention-days:365}")
+    private int defaultRetentionDays;
+
+    @Value("${app.telemetry.partitions.delete-chunk-size:10000}")
+    private int deleteChunkSize;
+
+    private volatile Map<String, Object> lastRun = Collections.emptyMap();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rotate();
+    }
+
+    @Scheduled(cron = "${app.telemetry.partitions.cron:0 15 0 * * *}")
+    public void scheduledRotate() {
+        rotate();
+    }
+
+    /** Creates upcoming partitions and removes expired data; returns a summary of what was done. */
+    public synchronized Map<String, Object> rotate() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        try {
+            int retentionDays = loadRetentionDays();
+            LocalDateTime cutoff = periodStart(LocalDate.now().minusDays(retentionDays));
+            boolean mysql = isMySql();
+
+            result.put("mode", mysql ? "MYSQL_PARTITIONS" : "EMULATED_CHUNKED_DELETE");
+            result.put("granularity", granularity);
+            result.put("retentionDays", retentionDays);
+            result.put("cutoff", cutoff);
+
+            Map<String, Object> tables = new LinkedHashMap<>();
+            for (Map.Entry<String, String> table : TABLES.entrySet()) {
+                tables.put(table.getKey(), mysql
+                    ? rotateMySql(table.getKey(), table.getValue(), cutoff)
+                    : deleteExpired(table.getKey(), table.getValue(), cutoff));
+            }
+            result.put("tables", tables);
+        } catch (Exception e) {
+            System.out.println("❌ Telemetry partition rotation failed: " + e.getMessage());
+            result.put("error", e.getMessage());
+        }
+        result.put("lastRunAt", LocalDateTime.now());
+        lastRun = result;
+        return result;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>(lastRun);
+        try {
+            if (isMySql()) {
+                Map<String, Object> partitions = new LinkedHashMap<>();
+                for (String table : TABLES.keySet()) {
+                    partitions.put(table, listPartitions(table).keySet());
+                }
+                status.put("partitions", partitions);
+            }
+        } catch (Exception e) {
+            status.put("error", e.getMessage());
+        }
+        return status;
+    }
+
+    private Map<String, Object> rotateMySql(String table, String column, LocalDateTime cutoff) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        Map<String, String> partitions = listPartitions(table);
+
+        if (partitions.isEmpty()) {
+            if (!convertExisting) {
+                System.out.println("⚠️ Table " + table + " is not partitioned; set app.telemetry.partitions.convert-existing=true " +
+                    "to convert it (rebuilds the table, run in a maintenance window)");
+                summary.put("partitioned", false);
+                return summary;
+            }
+            convertToPartitioned(table, column);
+            partitions = listPartitions(table);
+            summary.put("converted", true);
+        }
+        summary.put("partitioned", true);
+
+        // Split p_future into the missing upcoming periods
+        LocalDateTime highestBound = null;
+        for (String description : partitions.values()) {
+            LocalDateTime bound = parseBound(description);
+            if (bound != null && (highestBound == null || bound.isAfter(highestBound))) {
+                highestBound = bound;
+            }
+        }
+        LocalDateTime from = periodStart(LocalDate.now());
+        if (highestBound != null && highestBound.isAfter(from)) {
+            from = highestBound;
+        }
+        List<String> created = new ArrayList<>();
+        StringBuilder definitions = new StringBuilder();
+        LocalDateTime last = periodStart(LocalDate.now());
+        for (int i = 0; i <= periodsAhead; i++) {
+            last = nextPeriod(last);
+        }
+        for (LocalDateTime start = from; start.isBefore(last); start = nextPeriod(start)) {
+            String name = partitionName(start);
+            definitions.append("PARTITION ").append(name).append(" VALUES LESS THAN ('")
+                .append(BOUND_FORMAT.format(nextPeriod(start))).append("'), ");
+            created.add(name);
+        }
+        if (!created.isEmpty()) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO (" +
+                definitions + "PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE))");
+        }
+        summary.put("created", created);
+
+        // Whole partitions below the cutoff are dropped without touching individual rows
+        List<String> expired = new ArrayList<>();
+        for (Map.Entry<String, String> partition : partitions.entrySet()) {
+            LocalDateTime bound = parseBound(partition.getValue());
+            if (bound != null && !bound.isAfter(cutoff)) {
+                expired.add(partition.getKey());
+            }
+        }
+        if (!expired.isEmpty()) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP PARTITION " + String.join(", ", expired));
+            System.out.println("🗑️ Dropped " + expired.size() + " expired partitions from " + table);
+        }
+        summary.put("dropped", expired);
+        return summary;
+    }
+
+    private void convertToPartitioned(String table, String column) {
+        System.out.println("🔧 Converting " + table + " to RANGE COLUMNS(" + column + ") partitions");
+
+        List<String> foreignKeys = jdbcTemplate.queryForList(
+            "SELECT CONSTRAINT_NAME FROM information_schema.TABLE_CONSTRAINTS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND CONSTRAINT_TYPE = 'FOREIGN KEY'", String.class, table);
+        for (String foreignKey : foreignKeys) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP FOREIGN KEY " + foreignKey);
+        }
+        jdbcTemplate.execute("ALTER TABLE " + table + " DROP PRIMARY KEY, ADD PRIMARY KEY (id, " + column + ")");
+
+        // Everything before the current period goes into one history partition that expires as a whole
+        LocalDateTime current = periodStart(LocalDate.now());
+        jdbcTemplate.execute("ALTER TABLE " + table + " PARTITION BY RANGE COLUMNS(" + column + ") (" +
+            "PARTITION " + HISTORY_PARTITION + " VALUES LESS THAN ('" + BOUND_FORMAT.format(current) + "'), " +
+            "PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE))");
+    }
+
+    // Partition name -> PARTITION_DESCRIPTION, in partition order; empty when the table is not partitioned
+    private Map<String, String> listPartitions(String table) {
+        Map<String, String> partitions = new LinkedHashMap<>();
+        jdbcTemplate.query(
+            "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL " +
+            "ORDER BY PARTITION_ORDINAL_POSITION", rs -> {
+                partitions.put(rs.getString(1), rs.getString(2));
+            }, table);
+        return partitions;
+    }
+
+    private Map<String, Object> deleteExpired(String table, String column, LocalDateTime cutoff) {
+        long deleted = 0;
+        int chunk;
+        // Autocommit per chunk keeps each statement's locks short
+        do {
+            chunk = jdbcTemplate.update("DELETE FROM " + table + " WHERE " + column + " < ? FETCH FIRST " +
+                deleteChunkSize + " ROWS ONLY", Timestamp.valueOf(cutoff));
+            deleted += chunk;
+        } while (chunk >= deleteChunkSize);
+
+        if (deleted > 0) {
+            System.out.println("🗑️ Deleted " + deleted + " expired rows from " + table);
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("deletedRows", deleted);
+        return summary;
+    }
+
+    private int loadRetentionDays() {
+        return systemConfigRepository.findByConfigKey(RETENTION_CONFIG_KEY)
+            .map(SystemConfig::getConfigValue)
+            .map(value -> {
+                try {
+                    return Integer.parseInt(value.trim());
+                } catch (NumberFormatException e) {
+                    System.out.println("⚠️ Invalid " + RETENTION_CONFIG_KEY + " value: " + value);
+                    return defaultRetentionDays;
+                }
+            })
+            .orElse(defaultRetentionDays);
+    }
+
+    private boolean isMySql() throws SQLException {
+        try (Connection connection = jdbcTemplate.getDataSource().getConnection()) {
+            String product = connection.getMetaData().getDatabaseProductName().toLowerCase();
+            return product.contains("mysql") || product.contains("mariadb");
+        }
+    }
+
+    private LocalDateTime periodStart(LocalDate date) {
+        return granularity == Granularity.MONTHLY ? date.withDayOfMonth(1).atStartOfDay() : date.atStartOfDay();
+    }
+
+    private LocalDateTime nextPeriod(LocalDateTime start) {
+        return granularity == Granularity.MONTHLY ? start.plusMonths(1) : start.plusDays(1);
+    }
+
+    private String partitionName(LocalDateTime start) {
+        return granularity == Granularity.MONTHLY
+            ? "p" + DateTimeFormatter.ofPattern("yyyyMM").format(start)
+            : "p" + DateTimeFormatter.ofPattern("yyyyMMdd").format(start);
+    }
+
+    // RANGE COLUMNS descriptions look like '2026-10-18 00:00:00'; MAXVALUE has no bound
+    private static LocalDateTime parseBound(String description) {
+        if (description == null || description.equalsIgnoreCase("MAXVALUE")) {
+            return null;
+        }
+        return LocalDateTime.parse(description.replace("'", "").trim(), BOUND_FORMAT);
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.DeviceLatestValue;
+import com.example.electric_api.dto.TelemetryReading;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fans committed telemetry out to WebSocket subscribers of devices and stations.
+ *
+ * A reading only marks its device dirty for each subscribed client; a periodic flush then sends
+ * every dirty client one message with the current latest value of each of its dirty devices,
+ * taken from the DeviceLatestValueCache. Updates to a device between two flushes therefore
+ * coalesce into one (latest value wins), and a client's backlog is bounded by the number of
+ * devices it follows, never by the number of readings. A client whose previous message is still
+ * being written is skipped until it catches up; one that stalls past the send time limit is
+ * closed. Each device's JSON is serialized once per flush and shared by all clients; connections
+ * opened in binary format get a TelemetryFrameCodec frame instead.
+ */
+@Component
+public class TelemetryPushHub implements TelemetryListener {
+
+    @Autowired
+    private DeviceLatestValueCache deviceLatestValueCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.ws.telemetry.max-sessions:10000}")
+    private int maxSessions;
+
+    @Value("${app.ws.telemetry.max-subscriptions:1000}")
+    private int maxSubscriptions;
+
+    @Value("${app.ws.telemetry.send-time-limit-ms:5000}")
+    private int sendTimeLimitMs;
+
+    @Value("${app.ws.telemetry.buffer-size-limit:524288}")
+    private int bufferSizeLimit;
+
+    private final Map<String, Client> clients = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Client>> byDevice = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Client>> byStation = new ConcurrentHashMap<>();
+    private final Set<Client> pending = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders;
+
+    private final LongAdder messagesSent = new LongAdder();
+    private final LongAdder devicesSent = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder flushesSkipped = new LongAdder();
+    private final LongAdder clientsDropped = new LongAdder();
+
+    public TelemetryPushHub(@Value("${app.ws.telemetry.send-threads:4}") int sendThreads) {
+        this.senders = Executors.newFixedThreadPool(Math.max(1, sendThreads), runnable -> {
+            Thread thread = new Thread(runnable, "telemetry-push");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Registers a connected session that receives JSON or binary telemetry messages; returns false
+     * when the server is at its session limit.
+     */
+    public boolean register(WebSocketSession session, boolean binary) {
+        if (clients.size() >= maxSessions) {
+            return false;
+        }
+        clients.put(session.getId(), new Client(
+            new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, bufferSizeLimit), binary));
+        return true;
+    }
+
+    public void unregister(WebSocketSession session) {
+        Client client = clients.remove(session.getId());
+        if (client == null) {
+            return;
+        }
+        synchronized (client) {
+            for (Long deviceId : client.devices) {
+                release(byDevice, deviceId, client);
+            }
+            for (Long stationId : client.stations) {
+                release(byStation, stationId, client);
+            }
+            client.devices.clear();
+            client.stations.clear();
+        }
+        pending.remove(client);
+    }
+
+    /**
+     * Adds device and station subscriptions and queues their current values, so the next flush
+     * sends the client a full snapshot of what it just subscribed to.
+     */
+    public Map<String, Object> subscribe(WebSocketSession session, Collection<Long> deviceIds, Collection<Long> stationIds) {
+        Client client = clients.get(session.getId());
+        if (client == null) {
+            throw new IllegalStateException("Session is not registered");
+        }
+        synchronized (client) {
+            int requested = client.devices.size() + client.stations.size() + deviceIds.size() + stationIds.size();
+            if (requested > maxSubscriptions) {
+                throw new IllegalArgumentException("At most " + maxSubscriptions + " device and station subscriptions per connection");
+            }
+            for (Long deviceId : deviceIds) {
+                if (client.devices.add(deviceId)) {
+                    byDevice.computeIfAbsent(deviceId, id -> ConcurrentHashMap.newKeySet()).add(client);
+                }
+                client.dirty.add(deviceId);
+            }
+            for (Long stationId : stationIds) {
+                if (client.stations.add(stationId)) {
+                    byStation.computeIfAbsent(stationId, id -> ConcurrentHashMap.newKeySet()).add(client);
+                }
+                for (DeviceLatestValue value : deviceLatestValueCache.getLatestByStation(stationId)) {
+                    client.dirty.add(value.getDeviceId());
+                }
+            }
+            pending.add(client);
+            return client.describe();
+        }
+    }
+
+    public Map<String, Object> unsubscribe(WebSocketSession session, Collection<Long> deviceIds, Collection<Long> stationIds) {
+        Client client = clients.get(session.getId());
+        if (client == null) {
+            throw new IllegalStateException("Session is not registered");
+        }
+        synchronized (client) {
+            for (Long deviceId : deviceIds) {
+                if (client.devices.remove(deviceId)) {
+                    release(byDevice, deviceId, client);
+                }
+            }
+            for (Long stationId : stationIds) {
+                if (client.stations.remove(stationId)) {
+                    release(byStation, stationId, client);
+                }
+            }
+            return client.describe();
+        }
+    }
+
+    /** Sends a control message (subscription acks, errors) outside the coalesced stream. */
+    public void sendControl(WebSocketSession session, Map<String, Object> message) {
+        Client client = clients.get(session.getId());
+        if (client == null) {
+            return;
+        }
+        try {
+            client.session.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
+        } catch (Exception e) {
+            drop(client, "control message failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onReadings(List<TelemetryReading> readings) {
+        if (clients.isEmpty()) {
+            return;
+        }
+        long previous = Long.MIN_VALUE;
+        for (TelemetryReading reading : readings) {
+            // Batches are usually grouped by device
+            if (reading.getDeviceId() != null && reading.getDeviceId() != previous) {
+                previous = reading.getDeviceId();
+                markDirty(previous);
+            }
+        }
+    }
+
+    /** Pushes status and station changes of subscribed devices. */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        if (!clients.isEmpty() && event.getAfter() != null) {
+            markDirty(event.getDeviceId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.ws.telemetry.flush-interval-ms:500}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<Long, String> fragments = new ConcurrentHashMap<>();
+        Iterator<Client> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            Client client = iterator.next();
+            // Still writing the previous message: keep accumulating, latest value wins
+            if (client.session.getBufferSize() > 0 || !client.sending.compareAndSet(false, true)) {
+                flushesSkipped.increment();
+                continue;
+            }
+            iterator.remove();
+            senders.execute(() -> send(client, fragments));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sessions", clients.size());
+        stats.put("subscribedDevices", byDevice.size());
+        stats.put("subscribedStations", byStation.size());
+        stats.put("pendingClients", pending.size());
+        stats.put("messagesSent", messagesSent.sum());
+        stats.put("deviceUpdatesSent", devicesSent.sum());
+        stats.put("bytesSent", bytesSent.sum());
+        stats.put("flushesSkipped", flushesSkipped.sum());
+        stats.put("clientsDropped", clientsDropped.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    private void markDirty(Long deviceId) {
+        Set<Client> direct = byDevice.get(deviceId);
+        if (direct != null) {
+            for (Client client : direct) {
+                client.dirty.add(deviceId);
+                pending.add(client);
+            }
+        }
+        if (!byStation.isEmpty()) {
+            Long stationId = deviceLatestValueCache.getStationId(deviceId);
+            Set<Client> viaStation = stationId != null ? byStation.get(stationId) : null;
+            if (viaStation != null) {
+                for (Client client : viaStation) {
+                    client.dirty.add(deviceId);
+                    pending.add(client);
+                }
+            }
+        }
+    }
+
+    private void send(Client client, Map<Long, String> fragments) {
+        try {
+            List<Long> deviceIds = new ArrayList<>(client.dirty.size());
+            for (Iterator<Long> iterator = client.dirty.iterator(); iterator.hasNext(); ) {
+                deviceIds.add(iterator.next());
+                iterator.remove();
+            }
+            if (deviceIds.isEmpty() || !client.session.isOpen()) {
+                return;
+            }
+            Collections.sort(deviceIds);
+            List<DeviceLatestValue> values = deviceLatestValueCache.getLatest(deviceIds);
+            if (values.isEmpty()) {
+                return;
+            }
+
+            if (client.binary) {
+                byte[] frame = TelemetryFrameCodec.encodeLatest(values);
+                client.session.sendMessage(new BinaryMessage(frame));
+                bytesSent.add(frame.length);
+            } else {
+                StringBuilder message = new StringBuilder(64 + values.size() * 200);
+                message.append("{\"type\":\"telemetry\",\"devices\":[");
+                for (int i = 0; i < values.size(); i++) {
+                    DeviceLatestValue value = values.get(i);
+                    if (i > 0) {
+                        message.append(',');
+                    }
+                    message.append(fragments.computeIfAbsent(value.getDeviceId(), id -> toJson(value)));
+                }
+                message.append("]}");
+                TextMessage text = new TextMessage(message);
+                client.session.sendMessage(text);
+                bytesSent.add(text.getPayloadLength());
+            }
+            messagesSent.increment();
+            devicesSent.add(values.size());
+        } catch (Exception e) {
+            drop(client, e.getMessage());
+        } finally {
+            client.sending.set(false);
+            // Readings that arrived while sending go out on the next flush
+            if (!client.dirty.isEmpty()) {
+                pending.add(client);
+            }
+        }
+    }
+
+    private String toJson(DeviceLatestValue value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void drop(Client client, String reason) {
+        clientsDropped.increment();
+        System.out.println("🔌 Dropping telemetry subscriber " + client.session.getId() + ": " + reason);
+        try {
+            client.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException ignored) {
+            // Already gone
+        }
+        unregister(client.session);
+    }
+
+    private static void release(Map<Long, Set<Client>> index, Long key, Client client) {
+        index.computeIfPresent(key, (id, members) -> {
+            members.remove(client);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    private static final class Client {
+        final ConcurrentWebSocketSessionDecorator session;
+        final Set<Long> devices = new HashSet<>();
+        final Set<Long> stations = new HashSet<>();
+        final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+        final AtomicBoolean sending = new AtomicBoolean();
+        final boolean binary;
+
+        Client(ConcurrentWebSocketSessionDecorator session, boolean binary) {
+            this.session = session;
+            this.binary = binary;
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> subscriptions = new HashMap<>();
+            subscriptions.put("deviceIds", new TreeSet<>(devices));
+            subscriptions.put("stationIds", new TreeSet<>(stations));
+            subscriptions.put("format", binary ? "binary" : "json");
+            return subscriptions;
+        }
+    }
+}
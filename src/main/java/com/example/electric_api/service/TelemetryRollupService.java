@@ -0,0 +1,431 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.TelemetryReading;
+import com.example.electric_api.dto.TelemetrySeries;
+import com.example.electric_api.entity.DeviceDataRollup;
+import com.example.electric_api.entity.DeviceDataRollup.Resolution;
+import com.example.electric_api.repository.DeviceDataRollupRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Maintains min / max / avg / count / last rollups of device readings at 1m, 5m, 1h and 1d.
+ *
+ * Committed readings are folded into in-memory buckets as they arrive from the write pipeline,
+ * so raw rows are never rescanned. A scheduled flush persists buckets once they are closed
+ * (plus a grace period for late readings); a late reading for an already persisted bucket is
+ * merged into the stored row on the next flush. Buckets of a failed flush are put back and
+ * retried on the next tick. Open buckets are flushed on shutdown.
+ */
+@Service
+public class TelemetryRollupService implements TelemetryListener {
+
+    private static final int METRICS = 5;
+
+    private static final String INSERT_SQL =
+        "INSERT INTO device_data_rollups (device_id, resolution, bucket_start, sample_count, last_timestamp, " +
+        "voltage_min, voltage_max, voltage_avg, voltage_last, current_min, current_max, current_avg, current_last, " +
+        "power_min, power_max, power_avg, power_last, frequency_min, frequency_max, frequency_avg, frequency_last, " +
+        "temperature_min, temperature_max, temperature_avg, temperature_last, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SQL =
+        "UPDATE device_data_rollups SET sample_count = ?, last_timestamp = ?, " +
+        "voltage_min = ?, voltage_max = ?, voltage_avg = ?, voltage_last = ?, current_min = ?, current_max = ?, current_avg = ?, current_last = ?, " +
+        "power_min = ?, power_max = ?, power_avg = ?, power_last = ?, frequency_min = ?, frequency_max = ?, frequency_avg = ?, frequency_last = ?, " +
+        "temperature_min = ?, temperature_max = ?, temperature_avg = ?, temperature_last = ?, updated_at = ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DeviceDataRollupRepository deviceDataRollupRepository;
+
+    @Value("${app.telemetry.rollup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.telemetry.rollup.grace-seconds:30}")
+    private long graceSeconds;
+
+    private final Map<Long, DeviceBuckets> devices = new ConcurrentHashMap<>();
+
+    // Metrics
+    private final LongAdder bucketsFlushed = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final AtomicLong lastFlushMillis = new AtomicLong();
+
+    @Override
+    public void onReadings(List<TelemetryReading> readings) {
+        if (!enabled) {
+            return;
+        }
+        for (TelemetryReading reading : readings) {
+            // Added inside compute so a concurrent flush cannot drop the device's buckets in between
+            devices.compute(reading.getDeviceId(), (id, buckets) -> {
+                DeviceBuckets target = buckets != null ? buckets : new DeviceBuckets();
+                target.add(TelemetrySeries.toEpochMillis(reading.getTimestamp()),
+                    TelemetrySeries.toDouble(reading.getVoltage()),
+                    TelemetrySeries.toDouble(reading.getCurrent()),
+                    TelemetrySeries.toDouble(reading.getPower()),
+                    TelemetrySeries.toDouble(reading.getFrequency()),
+                    TelemetrySeries.toDouble(reading.getTemperature()));
+                return target;
+            });
+        }
+    }
+
+    /**
+     * Coarsest resolution that still yields at least {@code points} buckets over the range,
+     * or null when even one-minute buckets are too coarse and raw readings should be used.
+     */
+    public Resolution chooseResolution(LocalDateTime start, LocalDateTime end, int points) {
+        long seconds = Duration.between(start, end).getSeconds();
+        Resolution chosen = null;
+        for (Resolution resolution : Resolution.values()) {
+            if (seconds / resolution.getSeconds() >= points) {
+                chosen = resolution;
+            }
+        }
+        return chosen;
+    }
+
+    public List<DeviceDataRollup> readRange(Long deviceId, Resolution resolution, LocalDateTime start, LocalDateTime end) {
+        long startMillis = TelemetrySeries.toEpochMillis(start);
+        LocalDateTime firstBucket = TelemetrySeries.toLocalDateTime(
+            Math.floorDiv(startMillis, resolution.getMillis()) * resolution.getMillis());
+        return deviceDataRollupRepository
+            .findByDeviceIdAndResolutionAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStart(
+                deviceId, resolution, firstBucket, end);
+    }
+
+    @Scheduled(fixedDelayString = "${app.telemetry.rollup.flush-interval-ms:10000}")
+    public void flushClosedBuckets() {
+        flush(false);
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        flush(true);
+    }
+
+    public Map<String, Object> getStats() {
+        int openBuckets = 0;
+        for (DeviceBuckets buckets : devices.values()) {
+            openBuckets += buckets.pendingCount();
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("trackedDevices", devices.size());
+        stats.put("pendingBuckets", openBuckets);
+        stats.put("bucketsFlushed", bucketsFlushed.sum());
+        stats.put("flushFailures", flushFailures.sum());
+        stats.put("lastFlushMillis", lastFlushMillis.get());
+        Map<String, Long> stored = new LinkedHashMap<>();
+        for (Resolution resolution : Resolution.values()) {
+            stored.put(resolution.getLabel(), deviceDataRollupRepository.countByResolution(resolution));
+        }
+        stats.put("storedBuckets", stored);
+        return stats;
+    }
+
+    private void flush(boolean all) {
+        long startedAt = System.currentTimeMillis();
+        long closedBefore = TelemetrySeries.toEpochMillis(LocalDateTime.now().minusSeconds(graceSeconds));
+
+        // Group by (resolution, bucket start) so existing rows are looked up with one query per group
+        Map<Resolution, Map<Long, Map<Long, RollupBucket>>> groups = new EnumMap<>(Resolution.class);
+        for (Long deviceId : devices.keySet()) {
+            devices.computeIfPresent(deviceId, (id, buckets) -> {
+                for (RollupBucket bucket : buckets.drain(closedBefore, all)) {
+                    groups.computeIfAbsent(bucket.resolution, r -> new HashMap<>())
+                        .computeIfAbsent(bucket.start, s -> new HashMap<>())
+                        .merge(id, bucket, RollupBucket::merge);
+                }
+                return buckets.isIdle() ? null : buckets;
+            });
+        }
+
+        for (Map.Entry<Resolution, Map<Long, Map<Long, RollupBucket>>> byResolution : groups.entrySet()) {
+            for (Map.Entry<Long, Map<Long, RollupBucket>> byStart : byResolution.getValue().entrySet()) {
+                try {
+                    transactionTemplate.executeWithoutResult(status ->
+                        persist(byResolution.getKey(), byStart.getKey(), byStart.getValue()));
+                    bucketsFlushed.add(byStart.getValue().size());
+                } catch (Exception e) {
+                    flushFailures.add(byStart.getValue().size());
+                    System.out.println("❌ Failed to flush " + byResolution.getKey().getLabel() + " rollups: " + e.getMessage());
+                    requeue(byStart.getValue());
+                }
+            }
+        }
+        lastFlushMillis.set(System.currentTimeMillis() - startedAt);
+    }
+
+    // The transaction rolled back, so the buckets go back to their devices for the next tick
+    private void requeue(Map<Long, RollupBucket> buckets) {
+        for (Map.Entry<Long, RollupBucket> entry : buckets.entrySet()) {
+            devices.compute(entry.getKey(), (id, pending) -> {
+                DeviceBuckets target = pending != null ? pending : new DeviceBuckets();
+                target.requeue(entry.getValue());
+                return target;
+            });
+        }
+    }
+
+    private void persist(Resolution resolution, long bucketStartMillis, Map<Long, RollupBucket> buckets) {
+        LocalDateTime bucketStart = TelemetrySeries.toLocalDateTime(bucketStartMillis);
+        Map<Long, DeviceDataRollup> existing = new HashMap<>();
+        for (DeviceDataRollup row : deviceDataRollupRepository.findByResolutionAndBucketStartAndDeviceIdIn(
+                resolution, bucketStart, buckets.keySet())) {
+            existing.put(row.getDeviceId(), row);
+        }
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (Map.Entry<Long, RollupBucket> entry : buckets.entrySet()) {
+            DeviceDataRollup row = existing.get(entry.getKey());
+            RollupBucket bucket = row != null ? RollupBucket.fromRow(row).merge(entry.getValue()) : entry.getValue();
+            if (row == null) {
+                inserts.add(new Object[]{entry.getKey(), resolution.name(), Timestamp.valueOf(bucketStart), bucket});
+            } else {
+                updates.add(new Object[]{row.getId(), bucket});
+            }
+        }
+
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts, inserts.size(), (ps, values) -> {
+                ps.setLong(1, (Long) values[0]);
+                ps.setString(2, (String) values[1]);
+                ps.setTimestamp(3, (Timestamp) values[2]);
+                int next = setAggregates(ps, 4, (RollupBucket) values[3]);
+                ps.setTimestamp(next, now);
+            });
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates, updates.size(), (ps, values) -> {
+                int next = setAggregates(ps, 1, (RollupBucket) values[1]);
+                ps.setTimestamp(next, now);
+                ps.setLong(next + 1, (Long) values[0]);
+            });
+        }
+    }
+
+    // Binds sample_count, last_timestamp and the 20 metric columns; returns the next parameter index
+    private static int setAggregates(PreparedStatement ps, int index, RollupBucket bucket) throws SQLException {
+        ps.setInt(index++, bucket.count);
+        if (bucket.lastTimestamp == Long.MIN_VALUE) {
+            ps.setNull(index++, Types.TIMESTAMP);
+        } else {
+            ps.setTimestamp(index++, Timestamp.valueOf(TelemetrySeries.toLocalDateTime(bucket.lastTimestamp)));
+        }
+        for (int m = 0; m < METRICS; m++) {
+            boolean present = bucket.samples[m] > 0;
+            setDouble(ps, index++, present ? bucket.min[m] : Double.NaN);
+            setDouble(ps, index++, present ? bucket.max[m] : Double.NaN);
+            setDouble(ps, index++, present ? bucket.sum[m] / bucket.samples[m] : Double.NaN);
+            setDouble(ps, index++, present ? bucket.last[m] : Double.NaN);
+        }
+        return index;
+    }
+
+    private static void setDouble(PreparedStatement ps, int index, double value) throws SQLException {
+        if (Double.isNaN(value)) {
+            ps.setNull(index, Types.DOUBLE);
+        } else {
+            ps.setDouble(index, value);
+        }
+    }
+
+    /** Open and closed-but-unflushed buckets of one device, one open bucket per resolution. */
+    private static class DeviceBuckets {
+        private final RollupBucket[] open = new RollupBucket[Resolution.values().length];
+        private List<RollupBucket> closed = new ArrayList<>();
+
+        synchronized void add(long ts, double v, double c, double p, double f, double t) {
+            for (Resolution resolution : Resolution.values()) {
+                long start = Math.floorDiv(ts, resolution.getMillis()) * resolution.getMillis();
+                RollupBucket bucket = open[resolution.ordinal()];
+                if (bucket == null || start > bucket.start) {
+                    if (bucket != null) {
+                        closed.add(bucket);
+                    }
+                    bucket = new RollupBucket(resolution, start);
+                    open[resolution.ordinal()] = bucket;
+                } else if (start < bucket.start) {
+                    // Late reading for a bucket that already rolled over
+                    bucket = findOrCreateClosed(resolution, start);
+                }
+                bucket.add(ts, v, c, p, f, t);
+            }
+        }
+
+        synchronized List<RollupBucket> drain(long closedBefore, boolean all) {
+            List<RollupBucket> ready = closed;
+            closed = new ArrayList<>();
+            for (int i = 0; i < open.length; i++) {
+                RollupBucket bucket = open[i];
+                if (bucket != null && (all || bucket.start + bucket.resolution.getMillis() <= closedBefore)) {
+                    ready.add(bucket);
+                    open[i] = null;
+                }
+            }
+            return ready;
+        }
+
+        synchronized void requeue(RollupBucket bucket) {
+            for (RollupBucket pending : closed) {
+                if (pending.resolution == bucket.resolution && pending.start == bucket.start) {
+                    pending.merge(bucket);
+                    return;
+                }
+            }
+            closed.add(bucket);
+        }
+
+        synchronized boolean isIdle() {
+            if (!closed.isEmpty()) {
+                return false;
+            }
+            for (RollupBucket bucket : open) {
+                if (bucket != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        synchronized int pendingCount() {
+            int count = closed.size();
+            for (RollupBucket bucket : open) {
+                if (bucket != null) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private RollupBucket findOrCreateClosed(Resolution resolution, long start) {
+            for (RollupBucket bucket : closed) {
+                if (bucket.resolution == resolution && bucket.start == start) {
+                    return bucket;
+                }
+            }
+            RollupBucket bucket = new RollupBucket(resolution, start);
+            closed.add(bucket);
+            return bucket;
+        }
+    }
+
+    /** Mergeable aggregate state; avg is kept as sum / samples per metric so merges stay exact. */
+    private static class RollupBucket {
+        final Resolution resolution;
+        final long start;
+        int count;
+        long lastTimestamp = Long.MIN_VALUE;
+        final double[] min = new double[METRICS];
+        final double[] max = new double[METRICS];
+        final double[] sum = new double[METRICS];
+        final int[] samples = new int[METRICS];
+        final double[] last = new double[METRICS];
+
+        RollupBucket(Resolution resolution, long start) {
+            this.resolution = resolution;
+            this.start = start;
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+            Arrays.fill(last, Double.NaN);
+        }
+
+        void add(long ts, double v, double c, double p, double f, double t) {
+            count++;
+            boolean newest = ts >= lastTimestamp;
+            if (newest) {
+                lastTimestamp = ts;
+            }
+            accumulate(0, v, newest);
+            accumulate(1, c, newest);
+            accumulate(2, p, newest);
+            accumulate(3, f, newest);
+            accumulate(4, t, newest);
+        }
+
+        private void accumulate(int m, double value, boolean newest) {
+            if (Double.isNaN(value)) {
+                return;
+            }
+            samples[m]++;
+            sum[m] += value;
+            min[m] = Math.min(min[m], value);
+            max[m] = Math.max(max[m], value);
+            if (newest) {
+                last[m] = value;
+            }
+        }
+
+        RollupBucket merge(RollupBucket other) {
+            boolean otherNewer = other.lastTimestamp >= lastTimestamp;
+            count += other.count;
+            for (int m = 0; m < METRICS; m++) {
+                if (other.samples[m] == 0) {
+                    continue;
+                }
+                samples[m] += other.samples[m];
+                sum[m] += other.sum[m];
+                min[m] = Math.min(min[m], other.min[m]);
+                max[m] = Math.max(max[m], other.max[m]);
+                if (otherNewer || Double.isNaN(last[m])) {
+                    last[m] = other.last[m];
+                }
+            }
+            lastTimestamp = Math.max(lastTimestamp, other.lastTimestamp);
+            return this;
+        }
+
+        // Stored rows only keep avg, so per-metric sample counts are taken as the bucket's sample count
+        static RollupBucket fromRow(DeviceDataRollup row) {
+            RollupBucket bucket = new RollupBucket(row.getResolution(), TelemetrySeries.toEpochMillis(row.getBucketStart()));
+            bucket.count = row.getSampleCount();
+            if (row.getLastTimestamp() != null) {
+                bucket.lastTimestamp = TelemetrySeries.toEpochMillis(row.getLastTimestamp());
+            }
+            Double[][] columns = {
+                {row.getVoltageMin(), row.getVoltageMax(), row.getVoltageAvg(), row.getVoltageLast()},
+                {row.getCurrentMin(), row.getCurrentMax(), row.getCurrentAvg(), row.getCurrentLast()},
+                {row.getPowerMin(), row.getPowerMax(), row.getPowerAvg(), row.getPowerLast()},
+                {row.getFrequencyMin(), row.getFrequencyMax(), row.getFrequencyAvg(), row.getFrequencyLast()},
+                {row.getTemperatureMin(), row.getTemperatureMax(), row.getTemperatureAvg(), row.getTemperatureLast()}
+            };
+            for (int m = 0; m < METRICS; m++) {
+                if (columns[m][2] == null) {
+                    continue;
+                }
+                bucket.samples[m] = bucket.count;
+                bucket.min[m] = columns[m][0];
+                bucket.max[m] = columns[m][1];
+                bucket.sum[m] = columns[m][2] * bucket.count;
+                bucket.last[m] = columns[m][3] != null ? columns[m][3] : Double.NaN;
+            }
+            return bucket;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.TelemetryReading;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded ring buffer between the ingestion endpoint and the device_data table.
+ * Request threads only enqueue; a few writer threads drain the buffer in batches that
+ * are flushed when they reach the JDBC batch size or when the flush interval expires.
+ */
+@Component
+public class TelemetryWritePipeline {
+
+    @Autowired
+    private DeviceDataBatchWriter deviceDataBatchWriter;
+
+    @Autowired(required = false)
+    private List<TelemetryListener> listeners = new ArrayList<>();
+
+    @Value("${app.telemetry.pipeline.capacity:100000}")
+    private int capacity;
+
+    @Value("${app.telemetry.pipeline.writer-threads:2}")
+    private int writerThreads;
+
+    @Value("${app.telemetry.pipeline.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    private ArrayBlockingQueue<TelemetryReading> buffer;
+    // Slots claimed by requests, released as writers take readings out; never exceeds capacity,
+    // so a request that got its slots can always enqueue every reading
+    private final AtomicInteger reserved = new AtomicInteger();
+    private ExecutorService writers;
+    private volatile boolean running;
+
+    // Metrics
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder drainNanos = new LongAdder();
+    private final AtomicLong maxDrainNanos = new AtomicLong();
+    private final AtomicInteger lastBatchSize = new AtomicInteger();
+    private final AtomicInteger maxBatchSize = new AtomicInteger();
+
+    @PostConstruct
+    public void start() {
+        buffer = new ArrayBlockingQueue<>(capacity);
+        running = true;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "telemetry-writer-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < writerThreads; i++) {
+            writers.submit(this::drainLoop);
+        }
+        System.out.println("🚰 Telemetry pipeline started: capacity=" + capacity + ", writers=" + writerThreads +
+            ", batchSize=" + deviceDataBatchWriter.getBatchSize() + ", flushIntervalMs=" + flushIntervalMs);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writers.shutdown();
+        if (!writers.awaitTermination(10, TimeUnit.SECONDS)) {
+            System.out.println("⚠️ Telemetry pipeline stopped with " + buffer.size() + " readings still buffered");
+            writers.shutdownNow();
+        }
+    }
+
+    /**
+     * Enqueues all of the readings or none of them, without blocking. Returns false when the
+     * buffer has no room for the whole batch; nothing was queued and the caller should apply
+     * backpressure, so a client that resends the batch never writes a reading twice.
+     */
+    public boolean offer(List<TelemetryReading> readings) {
+        int count = readings.size();
+        int used;
+        do {
+            used = reserved.get();
+            if (capacity - used < count) {
+                rejected.add(count);
+                return false;
+            }
+        } while (!reserved.compareAndSet(used, used + count));
+
+        for (TelemetryReading reading : readings) {
+            if (!buffer.offer(reading)) {
+                throw new IllegalStateException("Telemetry buffer overflowed its reserved capacity");
+            }
+        }
+        enqueued.add(count);
+        return true;
+    }
+
+    /**
+     * Seconds a client should wait before retrying, estimated from the current queue depth
+     * and the observed drain throughput.
+     */
+    public long estimateRetryAfterSeconds() {
+        long batchCount = batches.sum();
+        if (batchCount == 0) {
+            return 1;
+        }
+        double avgBatchSeconds = drainNanos.sum() / (double) batchCount / 1_000_000_000.0;
+        double avgBatchSize = written.sum() / (double) batchCount;
+        double readingsPerSecond = avgBatchSeconds > 0 ? avgBatchSize * writerThreads / avgBatchSeconds : Double.MAX_VALUE;
+        long seconds = (long) Math.ceil(buffer.size() / Math.max(1.0, readingsPerSecond));
+        return Math.max(1, Math.min(30, seconds));
+    }
+
+    public Map<String, Object> getMetrics() {
+        long batchCount = batches.sum();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("capacity", capacity);
+        metrics.put("queueDepth", buffer.size());
+        metrics.put("writerThreads", writerThreads);
+        metrics.put("flushIntervalMs", flushIntervalMs);
+        metrics.put("maxBatchSize", deviceDataBatchWriter.getBatchSize());
+        metrics.put("enqueued", enqueued.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("written", written.sum());
+        metrics.put("failed", failed.sum());
+        metrics.put("batches", batchCount);
+        metrics.put("lastBatchSize", lastBatchSize.get());
+        metrics.put("largestBatchSize", maxBatchSize.get());
+        metrics.put("avgBatchSize", batchCount > 0 ? written.sum() / (double) batchCount : 0.0);
+        metrics.put("avgDrainLatencyMs", batchCount > 0 ? drainNanos.sum() / (double) batchCount / 1_000_000.0 : 0.0);
+        metrics.put("maxDrainLatencyMs", maxDrainNanos.get() / 1_000_000.0);
+        return metrics;
+    }
+
+    private void drainLoop() {
+        int batchSize = deviceDataBatchWriter.getBatchSize();
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        List<TelemetryReading> batch = new ArrayList<>(batchSize);
+
+        while (running || !buffer.isEmpty()) {
+            try {
+                TelemetryReading first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                reserved.decrementAndGet();
+                batch.add(first);
+
+                // Fill up to the batch size, but never hold a partial batch longer than the flush interval
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    reserved.addAndGet(-buffer.drainTo(batch, batchSize - batch.size()));
+                    if (batch.size() >= batchSize) {
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    TelemetryReading next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    reserved.decrementAndGet();
+                    batch.add(next);
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                // Shutdown requested; keep draining whatever is left while running is false
+                Thread.currentThread().interrupt();
+                reserved.addAndGet(-buffer.drainTo(batch, batchSize));
+                flush(batch);
+                if (buffer.isEmpty()) {
+                    return;
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<TelemetryReading> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        try {
+            int count = deviceDataBatchWriter.write(batch);
+            written.add(count);
+        } catch (Exception e) {
+            failed.add(batch.size());
+            System.out.println("❌ Failed to write telemetry batch of " + batch.size() + " readings: " + e.getMessage());
+            return;
+        } finally {
+            long elapsed = System.nanoTime() - startedAt;
+            batches.increment();
+            drainNanos.add(elapsed);
+            maxDrainNanos.accumulateAndGet(elapsed, Math::max);
+            lastBatchSize.set(batch.size());
+            maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+        }
+        notifyListeners(batch);
+    }
+
+    // Listeners only see readings that were committed
+    private void notifyListeners(List<TelemetryReading> batch) {
+        for (TelemetryListener listener : listeners) {
+            try {
+                listener.onReadings(batch);
+            } catch (Exception e) {
+                System.out.println("❌ Telemetry listener " + listener.getClass().getSimpleName() + " failed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -1,16 +1,22 @@
 package com.example.electric_api.service;
 
+import com.example.electric_api.dto.KeysetPage;
 import com.example.electric_api.dto.RegisterRequest;
 import com.example.electric_api.entity.LoginHistory;
 import com.example.electric_api.entity.User;
 import com.example.electric_api.repository.LoginHistoryRepository;
 import com.example.electric_api.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -26,6 +32,9 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     public User findByEmail(String email) {
         return userRepository.findByEmail(email)
             .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
@@ -112,6 +121,40 @@ public class UserService {
         loginHistoryRepository.save(loginHistory);
     }
 
+    /** Users by id, continuing after the cursor's id; every page is a primary key seek. */
+    @Transactional(readOnly = true)
+    public KeysetPage<User> listUsers(String search, User.Role role, Boolean active, String cursor, int size) {
+        StringBuilder jpql = new StringBuilder("SELECT u FROM User u WHERE 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+        if (search != null && !search.isEmpty()) {
+            jpql.append(" AND (u.name LIKE :search OR u.email LIKE :search OR u.department LIKE :search)");
+            params.put("search", "%" + search + "%");
+        }
+        if (role != null) {
+            jpql.append(" AND u.role = :role");
+            params.put("role", role);
+        }
+        if (active != null) {
+            jpql.append(" AND u.isActive = :active");
+            params.put("active", active);
+        }
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] keys = KeysetCursor.decode("users", cursor, 1);
+            jpql.append(" AND u.id > :afterId");
+            try {
+                params.put("afterId", Long.parseLong(keys[0]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        jpql.append(" ORDER BY u.id");
+
+        TypedQuery<User> query = entityManager.createQuery(jpql.toString(), User.class);
+        params.forEach(query::setParameter);
+        query.setMaxResults(size + 1);
+        return KeysetPage.of(query.getResultList(), size, last -> KeysetCursor.encode("users", last.getId()));
+    }
+
     public List<User> searchUsers(String search) {
         return userRepository.searchActiveUsers(search);
     }
@@ -0,0 +1,311 @@
+package com.example.electric_api.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes one Mapbox Vector Tile (specification 2.1) for the XYZ tile z/x/y in Web Mercator.
+ *
+ * Geometry is projected to the tile's 4096 x 4096 grid, clipped to the tile plus a 64 unit buffer
+ * (so strokes and markers at the edge render seamlessly) and quantized to integers. Property keys
+ * and values are deduplicated per layer as the format requires. The protobuf wire format is
+ * written by hand; a tile only needs varints, length-delimited fields and packed uint32 arrays.
+ */
+final class VectorTileEncoder {
+
+    static final int EXTENT = 4096;
+    static final int BUFFER = 64;
+
+    private static final int MOVE_TO = 1;
+    private static final int LINE_TO = 2;
+    private static final int POINT = 1;
+    private static final int LINESTRING = 2;
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    private final double tiles;
+    private final int x;
+    private final int y;
+    private final Map<String, Layer> layers = new LinkedHashMap<>();
+
+    VectorTileEncoder(int zoom, int x, int y) {
+        this.tiles = 1L << zoom;
+        this.x = x;
+        this.y = y;
+    }
+
+    /** Adds a point if it falls inside the buffered tile. */
+    void addPoint(String layer, Long id, double latitude, double longitude, Map<String, Object> properties) {
+        long px = Math.round(tileX(longitude));
+        long py = Math.round(tileY(latitude));
+        if (px < -BUFFER || px > EXTENT + BUFFER || py < -BUFFER || py > EXTENT + BUFFER) {
+            return;
+        }
+        IntList geometry = new IntList();
+        geometry.add(command(MOVE_TO, 1));
+        geometry.add(zigzag((int) px));
+        geometry.add(zigzag((int) py));
+        layer(layer).addFeature(id, POINT, geometry, properties);
+    }
+
+    /**
+     * Adds a line from packed [lat, lng, ...] coordinates, clipped to the buffered tile. Pieces that
+     * leave and re-enter the tile become separate parts of one multi-linestring feature.
+     */
+    void addLine(String layer, Long id, double[] coordinates, Map<String, Object> properties) {
+        List<IntList> parts = new ArrayList<>();
+        IntList part = null;
+        double min = -BUFFER;
+        double max = EXTENT + BUFFER;
+        for (int i = 2; i < coordinates.length; i += 2) {
+            double x0 = tileX(coordinates[i - 1]);
+            double y0 = tileY(coordinates[i - 2]);
+            double x1 = tileX(coordinates[i + 1]);
+            double y1 = tileY(coordinates[i]);
+            double[] t = clip(x0, y0, x1, y1, min, max);
+            if (t == null) {
+                part = null;
+                continue;
+            }
+            double dx = x1 - x0;
+            double dy = y1 - y0;
+            if (part == null || t[0] > 0) {
+                part = new IntList();
+                parts.add(part);
+                addVertex(part, x0 + t[0] * dx, y0 + t[0] * dy);
+            }
+            addVertex(part, x0 + t[1] * dx, y0 + t[1] * dy);
+            if (t[1] < 1) {
+                part = null;
+            }
+        }
+
+        IntList geometry = new IntList();
+        int cursorX = 0;
+        int cursorY = 0;
+        for (IntList vertices : parts) {
+            int count = vertices.size / 2;
+            if (count < 2) {
+                continue;
+            }
+            geometry.add(command(MOVE_TO, 1));
+            geometry.add(zigzag(vertices.values[0] - cursorX));
+            geometry.add(zigzag(vertices.values[1] - cursorY));
+            geometry.add(command(LINE_TO, count - 1));
+            for (int v = 1; v < count; v++) {
+                geometry.add(zigzag(vertices.values[2 * v] - vertices.values[2 * v - 2]));
+                geometry.add(zigzag(vertices.values[2 * v + 1] - vertices.values[2 * v - 1]));
+            }
+            cursorX = vertices.values[2 * count - 2];
+            cursorY = vertices.values[2 * count - 1];
+        }
+        if (geometry.size > 0) {
+            layer(layer).addFeature(id, LINESTRING, geometry, properties);
+        }
+    }
+
+    byte[] encode() {
+        ProtoWriter tile = new ProtoWriter();
+        for (Layer layer : layers.values()) {
+            tile.message(3, layer.encode());
+        }
+        return tile.toByteArray();
+    }
+
+    /** Geographic box of the tile widened by the buffer, as west, south, east, north in degrees. */
+    static double[] bounds(int zoom, int x, int y) {
+        double tiles = 1L << zoom;
+        double buffer = (double) BUFFER / EXTENT;
+        double west = Math.max(-180, (x - buffer) / tiles * 360 - 180);
+        double east = Math.min(180, (x + 1 + buffer) / tiles * 360 - 180);
+        double north = Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * (y - buffer) / tiles))));
+        double south = Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * (y + 1 + buffer) / tiles))));
+        return new double[]{west, south, east, north};
+    }
+
+    private double tileX(double longitude) {
+        return ((longitude + 180) / 360 * tiles - x) * EXTENT;
+    }
+
+    private double tileY(double latitude) {
+        double phi = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude)));
+        double world = (1 - Math.log(Math.tan(phi) + 1 / Math.cos(phi)) / Math.PI) / 2 * tiles;
+        return (world - y) * EXTENT;
+    }
+
+    private Layer layer(String name) {
+        return layers.computeIfAbsent(name, Layer::new);
+    }
+
+    private static void addVertex(IntList part, double px, double py) {
+        int qx = (int) Math.round(px);
+        int qy = (int) Math.round(py);
+        int n = part.size;
+        if (n >= 2 && part.values[n - 2] == qx && part.values[n - 1] == qy) {
+            return;
+        }
+        part.add(qx);
+        part.add(qy);
+    }
+
+    /** Liang-Barsky: the parameter range [t0, t1] of the segment inside the square, or null. */
+    private static double[] clip(double x0, double y0, double x1, double y1, double min, double max) {
+        double t0 = 0;
+        double t1 = 1;
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double[] p = {-dx, dx, -dy, dy};
+        double[] q = {x0 - min, max - x0, y0 - min, max - y0};
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) return null;
+                continue;
+            }
+            double r = q[i] / p[i];
+            if (p[i] < 0) {
+                if (r > t1) return null;
+                t0 = Math.max(t0, r);
+            } else {
+                if (r < t0) return null;
+                t1 = Math.min(t1, r);
+            }
+        }
+        return new double[]{t0, t1};
+    }
+
+    private static int command(int id, int count) {
+        return (id & 0x7) | (count << 3);
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static final class Layer {
+        final String name;
+        final List<byte[]> features = new ArrayList<>();
+        final Map<String, Integer> keys = new LinkedHashMap<>();
+        final Map<Object, Integer> values = new LinkedHashMap<>();
+
+        Layer(String name) {
+            this.name = name;
+        }
+
+        void addFeature(Long id, int type, IntList geometry, Map<String, Object> properties) {
+            IntList tags = new IntList();
+            properties.forEach((key, value) -> {
+                if (value != null) {
+                    tags.add(keys.computeIfAbsent(key, k -> keys.size()));
+                    tags.add(values.computeIfAbsent(value, v -> values.size()));
+                }
+            });
+            ProtoWriter feature = new ProtoWriter();
+            if (id != null) {
+                feature.uint(1, id);
+            }
+            feature.packed(2, tags);
+            feature.uint(3, type);
+            feature.packed(4, geometry);
+            features.add(feature.toByteArray());
+        }
+
+        byte[] encode() {
+            ProtoWriter layer = new ProtoWriter();
+            layer.uint(15, 2);
+            layer.string(1, name);
+            for (byte[] feature : features) {
+                layer.message(2, feature);
+            }
+            for (String key : keys.keySet()) {
+                layer.string(3, key);
+            }
+            for (Object value : values.keySet()) {
+                layer.message(4, encodeValue(value));
+            }
+            layer.uint(5, EXTENT);
+            return layer.toByteArray();
+        }
+
+        private static byte[] encodeValue(Object value) {
+            ProtoWriter out = new ProtoWriter();
+            if (value instanceof Boolean b) {
+                out.uint(7, b ? 1 : 0);
+            } else if (value instanceof Integer || value instanceof Long) {
+                long v = ((Number) value).longValue();
+                if (v >= 0) {
+                    out.uint(5, v);
+                } else {
+                    out.tag(6, 0);
+                    out.varint((v << 1) ^ (v >> 63));
+                }
+            } else if (value instanceof Number n) {
+                out.tag(3, 1);
+                long bits = Double.doubleToLongBits(n.doubleValue());
+                for (int i = 0; i < 8; i++) {
+                    out.write((int) (bits >>> (8 * i)));
+                }
+            } else {
+                out.string(1, value.toString());
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /** Growable int array for geometry commands and tag indexes. */
+    private static final class IntList {
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    private static final class ProtoWriter extends ByteArrayOutputStream {
+
+        void tag(int field, int wireType) {
+            varint((long) field << 3 | wireType);
+        }
+
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void uint(int field, long value) {
+            tag(field, 0);
+            varint(value);
+        }
+
+        void message(int field, byte[] bytes) {
+            tag(field, 2);
+            varint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        void string(int field, String value) {
+            message(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void packed(int field, IntList list) {
+            if (list.size == 0) {
+                return;
+            }
+            ProtoWriter body = new ProtoWriter();
+            for (int i = 0; i < list.size; i++) {
+                body.varint(list.values[i] & 0xFFFFFFFFL);
+            }
+            message(field, body.toByteArray());
+        }
+    }
+}
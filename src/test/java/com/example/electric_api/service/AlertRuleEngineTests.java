@@ -0,0 +1,172 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.TelemetryReading;
+import com.example.electric_api.entity.Alert;
+import com.example.electric_api.entity.AlertRule;
+import com.example.electric_api.repository.AlertRuleRepository;
+import com.example.electric_api.repository.DeviceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AlertRuleEngineTests {
+
+	private static final long DEVICE_ID = 1;
+	private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+	private final AlertRuleRepository alertRuleRepository = mock(AlertRuleRepository.class);
+	private final AlertCoalescer alertCoalescer = mock(AlertCoalescer.class);
+	private final List<AlertCoalescer.Candidate> raised = new ArrayList<>();
+	private AlertRuleEngine engine;
+	private int seconds;
+
+	@BeforeEach
+	void setUp() {
+		DeviceRepository deviceRepository = mock(DeviceRepository.class);
+		List<Object[]> devices = new ArrayList<>();
+		devices.add(new Object[]{DEVICE_ID, 10L});
+		when(deviceRepository.findActiveDeviceTypeIds()).thenReturn(devices);
+
+		doAnswer(invocation -> raised.addAll(invocation.getArgument(0))).when(alertCoalescer).submit(anyList());
+
+		engine = new AlertRuleEngine();
+		ReflectionTestUtils.setField(engine, "alertRuleRepository", alertRuleRepository);
+		ReflectionTestUtils.setField(engine, "deviceRepository", deviceRepository);
+		ReflectionTestUtils.setField(engine, "alertCoalescer", alertCoalescer);
+		ReflectionTestUtils.setField(engine, "rateWindowCapacity", 32);
+	}
+
+	@Test
+	void thresholdRuleFiresOnceAndRearmsOnlyBelowTheClearThreshold() {
+		load(rule(Alert.AlertType.OVER_VOLTAGE, AlertRule.Kind.THRESHOLD, "240", "230"));
+
+		assertRaisedAfter(0, 235);
+		assertRaisedAfter(1, 245);
+		// Still above the clear threshold: the alert stays raised, no repeat
+		assertRaisedAfter(1, 250, 238, 245);
+		assertRaisedAfter(1, 229);
+		assertRaisedAfter(2, 241);
+	}
+
+	@Test
+	void underRuleUsesTheClearThresholdOnTheHighSide() {
+		load(rule(Alert.AlertType.UNDER_VOLTAGE, AlertRule.Kind.THRESHOLD, "200", "210"));
+
+		assertRaisedAfter(1, 205, 195, 205, 198);
+		assertRaisedAfter(1, 211);
+		assertRaisedAfter(2, 199);
+	}
+
+	@Test
+	void withoutClearThresholdTheRuleRearmsAtTheThreshold() {
+		load(rule(Alert.AlertType.OVER_VOLTAGE, AlertRule.Kind.THRESHOLD, "240", null));
+
+		assertRaisedAfter(1, 245, 240);
+		assertRaisedAfter(2, 241);
+	}
+
+	@Test
+	void durationRuleWaitsForTheWholeWindowAndRestartsIt() {
+		AlertRule rule = rule(Alert.AlertType.OVER_VOLTAGE, AlertRule.Kind.DURATION, "240", "230");
+		rule.setDurationSeconds(10);
+		load(rule);
+
+		// One reading every 5 s: breached at 0, 5 and 10 s
+		assertRaisedAfter(0, 245, 245);
+		assertRaisedAfter(1, 245);
+		assertRaisedAfter(1, 245, 235, 229);
+		// The window starts again after clearing
+		assertRaisedAfter(1, 245, 245);
+		assertRaisedAfter(2, 245);
+	}
+
+	@Test
+	void nOfMRuleNeedsEnoughBreachesInTheWindow() {
+		AlertRule rule = rule(Alert.AlertType.OVER_VOLTAGE, AlertRule.Kind.N_OF_M, "240", "230");
+		rule.setRequiredSamples(3);
+		rule.setWindowSamples(5);
+		load(rule);
+
+		assertRaisedAfter(0, 245, 220, 245, 220, 220, 245);
+		assertRaisedAfter(1, 245, 245);
+		// Fewer than three breaches left in the window, but the value must also drop below 230
+		assertRaisedAfter(1, 220, 220, 220, 220);
+		assertRaisedAfter(2, 245, 245, 245);
+	}
+
+	@Test
+	void rateRuleSpansTheWholeWindowAtHighReadingRates() {
+		AlertRule rule = rule(Alert.AlertType.OVER_VOLTAGE, AlertRule.Kind.RATE_OF_CHANGE, "20", null);
+		rule.setWindowSeconds(60);
+		load(rule);
+
+		// Ten readings a second flipping between 230 and 232: far more than 32 samples per window, and
+		// over a few seconds the flicker alone would look like a rise of about 40 V/min
+		long millis = 0;
+		for (int i = 0; i < 1200; i++, millis += 100) {
+			send(millis, 230 + 2 * (i % 2));
+		}
+		assertEquals(0, raised.size());
+
+		// A real rise of 30 V/min over the whole window is still seen
+		for (int i = 0; i < 600; i++, millis += 100) {
+			send(millis, 230 + i * 0.05);
+		}
+		assertEquals(1, raised.size());
+	}
+
+	@Test
+	void ruleRearmsWhenItsAlertCannotBeStored() {
+		load(rule(Alert.AlertType.OVER_VOLTAGE, AlertRule.Kind.THRESHOLD, "240", "230"));
+
+		doThrow(new IllegalStateException("database unavailable")).when(alertCoalescer).submit(anyList());
+		assertRaisedAfter(0, 245);
+		doAnswer(invocation -> raised.addAll(invocation.getArgument(0))).when(alertCoalescer).submit(anyList());
+		// Still above the clear threshold, yet it fires again because nothing was stored
+		assertRaisedAfter(1, 244);
+		assertRaisedAfter(1, 246);
+	}
+
+	private void load(AlertRule rule) {
+		when(alertRuleRepository.findByIsActiveTrueOrderById()).thenReturn(List.of(rule));
+		engine.reload();
+	}
+
+	private void assertRaisedAfter(int expected, double... voltages) {
+		for (double voltage : voltages) {
+			engine.onReadings(List.of(new TelemetryReading(DEVICE_ID, START.plusSeconds(seconds), voltage, 30.0,
+				6600.0, 50.0, 25.0)));
+			seconds += 5;
+		}
+		assertEquals(expected, raised.size());
+	}
+
+	private void send(long millis, double voltage) {
+		engine.onReadings(List.of(new TelemetryReading(DEVICE_ID, START.plusNanos(millis * 1_000_000), voltage, 30.0,
+			6600.0, 50.0, 25.0)));
+	}
+
+	private static AlertRule rule(Alert.AlertType type, AlertRule.Kind kind, String threshold, String clearThreshold) {
+		AlertRule rule = new AlertRule();
+		rule.setId(1L);
+		rule.setName(type + " " + kind);
+		rule.setAlertType(type);
+		rule.setRuleKind(kind);
+		rule.setThreshold(new BigDecimal(threshold));
+		rule.setClearThreshold(clearThreshold != null ? new BigDecimal(clearThreshold) : null);
+		rule.setAlertLevelId(1L);
+		return rule;
+	}
+}
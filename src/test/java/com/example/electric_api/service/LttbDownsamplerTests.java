@@ -0,0 +1,92 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.TelemetrySeries;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LttbDownsamplerTests {
+
+	@Test
+	void keepsShortSeriesAndRejectsTooFewPoints() {
+		assertArrayEquals(new int[]{0, 1, 2, 3}, LttbDownsampler.select(4, i -> i, i -> i, 10));
+		assertThrows(IllegalArgumentException.class, () -> LttbDownsampler.select(10, i -> i, i -> i, 2));
+		assertThrows(IllegalArgumentException.class, () -> new LttbDownsampler.SeriesStream(10, 2, "voltage"));
+	}
+
+	@Test
+	void keepsTheEndpointsAndThePeaks() {
+		int size = 10_000;
+		int[] selected = LttbDownsampler.select(size, i -> i, i -> i == 4321 ? 100 : i == 8765 ? -100 : Math.sin(i / 50.0),
+			100);
+
+		assertEquals(100, selected.length);
+		assertEquals(0, selected[0]);
+		assertEquals(size - 1, selected[selected.length - 1]);
+		for (int i = 1; i < selected.length; i++) {
+			assertTrue(selected[i] > selected[i - 1], "indices must be ascending");
+		}
+		assertTrue(contains(selected, 4321));
+		assertTrue(contains(selected, 8765));
+	}
+
+	@Test
+	void gapsDoNotHideThePeakAfterThem() {
+		// The first point and the whole first half have no value; the peak is in the second half
+		int size = 1000;
+		int[] selected = LttbDownsampler.select(size, i -> i, i -> i < 500 ? Double.NaN : i == 700 ? 50 : 1, 10);
+
+		assertTrue(contains(selected, 700));
+		assertEquals(0, selected[0]);
+		assertEquals(size - 1, selected[selected.length - 1]);
+	}
+
+	@Test
+	void triangleAreaTreatsAMissingAnchorOrAverageAsLevel() {
+		assertEquals(10, LttbDownsampler.triangleArea(0, Double.NaN, 1, 5, 2, 0));
+		assertEquals(10, LttbDownsampler.triangleArea(0, 0, 1, 5, 2, Double.NaN));
+		assertTrue(Double.isNaN(LttbDownsampler.triangleArea(0, 0, 1, Double.NaN, 2, 0)));
+		// Nothing to level against: the point cannot be ranked
+		assertTrue(Double.isNaN(LttbDownsampler.triangleArea(0, Double.NaN, 1, 5, 2, Double.NaN)));
+	}
+
+	@Test
+	void streamSelectsTheSamePointsAsTheInMemoryPass() {
+		Random random = new Random(3);
+		for (int trial = 0; trial < 200; trial++) {
+			int size = 3 + random.nextInt(5000);
+			int threshold = 3 + random.nextInt(Math.max(1, size / 2));
+			TelemetrySeries series = new TelemetrySeries(size);
+			for (int i = 0; i < size; i++) {
+				series.add(i * 1000L, random.nextGaussian(), 0, 0, 0, 0);
+			}
+			int[] expected = LttbDownsampler.select(size, series::getTimestamp, series.column("voltage"), threshold);
+
+			// Chunks of any size, as the history reader hands them over hour by hour
+			LttbDownsampler.SeriesStream stream = new LttbDownsampler.SeriesStream(size, threshold, "voltage");
+			for (int from = 0; from < size; ) {
+				int to = Math.min(size, from + 1 + random.nextInt(800));
+				stream.accept(series.slice(from, to));
+				from = to;
+			}
+			TelemetrySeries kept = stream.finish();
+
+			assertEquals(expected.length, kept.size(), "size " + size + ", threshold " + threshold);
+			for (int i = 0; i < expected.length; i++) {
+				assertEquals(series.getTimestamp(expected[i]), kept.getTimestamp(i));
+			}
+		}
+	}
+
+	private static boolean contains(int[] values, int value) {
+		for (int v : values) {
+			if (v == value) return true;
+		}
+		return false;
+	}
+}
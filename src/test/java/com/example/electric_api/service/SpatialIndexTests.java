@@ -0,0 +1,82 @@
+package com.example.electric_api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpatialIndexTests {
+
+	@Test
+	void findsExactlyTheBoxesIntersectingEachWindow() {
+		Random random = new Random(7);
+		List<double[]> boxes = new ArrayList<>();
+		SpatialIndex.Builder<Integer> builder = SpatialIndex.builder();
+		for (int i = 0; i < 5000; i++) {
+			double x = random.nextDouble() * 360 - 180;
+			double y = random.nextDouble() * 180 - 90;
+			// Half points, half boxes given corner-first in either order
+			double[] box = i % 2 == 0
+				? new double[]{x, y, x, y}
+				: new double[]{x + random.nextDouble() * 5, y, x, y + random.nextDouble() * 5};
+			boxes.add(box);
+			builder.add(i, box[0], box[1], box[2], box[3]);
+		}
+		SpatialIndex<Integer> index = builder.build();
+		assertEquals(boxes.size(), index.size());
+
+		for (int query = 0; query < 500; query++) {
+			double minX = random.nextDouble() * 360 - 180;
+			double minY = random.nextDouble() * 180 - 90;
+			double maxX = minX + random.nextDouble() * (query % 10 == 0 ? 200 : 10);
+			double maxY = minY + random.nextDouble() * 10;
+
+			Set<Integer> expected = new TreeSet<>();
+			for (int i = 0; i < boxes.size(); i++) {
+				double[] box = boxes.get(i);
+				if (Math.min(box[0], box[2]) <= maxX && Math.max(box[0], box[2]) >= minX
+						&& Math.min(box[1], box[3]) <= maxY && Math.max(box[1], box[3]) >= minY) {
+					expected.add(i);
+				}
+			}
+			List<Integer> found = new ArrayList<>();
+			index.search(minX, minY, maxX, maxY, found::add);
+			assertEquals(expected.size(), found.size(), "no item may be reported twice");
+			assertEquals(expected, new TreeSet<>(found));
+		}
+	}
+
+	@Test
+	void windowEdgesAreInclusive() {
+		SpatialIndex<String> index = SpatialIndex.<String>builder()
+			.addPoint("corner", 10, 20)
+			.add("touching", 12, 0, 15, 5)
+			.addPoint("outside", 10.000001, 20)
+			.build();
+
+		List<String> found = new ArrayList<>();
+		index.search(0, 5, 10, 20, found::add);
+		assertEquals(List.of("corner"), found);
+
+		found.clear();
+		index.search(15, 5, 15, 5, found::add);
+		assertEquals(List.of("touching"), found);
+	}
+
+	@Test
+	void emptyAndSingleItemTreesAnswerQueries() {
+		List<String> found = new ArrayList<>();
+		SpatialIndex<String> empty = SpatialIndex.<String>builder().build();
+		empty.search(-180, -90, 180, 90, found::add);
+		assertTrue(found.isEmpty());
+
+		SpatialIndex.<String>builder().addPoint("only", 105.8, 21.0).build().search(105, 20, 106, 22, found::add);
+		assertEquals(List.of("only"), found);
+	}
+}
@@ -0,0 +1,82 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.TelemetrySeries;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TelemetryBlockCodecTests {
+
+	@Test
+	void roundTripsIrregularTimestampsAndValues() {
+		Random random = new Random(42);
+		TelemetrySeries series = new TelemetrySeries();
+		long timestamp = 1_700_000_000_000L;
+		double voltage = 220;
+		for (int i = 0; i < 2000; i++) {
+			// Mostly a steady interval, with jitter and the occasional long gap
+			timestamp += i % 97 == 0 ? 3_600_000L + random.nextInt(1000) : 5000 + random.nextInt(21) - 10;
+			voltage += random.nextGaussian();
+			series.add(timestamp, voltage, i % 50 == 0 ? Double.NaN : 30 + random.nextDouble(),
+				6600, random.nextDouble() * 1e9, i % 3 == 0 ? -0.0 : Double.MIN_VALUE * i);
+		}
+
+		byte[] payload = TelemetryBlockCodec.encode(series, 0, series.size());
+		assertEquals(series.size(), TelemetryBlockCodec.pointCount(payload));
+
+		TelemetrySeries decoded = new TelemetrySeries();
+		assertEquals(series.size(), TelemetryBlockCodec.decodeInto(payload, decoded, Long.MIN_VALUE, Long.MAX_VALUE));
+		assertSameReadings(series, 0, decoded);
+	}
+
+	@Test
+	void encodesASubRangeAndDecodesOnlyTheRequestedWindow() {
+		TelemetrySeries series = new TelemetrySeries();
+		for (int i = 0; i < 100; i++) {
+			series.add(1000L * i, i, -i, i * 0.5, 50, Double.NaN);
+		}
+
+		byte[] payload = TelemetryBlockCodec.encode(series, 10, 60);
+		assertEquals(50, TelemetryBlockCodec.pointCount(payload));
+
+		TelemetrySeries decoded = new TelemetrySeries();
+		// [20 s, 30 s) holds readings 20..29
+		assertEquals(10, TelemetryBlockCodec.decodeInto(payload, decoded, 20_000, 30_000));
+		assertSameReadings(series, 20, decoded);
+
+		TelemetrySeries outside = new TelemetrySeries();
+		assertEquals(0, TelemetryBlockCodec.decodeInto(payload, outside, 60_000, 90_000));
+	}
+
+	@Test
+	void roundTripsEmptyAndSingleReadingBlocks() {
+		TelemetrySeries series = new TelemetrySeries();
+		byte[] empty = TelemetryBlockCodec.encode(series, 0, 0);
+		assertEquals(0, TelemetryBlockCodec.pointCount(empty));
+		assertEquals(0, TelemetryBlockCodec.decodeInto(empty, new TelemetrySeries(), Long.MIN_VALUE, Long.MAX_VALUE));
+
+		series.add(-5, Double.MAX_VALUE, Double.NEGATIVE_INFINITY, 0, 1, 2);
+		TelemetrySeries decoded = new TelemetrySeries();
+		TelemetryBlockCodec.decodeInto(TelemetryBlockCodec.encode(series, 0, 1), decoded, Long.MIN_VALUE, Long.MAX_VALUE);
+		assertSameReadings(series, 0, decoded);
+	}
+
+	private static void assertSameReadings(TelemetrySeries expected, int offset, TelemetrySeries actual) {
+		for (int i = 0; i < actual.size(); i++) {
+			int j = offset + i;
+			assertEquals(expected.getTimestamp(j), actual.getTimestamp(i), "timestamp " + j);
+			assertBits(expected.getVoltage(j), actual.getVoltage(i), j);
+			assertBits(expected.getCurrent(j), actual.getCurrent(i), j);
+			assertBits(expected.getPower(j), actual.getPower(i), j);
+			assertBits(expected.getFrequency(j), actual.getFrequency(i), j);
+			assertBits(expected.getTemperature(j), actual.getTemperature(i), j);
+		}
+	}
+
+	// Exact bits, so NaN and -0.0 must survive as well
+	private static void assertBits(double expected, double actual, int index) {
+		assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual), "value " + index);
+	}
+}
@@ -0,0 +1,83 @@
+package com.example.electric_api.service;
+
+import com.example.electric_api.dto.DeviceLatestValue;
+import com.example.electric_api.dto.TelemetryReading;
+import com.example.electric_api.dto.TelemetrySeries;
+import com.example.electric_api.entity.Device;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TelemetryFrameCodecTests {
+
+	@Test
+	void roundTripsUnsortedDevicesMissingMetricsAndDevicesWithoutReadings() {
+		List<DeviceLatestValue> values = List.of(
+			new DeviceLatestValue(42L, 1L, Device.DeviceStatus.ONLINE, 1_700_000_005_000L, 230.1, 12.5, 2876.25, 50.02, 41.5),
+			// Lower id and older timestamp: both deltas are negative
+			new DeviceLatestValue(7L, 1L, null, 1_700_000_001_000L, Double.NaN, 3, Double.NaN, 49.98, Double.NaN),
+			new DeviceLatestValue(9_000_000_000L, null, Device.DeviceStatus.OFFLINE));
+
+		List<TelemetryReading> readings = TelemetryFrameCodec.decodeReadings(
+			ByteBuffer.wrap(TelemetryFrameCodec.encodeLatest(values)));
+
+		assertEquals(3, readings.size());
+		assertReading(values.get(0), readings.get(0));
+		assertReading(values.get(1), readings.get(1));
+		assertEquals(9_000_000_000L, readings.get(2).getDeviceId());
+		assertNull(readings.get(2).getTimestamp());
+		assertNull(readings.get(2).getVoltage());
+		assertNull(readings.get(2).getTemperature());
+	}
+
+	@Test
+	void growsTheBufferForLargeFrames() {
+		List<DeviceLatestValue> values = new ArrayList<>();
+		for (long id = 1; id <= 5000; id++) {
+			values.add(new DeviceLatestValue(id, id % 7, Device.DeviceStatus.ONLINE, 1_700_000_000_000L + id * 1000,
+				220 + id % 10, 30, 6600, 50, 25));
+		}
+
+		List<TelemetryReading> readings = TelemetryFrameCodec.decodeReadings(
+			ByteBuffer.wrap(TelemetryFrameCodec.encodeLatest(values)));
+
+		assertEquals(values.size(), readings.size());
+		for (int i = 0; i < values.size(); i++) {
+			assertReading(values.get(i), readings.get(i));
+		}
+	}
+
+	@Test
+	void rejectsMalformedFrames() {
+		byte[] frame = TelemetryFrameCodec.encodeLatest(List.of(
+			new DeviceLatestValue(1L, 1L, Device.DeviceStatus.ONLINE, 1000, 1, 2, 3, 4, 5)));
+
+		assertThrows(IllegalArgumentException.class,
+			() -> TelemetryFrameCodec.decodeReadings(ByteBuffer.wrap(Arrays.copyOf(frame, frame.length - 1))));
+		assertThrows(IllegalArgumentException.class,
+			() -> TelemetryFrameCodec.decodeReadings(ByteBuffer.wrap(Arrays.copyOf(frame, frame.length + 1))));
+
+		byte[] wrongVersion = frame.clone();
+		wrongVersion[0] = 99;
+		assertThrows(IllegalArgumentException.class,
+			() -> TelemetryFrameCodec.decodeReadings(ByteBuffer.wrap(wrongVersion)));
+	}
+
+	private static void assertReading(DeviceLatestValue expected, TelemetryReading actual) {
+		assertEquals(expected.getDeviceId(), actual.getDeviceId());
+		assertEquals(TelemetrySeries.toLocalDateTime(expected.getTimestampMillis()), actual.getTimestamp());
+		// float32 on the wire, widened back through the shortest decimal form
+		assertEquals(expected.getVoltage(), actual.getVoltage());
+		assertEquals(expected.getCurrent(), actual.getCurrent());
+		assertEquals(expected.getPower(), actual.getPower());
+		assertEquals(expected.getFrequency(), actual.getFrequency());
+		assertEquals(expected.getTemperature(), actual.getTemperature());
+	}
+}
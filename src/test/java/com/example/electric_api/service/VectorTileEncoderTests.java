@@ -0,0 +1,193 @@
+package com.example.electric_api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VectorTileEncoderTests {
+
+	@Test
+	void encodesPointsWithSharedKeysAndValues() {
+		VectorTileEncoder encoder = new VectorTileEncoder(0, 0, 0);
+		encoder.addPoint("stations", 7L, 0, 0, properties("status", "ACTIVE", "capacity", 120.5));
+		encoder.addPoint("stations", 8L, 0, 90, properties("status", "ACTIVE", "online", true));
+		encoder.addPoint("devices", null, 0, -90, properties("count", -3));
+
+		List<Field> layers = read(encoder.encode());
+		assertEquals(2, layers.size());
+
+		List<Field> stations = read(layers.get(0).bytes);
+		assertEquals(2, first(stations, 15).value);
+		assertEquals("stations", string(first(stations, 1)));
+		assertEquals(4096, first(stations, 5).value);
+		assertEquals(List.of("status", "capacity", "online"), all(stations, 3).stream().map(VectorTileEncoderTests::string).toList());
+
+		List<Field> values = all(stations, 4);
+		assertEquals(3, values.size());
+		assertEquals("ACTIVE", string(first(read(values.get(0).bytes), 1)));
+		assertEquals(120.5, ByteBuffer.wrap(first(read(values.get(1).bytes), 3).bytes).order(ByteOrder.LITTLE_ENDIAN).getDouble());
+		assertEquals(1, first(read(values.get(2).bytes), 7).value);
+
+		List<Field> features = all(stations, 2);
+		assertEquals(2, features.size());
+		List<Field> centre = read(features.get(0).bytes);
+		assertEquals(7, first(centre, 1).value);
+		assertEquals(1, first(centre, 3).value);
+		assertArrayEquals(new int[]{0, 0, 1, 1}, packed(first(centre, 2)));
+		assertArrayEquals(new int[]{9, 2048, 2048}, geometry(first(centre, 4)));
+		List<Field> east = read(features.get(1).bytes);
+		assertArrayEquals(new int[]{0, 0, 2, 2}, packed(first(east, 2)));
+		assertArrayEquals(new int[]{9, 3072, 2048}, geometry(first(east, 4)));
+
+		List<Field> devices = read(layers.get(1).bytes);
+		assertEquals("devices", string(first(devices, 1)));
+		List<Field> device = read(first(devices, 2).bytes);
+		assertTrue(all(device, 1).isEmpty(), "a feature without an id has no id field");
+		List<Field> count = read(first(devices, 4).bytes);
+		assertEquals(5, first(count, 6).value, "negative integers use sint64");
+	}
+
+	@Test
+	void dropsPointsOutsideTheBufferedTile() {
+		VectorTileEncoder encoder = new VectorTileEncoder(1, 0, 0);
+		encoder.addPoint("stations", 1L, -40, 90, properties());
+		encoder.addLine("lines", 2L, new double[]{-40, 10, -60, 120}, properties());
+		assertEquals(0, encoder.encode().length);
+
+		// Just over the tile's east edge but inside the 64 unit buffer
+		encoder.addPoint("stations", 3L, 40, 1, properties());
+		List<Field> feature = read(first(read(first(read(encoder.encode()), 3).bytes), 2).bytes);
+		int[] point = geometry(first(feature, 4));
+		assertEquals(4096 + Math.round(1 / 180.0 * 4096), point[1]);
+	}
+
+	@Test
+	void clipsLinesAndSplitsPartsThatReenter() {
+		VectorTileEncoder encoder = new VectorTileEncoder(1, 0, 0);
+		// Along a parallel from 90W to 90E and back: leaves the western tile and comes back
+		encoder.addLine("lines", 5L, new double[]{40, -90, 40, 90, 40, -90}, properties("voltage", 220));
+
+		List<Field> feature = read(first(read(first(read(encoder.encode()), 3).bytes), 2).bytes);
+		assertEquals(2, first(feature, 3).value);
+		int[] commands = geometry(first(feature, 4));
+		// MoveTo(1) x y LineTo(1) dx dy MoveTo(1) dx dy LineTo(1) dx dy
+		assertEquals(12, commands.length);
+		assertEquals(9, commands[0]);
+		assertEquals(2048, commands[1]);
+		assertEquals(10, commands[3]);
+		assertEquals(4096 + 64 - 2048, commands[4]);
+		assertEquals(0, commands[5]);
+		assertEquals(9, commands[6]);
+		assertEquals(0, commands[7]);
+		assertEquals(0, commands[8]);
+		assertEquals(10, commands[9]);
+		assertEquals(2048 - 4096 - 64, commands[10]);
+	}
+
+	@Test
+	void boundsCoverTheTilePlusBuffer() {
+		double[] world = VectorTileEncoder.bounds(0, 0, 0);
+		assertEquals(-180, world[0]);
+		assertEquals(180, world[2]);
+		assertTrue(world[1] < -85.05 && world[3] > 85.05);
+
+		double[] northEast = VectorTileEncoder.bounds(1, 1, 0);
+		assertEquals(-64.0 / 4096 / 2 * 360, northEast[0], 1e-9);
+		assertEquals(180, northEast[2]);
+		assertTrue(northEast[1] < 0 && northEast[1] > -3);
+		assertTrue(northEast[3] > 85.05);
+	}
+
+	private record Field(int number, long value, byte[] bytes) {
+	}
+
+	/** Reads one protobuf message: varint, 64-bit and length-delimited fields are all a tile uses. */
+	private static List<Field> read(byte[] message) {
+		List<Field> fields = new ArrayList<>();
+		int[] position = {0};
+		while (position[0] < message.length) {
+			long key = varint(message, position);
+			int number = (int) (key >>> 3);
+			switch ((int) (key & 7)) {
+				case 0 -> fields.add(new Field(number, varint(message, position), null));
+				case 1 -> {
+					byte[] bytes = new byte[8];
+					System.arraycopy(message, position[0], bytes, 0, 8);
+					position[0] += 8;
+					fields.add(new Field(number, 0, bytes));
+				}
+				case 2 -> {
+					int length = (int) varint(message, position);
+					byte[] bytes = new byte[length];
+					System.arraycopy(message, position[0], bytes, 0, length);
+					position[0] += length;
+					fields.add(new Field(number, 0, bytes));
+				}
+				default -> throw new IllegalStateException("Unexpected wire type in field " + number);
+			}
+		}
+		return fields;
+	}
+
+	private static long varint(byte[] bytes, int[] position) {
+		long value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = bytes[position[0]++];
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) return value;
+		}
+	}
+
+	private static int[] packed(Field field) {
+		List<Integer> values = new ArrayList<>();
+		int[] position = {0};
+		while (position[0] < field.bytes.length) {
+			values.add((int) varint(field.bytes, position));
+		}
+		return values.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/** Packed geometry with the parameters zigzag-decoded and the command integers left as they are. */
+	private static int[] geometry(Field field) {
+		int[] values = packed(field);
+		for (int i = 0; i < values.length; ) {
+			int count = values[i] >>> 3;
+			int parameters = (values[i] & 7) == 7 ? 0 : count * 2;
+			for (int p = i + 1; p <= i + parameters; p++) {
+				values[p] = (values[p] >>> 1) ^ -(values[p] & 1);
+			}
+			i += 1 + parameters;
+		}
+		return values;
+	}
+
+	private static Field first(List<Field> fields, int number) {
+		return fields.stream().filter(f -> f.number == number).findFirst().orElseThrow();
+	}
+
+	private static List<Field> all(List<Field> fields, int number) {
+		return fields.stream().filter(f -> f.number == number).toList();
+	}
+
+	private static String string(Field field) {
+		return new String(field.bytes, StandardCharsets.UTF_8);
+	}
+
+	private static Map<String, Object> properties(Object... keysAndValues) {
+		Map<String, Object> properties = new LinkedHashMap<>();
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			properties.put((String) keysAndValues[i], keysAndValues[i + 1]);
+		}
+		return properties;
+	}
+}